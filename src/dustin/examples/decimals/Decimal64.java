@@ -0,0 +1,338 @@
+package dustin.examples.decimals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Mutable decimal number held as a {@code long} unscaled value and an
+ * {@code int} scale (value = unscaled &times; 10^-scale) for accumulation
+ * loops that would otherwise create a new {@link BigDecimal} with every
+ * addition.
+ *
+ * Arithmetic is performed in place and has exactly the results of the
+ * corresponding unbounded {@link BigDecimal} operation: the result of
+ * {@link #add(Decimal64)} and {@link #subtract(Decimal64)} has the larger
+ * of the two scales and the result of {@link #multiply(Decimal64)} the
+ * sum of the scales. Operations on {@code long}s are checked with
+ * {@link Math#addExact(long, long)} and {@link Math#multiplyExact(long, long)};
+ * an operation that would overflow is instead performed with
+ * {@link BigDecimal}s, and the number then holds a {@link BigDecimal}
+ * until a result again fits in a {@code long}. Only those operations
+ * allocate. Conversion to and from {@link BigDecimal} is lossless,
+ * including the scale.
+ *
+ * Instances are not thread-safe and, being mutable, should not be used
+ * as map keys.
+ */
+public final class Decimal64 implements Comparable<Decimal64>
+{
+   /** 10^0 through 10^18, the powers of ten that fit in a {@code long}. */
+   private static final long[] LONG_TEN_POWERS = new long[19];
+
+   static
+   {
+      LONG_TEN_POWERS[0] = 1L;
+      for (int power = 1; power < LONG_TEN_POWERS.length; power++)
+      {
+         LONG_TEN_POWERS[power] = LONG_TEN_POWERS[power - 1] * 10;
+      }
+   }
+
+   private long unscaled;
+
+   private int scale;
+
+   /** Value when it does not fit in a {@code long}, else {@code null}. */
+   private BigDecimal inflated;
+
+   /**
+    * Instantiates a number with the value zero and scale zero.
+    */
+   public Decimal64()
+   {
+   }
+
+   /**
+    * @param unscaledValue Unscaled value.
+    * @param newScale Scale; the value is unscaledValue &times; 10^-newScale.
+    */
+   public Decimal64(final long unscaledValue, final int newScale)
+   {
+      set(unscaledValue, newScale);
+   }
+
+   /**
+    * @param value Value and scale of the number.
+    */
+   public Decimal64(final BigDecimal value)
+   {
+      set(value);
+   }
+
+   /**
+    * Sets this number to the provided unscaled value and scale.
+    *
+    * @param unscaledValue Unscaled value.
+    * @param newScale Scale; the value is unscaledValue &times; 10^-newScale.
+    * @return This number.
+    */
+   public Decimal64 set(final long unscaledValue, final int newScale)
+   {
+      unscaled = unscaledValue;
+      scale = newScale;
+      inflated = null;
+      return this;
+   }
+
+   /**
+    * Sets this number to the value and scale of the provided BigDecimal.
+    *
+    * @param value Value and scale of the number.
+    * @return This number.
+    */
+   public Decimal64 set(final BigDecimal value)
+   {
+      final BigInteger unscaledValue = value.unscaledValue();
+      if (unscaledValue.bitLength() < Long.SIZE)
+      {
+         return set(unscaledValue.longValue(), value.scale());
+      }
+      inflated = value;
+      return this;
+   }
+
+   /**
+    * Sets this number to the value and scale of the provided number.
+    *
+    * @param value Number whose value and scale are copied.
+    * @return This number.
+    */
+   public Decimal64 set(final Decimal64 value)
+   {
+      unscaled = value.unscaled;
+      scale = value.scale;
+      inflated = value.inflated;
+      return this;
+   }
+
+   /**
+    * Adds the provided number to this number.
+    *
+    * @param augend Number to be added.
+    * @return This number.
+    */
+   public Decimal64 add(final Decimal64 augend)
+   {
+      if (inflated == null && augend.inflated == null)
+      {
+         try
+         {
+            if (scale == augend.scale)
+            {
+               unscaled = Math.addExact(unscaled, augend.unscaled);
+            }
+            else if (scale < augend.scale)
+            {
+               unscaled = Math.addExact(scaleUp(unscaled, (long) augend.scale - scale), augend.unscaled);
+               scale = augend.scale;
+            }
+            else
+            {
+               unscaled = Math.addExact(unscaled, scaleUp(augend.unscaled, (long) scale - augend.scale));
+            }
+            return this;
+         }
+         catch (ArithmeticException overflow)
+         {
+            // Performed with BigDecimals below; this number is unchanged.
+         }
+      }
+      return setCompacting(toBigDecimal().add(augend.toBigDecimal()));
+   }
+
+   /**
+    * Subtracts the provided number from this number.
+    *
+    * @param subtrahend Number to be subtracted.
+    * @return This number.
+    */
+   public Decimal64 subtract(final Decimal64 subtrahend)
+   {
+      if (inflated == null && subtrahend.inflated == null)
+      {
+         try
+         {
+            if (scale == subtrahend.scale)
+            {
+               unscaled = Math.subtractExact(unscaled, subtrahend.unscaled);
+            }
+            else if (scale < subtrahend.scale)
+            {
+               unscaled = Math.subtractExact(scaleUp(unscaled, (long) subtrahend.scale - scale), subtrahend.unscaled);
+               scale = subtrahend.scale;
+            }
+            else
+            {
+               unscaled = Math.subtractExact(unscaled, scaleUp(subtrahend.unscaled, (long) scale - subtrahend.scale));
+            }
+            return this;
+         }
+         catch (ArithmeticException overflow)
+         {
+            // Performed with BigDecimals below; this number is unchanged.
+         }
+      }
+      return setCompacting(toBigDecimal().subtract(subtrahend.toBigDecimal()));
+   }
+
+   /**
+    * Multiplies this number by the provided number.
+    *
+    * @param multiplicand Number by which this number is multiplied.
+    * @return This number.
+    * @throws ArithmeticException Thrown if the scale of the product is
+    *    outside the range of an {@code int}, as {@link BigDecimal} does.
+    */
+   public Decimal64 multiply(final Decimal64 multiplicand)
+   {
+      if (inflated == null && multiplicand.inflated == null)
+      {
+         final long productScale = (long) scale + multiplicand.scale;
+         if (productScale == (int) productScale)
+         {
+            try
+            {
+               unscaled = Math.multiplyExact(unscaled, multiplicand.unscaled);
+               scale = (int) productScale;
+               return this;
+            }
+            catch (ArithmeticException overflow)
+            {
+               // Performed with BigDecimals below; this number is unchanged.
+            }
+         }
+      }
+      return setCompacting(toBigDecimal().multiply(multiplicand.toBigDecimal()));
+   }
+
+   /**
+    * Compares the values of this number and the provided number, ignoring
+    * scale, as {@link BigDecimal#compareTo(BigDecimal)} does.
+    *
+    * @param other Number to which this number is compared.
+    * @return Negative, zero, or positive as this number is less than,
+    *    equal to, or greater than the provided number.
+    */
+   @Override
+   public int compareTo(final Decimal64 other)
+   {
+      if (inflated == null && other.inflated == null)
+      {
+         if (scale == other.scale)
+         {
+            return Long.compare(unscaled, other.unscaled);
+         }
+         final int signum = Long.signum(unscaled);
+         final int otherSignum = Long.signum(other.unscaled);
+         if (signum != otherSignum)
+         {
+            return signum < otherSignum ? -1 : 1;
+         }
+         try
+         {
+            return scale < other.scale
+               ? Long.compare(scaleUp(unscaled, (long) other.scale - scale), other.unscaled)
+               : Long.compare(unscaled, scaleUp(other.unscaled, (long) scale - other.scale));
+         }
+         catch (ArithmeticException overflow)
+         {
+            // Compared as BigDecimals below.
+         }
+      }
+      return toBigDecimal().compareTo(other.toBigDecimal());
+   }
+
+   /**
+    * @return -1, 0, or 1 as this number is negative, zero, or positive.
+    */
+   public int signum()
+   {
+      return inflated == null ? Long.signum(unscaled) : inflated.signum();
+   }
+
+   /**
+    * @return Scale of this number.
+    */
+   public int scale()
+   {
+      return inflated == null ? scale : inflated.scale();
+   }
+
+   /**
+    * @return {@code true} if this number's unscaled value fits in a
+    *    {@code long} and so is available from {@link #unscaledValue()}.
+    */
+   public boolean isCompact()
+   {
+      return inflated == null;
+   }
+
+   /**
+    * @return Unscaled value of this number.
+    * @throws ArithmeticException Thrown if the unscaled value does not
+    *    fit in a {@code long} (see {@link #isCompact()}).
+    */
+   public long unscaledValue()
+   {
+      if (inflated != null)
+      {
+         throw new ArithmeticException("Unscaled value does not fit in a long: " + inflated.unscaledValue());
+      }
+      return unscaled;
+   }
+
+   /**
+    * @return BigDecimal with the value and scale of this number.
+    */
+   public BigDecimal toBigDecimal()
+   {
+      return inflated != null ? inflated : BigDecimal.valueOf(unscaled, scale);
+   }
+
+   /**
+    * @return This number as {@link BigDecimal#toString()} renders it.
+    */
+   @Override
+   public String toString()
+   {
+      return toBigDecimal().toString();
+   }
+
+   /**
+    * Sets this number to the provided result, holding it as a
+    * {@code long} if its unscaled value fits in one.
+    */
+   private Decimal64 setCompacting(final BigDecimal result)
+   {
+      inflated = null;
+      return set(result);
+   }
+
+   /**
+    * @return Provided unscaled value multiplied by 10^power.
+    * @throws ArithmeticException Thrown if the result does not fit in a
+    *    {@code long}.
+    */
+   private static long scaleUp(final long value, final long power)
+   {
+      if (power >= LONG_TEN_POWERS.length)
+      {
+         if (value == 0)
+         {
+            return 0;
+         }
+         throw new ArithmeticException("long overflow");
+      }
+      return Math.multiplyExact(value, LONG_TEN_POWERS[(int) power]);
+   }
+}
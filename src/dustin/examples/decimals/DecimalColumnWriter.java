@@ -0,0 +1,403 @@
+package dustin.examples.decimals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import dustin.examples.decimals.DecimalsStringFormattingDemo.Format;
+
+/**
+ * Writes whole columns of floats, doubles, or BigDecimals, rendered in a
+ * {@link Format} and separated by a delimiter, to a channel such as a
+ * {@link java.nio.channels.FileChannel}.
+ *
+ * A column is split into chunks of rows that are rendered in parallel on
+ * the provided worker {@link Executor}, each into one of a fixed pool of
+ * direct {@link ByteBuffer}s, while the calling thread writes the filled
+ * buffers to the channel in row order. At most one chunk per pooled
+ * buffer is rendered ahead of the channel, so memory use is bounded by
+ * the pool regardless of the number of rows, and a slow channel
+ * throttles rendering. Values of {@link Format#NO_EXPONENT} and
+ * {@link Format#CSV_BULK} are rendered with a {@link PlainDecimalWriter}
+ * per pooled buffer and so without allocation; the rare chunk whose
+ * rendering does not fit in its buffer is completed by the calling
+ * thread as the buffer is written.
+ *
+ * Exports by one instance are serialized; concurrent calls wait.
+ */
+public class DecimalColumnWriter
+{
+   /** Default number of rows rendered per chunk. */
+   public static final int DEFAULT_CHUNK_ROWS = 16_384;
+
+   /** Default capacity of each pooled buffer. */
+   public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+   private final Format format;
+
+   private final byte[] delimiter;
+
+   private final Executor workers;
+
+   private final int chunkRows;
+
+   /** Idle buffers and their renderers; only used while holding this writer's lock. */
+   private final ArrayDeque<Slot> idle = new ArrayDeque<>();
+
+   private final int slotCount;
+
+   /** Renders the value at a row into a slot's scratch array. */
+   @FunctionalInterface
+   private interface RowRenderer
+   {
+      /**
+       * @return Number of bytes rendered into the slot's scratch array.
+       */
+      int render(Slot slot, int row);
+   }
+
+   /** A pooled direct buffer and what is needed to render values into it. */
+   private static final class Slot
+   {
+      private final ByteBuffer buffer;
+
+      /** Writer of plain decimals, or {@code null} for {@link Format#DEFAULT}. */
+      private final PlainDecimalWriter writer;
+
+      private byte[] scratch = new byte[4096];
+
+      private Slot(final int bufferSize, final PlainDecimalWriter newWriter)
+      {
+         buffer = ByteBuffer.allocateDirect(bufferSize);
+         writer = newWriter;
+      }
+
+      private int render(final double value)
+      {
+         return writer == null ? renderAscii(Double.toString(value)) : writer.write(value, scratch, 0);
+      }
+
+      private int render(final float value)
+      {
+         return writer == null ? renderAscii(Float.toString(value)) : writer.write(value, scratch, 0);
+      }
+
+      private int render(final BigDecimal value)
+      {
+         // Both toString and toPlainString write at most this many characters.
+         final long maximumLength = value.precision() + Math.abs((long) value.scale()) + 16;
+         if (scratch.length < maximumLength)
+         {
+            scratch = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(maximumLength, 2L * scratch.length))];
+         }
+         return writer == null ? renderAscii(value.toString()) : writer.write(value, scratch, 0);
+      }
+
+      private int renderAscii(final String text)
+      {
+         final int length = text.length();
+         for (int index = 0; index < length; index++)
+         {
+            scratch[index] = (byte) text.charAt(index);
+         }
+         return length;
+      }
+   }
+
+   /** A chunk being rendered and the buffer it is rendered into. */
+   private static final class Chunk
+   {
+      private final Slot slot;
+      private final int end;
+      private final CompletableFuture<Integer> rendered;
+
+      private Chunk(final Slot newSlot, final int newEnd, final CompletableFuture<Integer> newRendered)
+      {
+         slot = newSlot;
+         end = newEnd;
+         rendered = newRendered;
+      }
+   }
+
+   /**
+    * Instantiates a column writer with {@link #DEFAULT_CHUNK_ROWS} rows
+    * per chunk and two pooled buffers of {@link #DEFAULT_BUFFER_SIZE}
+    * bytes per available processor.
+    *
+    * @param newFormat Format in which values are rendered.
+    * @param newDelimiter Text written between values, such as "\n" or ",".
+    * @param newWorkers Executor on which chunks are rendered; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    */
+   public DecimalColumnWriter(final Format newFormat, final String newDelimiter, final Executor newWorkers)
+   {
+      this(newFormat, newDelimiter, newWorkers, DEFAULT_CHUNK_ROWS,
+         2 * Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_SIZE);
+   }
+
+   /**
+    * @param newFormat Format in which values are rendered.
+    * @param newDelimiter Text written between values, such as "\n" or ",".
+    * @param newWorkers Executor on which chunks are rendered; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    * @param newChunkRows Number of rows rendered by each task.
+    * @param bufferCount Number of pooled buffers and so the maximum
+    *    number of chunks rendered ahead of the channel.
+    * @param bufferSize Capacity in bytes of each pooled buffer.
+    */
+   public DecimalColumnWriter(
+      final Format newFormat,
+      final String newDelimiter,
+      final Executor newWorkers,
+      final int newChunkRows,
+      final int bufferCount,
+      final int bufferSize)
+   {
+      if (newChunkRows <= 0)
+      {
+         throw new IllegalArgumentException("Chunk rows must be positive: " + newChunkRows);
+      }
+      if (bufferCount <= 0)
+      {
+         throw new IllegalArgumentException("Buffer count must be positive: " + bufferCount);
+      }
+      if (bufferSize <= 0)
+      {
+         throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+      }
+      format = Objects.requireNonNull(newFormat, "format");
+      delimiter = newDelimiter.getBytes(StandardCharsets.UTF_8);
+      workers = Objects.requireNonNull(newWorkers, "workers");
+      chunkRows = newChunkRows;
+      slotCount = bufferCount;
+      for (int slot = 0; slot < bufferCount; slot++)
+      {
+         idle.push(new Slot(bufferSize, newWriter(newFormat)));
+      }
+   }
+
+   /**
+    * @return Writer rendering values as the provided format does, or
+    *    {@code null} for {@link Format#DEFAULT}, which is rendered by
+    *    {@code toString}.
+    */
+   private static PlainDecimalWriter newWriter(final Format format)
+   {
+      switch (format)
+      {
+         case NO_EXPONENT:
+            return new PlainDecimalWriter();
+         case CSV_BULK:
+            return new PlainDecimalWriter(Locale.ROOT);
+         default:
+            return null;
+      }
+   }
+
+   /**
+    * Writes the provided column to the provided channel.
+    *
+    * @param column Values to be written, in order.
+    * @param channel Channel written at its current position.
+    * @return Number of bytes written.
+    * @throws IOException Thrown if the channel cannot be written.
+    */
+   public long write(final double[] column, final WritableByteChannel channel) throws IOException
+   {
+      return write(column.length, (slot, row) -> slot.render(column[row]), channel);
+   }
+
+   /**
+    * Writes the provided column to the provided channel.
+    *
+    * @param column Values to be written, in order.
+    * @param channel Channel written at its current position.
+    * @return Number of bytes written.
+    * @throws IOException Thrown if the channel cannot be written.
+    */
+   public long write(final float[] column, final WritableByteChannel channel) throws IOException
+   {
+      return write(column.length, (slot, row) -> slot.render(column[row]), channel);
+   }
+
+   /**
+    * Writes the provided column to the provided channel.
+    *
+    * @param column Values to be written, in order.
+    * @param channel Channel written at its current position.
+    * @return Number of bytes written.
+    * @throws IOException Thrown if the channel cannot be written.
+    */
+   public long write(final BigDecimal[] column, final WritableByteChannel channel) throws IOException
+   {
+      return write(column.length, (slot, row) -> slot.render(column[row]), channel);
+   }
+
+   /**
+    * Coordinating loop: keeps up to one chunk per pooled buffer being
+    * rendered and writes the oldest to the channel as soon as it is done.
+    */
+   private synchronized long write(final int rows, final RowRenderer renderer, final WritableByteChannel channel)
+      throws IOException
+   {
+      final ArrayDeque<Chunk> inFlight = new ArrayDeque<>(slotCount);
+      long written = 0;
+      int nextRow = 0;
+      try
+      {
+         while (true)
+         {
+            while (nextRow < rows && !idle.isEmpty())
+            {
+               final Slot slot = idle.pop();
+               final int start = nextRow;
+               final int end = (int) Math.min(rows, (long) start + chunkRows);
+               inFlight.add(new Chunk(slot, end,
+                  CompletableFuture.supplyAsync(() -> render(slot, renderer, start, end), workers)));
+               nextRow = end;
+            }
+            if (inFlight.isEmpty())
+            {
+               return written;
+            }
+            final Chunk chunk = inFlight.remove();
+            try
+            {
+               int row = chunk.rendered.join();
+               written += drain(chunk.slot, channel);
+               while (row < chunk.end)
+               {
+                  final int stopped = render(chunk.slot, renderer, row, chunk.end);
+                  if (stopped == row)
+                  {
+                     // The value does not fit even in an empty buffer.
+                     written += writeOversized(chunk.slot, renderer, row, channel);
+                     row++;
+                  }
+                  else
+                  {
+                     written += drain(chunk.slot, channel);
+                     row = stopped;
+                  }
+               }
+            }
+            finally
+            {
+               idle.push(chunk.slot);
+            }
+         }
+      }
+      catch (CompletionException completionException)
+      {
+         final Throwable cause = completionException.getCause();
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error) cause;
+         }
+         throw completionException;
+      }
+      finally
+      {
+         // Buffers are reused only once no worker can still be filling them.
+         for (final Chunk chunk : inFlight)
+         {
+            try
+            {
+               chunk.rendered.join();
+            }
+            catch (CompletionException ignored)
+            {
+               // The first failure has already been reported.
+            }
+            idle.push(chunk.slot);
+         }
+      }
+   }
+
+   /**
+    * Renders rows from the provided start, each preceded by the delimiter
+    * unless it is the first row of the column, into the slot's buffer
+    * until the provided end or until the next row does not fit.
+    *
+    * @return Row following the last row rendered.
+    */
+   private int render(final Slot slot, final RowRenderer renderer, final int start, final int end)
+   {
+      final ByteBuffer buffer = slot.buffer;
+      buffer.clear();
+      for (int row = start; row < end; row++)
+      {
+         final int length = renderer.render(slot, row);
+         final int delimiterLength = row > 0 ? delimiter.length : 0;
+         if (buffer.remaining() < delimiterLength + length)
+         {
+            return row;
+         }
+         buffer.put(delimiter, 0, delimiterLength);
+         buffer.put(slot.scratch, 0, length);
+      }
+      return end;
+   }
+
+   /**
+    * Writes the row that does not fit in an empty buffer straight from
+    * the slot's scratch array.
+    */
+   private long writeOversized(final Slot slot, final RowRenderer renderer, final int row,
+      final WritableByteChannel channel) throws IOException
+   {
+      long written = 0;
+      if (row > 0)
+      {
+         written += drain(ByteBuffer.wrap(delimiter), channel);
+      }
+      final int length = renderer.render(slot, row);
+      return written + drain(ByteBuffer.wrap(slot.scratch, 0, length), channel);
+   }
+
+   /**
+    * Writes the rows rendered into the provided slot's buffer to the channel.
+    *
+    * @return Number of bytes written.
+    */
+   private static long drain(final Slot slot, final WritableByteChannel channel) throws IOException
+   {
+      slot.buffer.flip();
+      return drain(slot.buffer, channel);
+   }
+
+   /**
+    * Writes everything remaining in the provided buffer to the channel.
+    *
+    * @return Number of bytes written.
+    */
+   private static long drain(final ByteBuffer buffer, final WritableByteChannel channel) throws IOException
+   {
+      final int length = buffer.remaining();
+      while (buffer.hasRemaining())
+      {
+         channel.write(buffer);
+      }
+      return length;
+   }
+
+   /**
+    * @return Format in which values are rendered.
+    */
+   public Format getFormat()
+   {
+      return format;
+   }
+}
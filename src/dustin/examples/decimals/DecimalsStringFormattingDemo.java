@@ -2,6 +2,7 @@ package dustin.examples.decimals;
 
 import java.math.BigDecimal;
 import java.text.NumberFormat;
+import java.util.Locale;
 
 import static java.lang.System.out;
 
@@ -36,6 +37,11 @@ public class DecimalsStringFormattingDemo
          {
             return bigDecimalValue.toString();
          }
+         @Override
+         public String fromDecimal64(final Decimal64 decimal64Value)
+         {
+            return decimal64Value.toString();
+         }
       },
       /** Preclude representation of Java decimal numbers in scientific notation. */
       NO_EXPONENT
@@ -43,20 +49,62 @@ public class DecimalsStringFormattingDemo
          @Override
          public String fromFloat(final float floatValue)
          {
-            return getFormatter().format(floatValue);
+            return getWriter().toString(floatValue);
+         }
+         @Override
+         public String fromDouble(final double doubleValue)
+         {
+            return getWriter().toString(doubleValue);
+         }
+         @Override
+         public String fromBigDecimal(final BigDecimal bigDecimalValue)
+         {
+            return bigDecimalValue.toPlainString();
+         }
+         @Override
+         public String fromDecimal64(final Decimal64 decimal64Value)
+         {
+            return getWriter().toString(decimal64Value);
+         }
+      },
+      /**
+       * Preclude scientific notation as {@link #NO_EXPONENT} does, but with
+       * the symbols of {@link Locale#ROOT} (ASCII digits, '.' and '-')
+       * whatever the default locale, so that values can be delimited by
+       * commas; whole columns are written in this format by
+       * {@link DecimalColumnWriter}.
+       */
+      CSV_BULK
+      {
+         @Override
+         public String fromFloat(final float floatValue)
+         {
+            return CSV_WRITERS.get().toString(floatValue);
          }
          @Override
          public String fromDouble(final double doubleValue)
          {
-            return getFormatter().format(doubleValue);
+            return CSV_WRITERS.get().toString(doubleValue);
          }
          @Override
          public String fromBigDecimal(final BigDecimal bigDecimalValue)
          {
             return bigDecimalValue.toPlainString();
          }
+         @Override
+         public String fromDecimal64(final Decimal64 decimal64Value)
+         {
+            return CSV_WRITERS.get().toString(decimal64Value);
+         }
       };
 
+      /** Each thread's writer for {@link #NO_EXPONENT}. */
+      private static final ThreadLocal<PlainDecimalWriter> WRITERS = new ThreadLocal<>();
+
+      /** Each thread's writer for {@link #CSV_BULK}. */
+      private static final ThreadLocal<PlainDecimalWriter> CSV_WRITERS =
+         ThreadLocal.withInitial(() -> new PlainDecimalWriter(Locale.ROOT));
+
       /**
        * Present provided float as a String formatted per my format.
        *
@@ -75,6 +123,33 @@ public class DecimalsStringFormattingDemo
        * @param bigDecimalValue BigDecimal object to be rendered.
        */
       public abstract String fromBigDecimal(final BigDecimal bigDecimalValue);
+      /**
+       * Present provided Decimal64 as a String formatted per my format,
+       * exactly as the equal BigDecimal is presented.
+       *
+       * @param decimal64Value Decimal64 to be rendered.
+       */
+      public abstract String fromDecimal64(final Decimal64 decimal64Value);
+
+      /**
+       * Provide this thread's {@link PlainDecimalWriter} for the current
+       * default locale, which writes floats and doubles exactly as the
+       * {@code NumberFormat} of {@link #getFormatter()} does without
+       * creating one per value.
+       *
+       * @return Writer of decimal numbers without scientific notation.
+       */
+      private static PlainDecimalWriter getWriter()
+      {
+         final PlainDecimalWriter writer = WRITERS.get();
+         if (writer != null && writer.getLocale().equals(Locale.getDefault(Locale.Category.FORMAT)))
+         {
+            return writer;
+         }
+         final PlainDecimalWriter newWriter = new PlainDecimalWriter();
+         WRITERS.set(newWriter);
+         return newWriter;
+      }
 
       /** 
        * Provide an instance of {@code NumberFormat} configured to 
@@ -83,7 +158,7 @@ public class DecimalsStringFormattingDemo
        * @return Instance of {@code NumberFormat} to be used to provide 
        *    a representation of the decimal number without scientific notation. 
        */ 
-      private static NumberFormat getFormatter()
+      static NumberFormat getFormatter()
       {
          // Used to prevent numbers from being represented in scientific notation.
          final NumberFormat numberFormat = NumberFormat.getInstance();
@@ -149,7 +224,9 @@ public class DecimalsStringFormattingDemo
 
    /**
     * Writes BigDecimals in the provided format and in the
-    * provided range to standard output.
+    * provided range to standard output. The values are accumulated
+    * in a {@link Decimal64} rather than by creating a BigDecimal
+    * for each one.
     *
     * @param start BigDecimal to start writing.
     * @param threshold BigDecimal past which to not write anymore.
@@ -165,13 +242,15 @@ public class DecimalsStringFormattingDemo
       final Format format)
    {
       out.println(generateHeader(label));
-      BigDecimal decimal = start;
+      final Decimal64 decimal = new Decimal64(start);
+      final Decimal64 decimalDelta = new Decimal64(delta);
+      final Decimal64 decimalThreshold = new Decimal64(threshold);
       do
       {
-         out.println("= " + format.fromBigDecimal(decimal));
-         decimal = decimal.add(delta);
+         out.println("= " + format.fromDecimal64(decimal));
+         decimal.add(decimalDelta);
       }
-      while (decimal.compareTo(threshold) < 0);
+      while (decimal.compareTo(decimalThreshold) < 0);
    }
 
    /**
@@ -0,0 +1,425 @@
+package dustin.examples.decimals;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dustin.examples.decimals.DecimalsStringFormattingDemo.Format;
+
+import static java.lang.System.out;
+
+/**
+ * Verifies that {@link PlainDecimalWriter}, {@link Decimal64}, and
+ * {@link DecimalColumnWriter} write and compute decimal numbers exactly
+ * as the {@code NumberFormat} and {@link BigDecimal} approaches of
+ * {@link DecimalsStringFormattingDemo} do, and times exporting a column
+ * of doubles with each approach.
+ */
+public class DecimalsStringFormattingVerification
+{
+   /**
+    * Generate the double to be verified at the provided index: random bit
+    * patterns (covering every exponent), random values near the scales
+    * this demonstration writes, random integers beyond 2^52, and values
+    * that are exactly representable as short decimals.
+    *
+    * @param random Source of random values.
+    * @param index Index of the value to be generated.
+    * @return Double to be verified.
+    */
+   private static double generateVerificationValue(final Random random, final int index)
+   {
+      switch (index % 4)
+      {
+         case 0:
+            return Double.longBitsToDouble(random.nextLong());
+         case 1:
+            return (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(24) - 8);
+         case 2:
+            return (double) (random.nextLong() >>> random.nextInt(12));
+         default:
+            return random.nextInt(1_000_000) / Math.pow(10, random.nextInt(12));
+      }
+   }
+
+   /**
+    * Verify that {@link PlainDecimalWriter} writes doubles, floats, and
+    * BigDecimals exactly as {@link Format#NO_EXPONENT} did with a
+    * {@code NumberFormat} per value and with
+    * {@link BigDecimal#toPlainString()}, in each of the provided locales.
+    *
+    * @param count Number of random values verified per locale.
+    * @param locales Locales whose symbols are verified.
+    * @return Number of values written differently.
+    */
+   private static long verifyPlainDecimalWriter(final int count, final Locale... locales)
+   {
+      final double[] specialValues =
+      {
+         0.0d, -0.0d, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+         Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, -Double.MAX_VALUE,
+         0.1d, 0.00085d, 9_999_995d, 1e7, 1e-3, 1e22, 1e23, 0x1p52, 0x1p53, 0x1p63, 0x1p64, 0x1p-1074
+      };
+      final Locale defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+      long mismatches = 0;
+      try
+      {
+         for (final Locale locale : locales)
+         {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+            final NumberFormat formatter = Format.getFormatter();
+            final PlainDecimalWriter writer = new PlainDecimalWriter();
+            final StringBuilder builder = new StringBuilder();
+            final byte[] bytes = new byte[1024];
+            final Random random = new Random(locale.hashCode());
+            for (int index = -specialValues.length; index < count; index++)
+            {
+               final double doubleValue =
+                  index < 0 ? specialValues[-1 - index] : generateVerificationValue(random, index);
+               final float floatValue = index < 0 ? (float) doubleValue : Float.intBitsToFloat(random.nextInt());
+               final BigDecimal bigDecimalValue = index < 0 || Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)
+                  ? new BigDecimal(random.nextLong()).scaleByPowerOfTen(random.nextInt(80) - 40)
+                  : new BigDecimal(doubleValue).scaleByPowerOfTen(random.nextInt(80) - 40);
+
+               final String expectedDouble = formatter.format(doubleValue);
+               builder.setLength(0);
+               final String actualDouble = writer.append(doubleValue, builder).toString();
+               final int end = writer.write(doubleValue, bytes, 0);
+               final String actualBytes = new String(bytes, 0, end, StandardCharsets.UTF_8);
+               final String expectedFloat = formatter.format(floatValue);
+               final String actualFloat = Format.NO_EXPONENT.fromFloat(floatValue);
+               final String expectedBigDecimal = bigDecimalValue.toPlainString();
+               builder.setLength(0);
+               final String actualBigDecimal = writer.append(bigDecimalValue, builder).toString();
+               if (!expectedDouble.equals(actualDouble) || !expectedDouble.equals(actualBytes))
+               {
+                  mismatches++;
+                  out.println("ERROR: " + locale + " double " + doubleValue + ": expected '" + expectedDouble
+                     + "' but was '" + actualDouble + "' (bytes '" + actualBytes + "')");
+               }
+               if (!expectedFloat.equals(actualFloat))
+               {
+                  mismatches++;
+                  out.println("ERROR: " + locale + " float " + floatValue + ": expected '" + expectedFloat
+                     + "' but was '" + actualFloat + "'");
+               }
+               if (!expectedBigDecimal.equals(actualBigDecimal))
+               {
+                  mismatches++;
+                  out.println("ERROR: " + locale + " BigDecimal " + bigDecimalValue + ": expected '"
+                     + expectedBigDecimal + "' but was '" + actualBigDecimal + "'");
+               }
+            }
+         }
+      }
+      finally
+      {
+         Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+      }
+      return mismatches;
+   }
+
+   /**
+    * Generate a random unscaled value for a {@link Decimal64}, often near
+    * the limits of a {@code long} so that operations overflow.
+    *
+    * @param random Source of random values.
+    * @return Unscaled value.
+    */
+   private static long generateUnscaledValue(final Random random)
+   {
+      switch (random.nextInt(4))
+      {
+         case 0:
+            return random.nextLong();
+         case 1:
+            return random.nextLong() >> random.nextInt(64);
+         case 2:
+            return random.nextBoolean() ? Long.MAX_VALUE - random.nextInt(1000) : Long.MIN_VALUE + random.nextInt(1000);
+         default:
+            return random.nextInt(2001) - 1000;
+      }
+   }
+
+   /**
+    * Verify that {@link Decimal64} adds, subtracts, multiplies, and
+    * compares exactly as {@link BigDecimal} does (value and scale), both
+    * within a {@code long} and after overflowing one, and that each
+    * {@link Format} presents it as it presents the equal BigDecimal.
+    *
+    * @param count Number of random operations of each kind verified.
+    * @return Number of operations whose results differ.
+    */
+   private static long verifyDecimal64(final int count)
+   {
+      final Random random = new Random(count);
+      final Decimal64 accumulator = new Decimal64();
+      BigDecimal expectedAccumulator = BigDecimal.ZERO;
+      final Decimal64 operand = new Decimal64();
+      final Decimal64 result = new Decimal64();
+      long mismatches = 0;
+      for (int index = 0; index < count; index++)
+      {
+         final BigDecimal left = BigDecimal.valueOf(generateUnscaledValue(random), random.nextInt(41) - 20);
+         final BigDecimal right = BigDecimal.valueOf(generateUnscaledValue(random), random.nextInt(41) - 20);
+         operand.set(right);
+         final BigDecimal[] expected = {left.add(right), left.subtract(right), left.multiply(right)};
+         final BigDecimal[] actual =
+         {
+            result.set(left).add(operand).toBigDecimal(),
+            result.set(left).subtract(operand).toBigDecimal(),
+            result.set(left).multiply(operand).toBigDecimal()
+         };
+         final String[] operations = {" + ", " - ", " * "};
+         for (int operation = 0; operation < operations.length; operation++)
+         {
+            if (!expected[operation].equals(actual[operation]))
+            {
+               mismatches++;
+               out.println("ERROR: " + left + operations[operation] + right + ": expected " + expected[operation]
+                  + " but was " + actual[operation]);
+            }
+         }
+         if (Integer.signum(left.compareTo(right)) != Integer.signum(result.set(left).compareTo(operand)))
+         {
+            mismatches++;
+            out.println("ERROR: comparing " + left + " to " + right);
+         }
+
+         // Accumulate as a pricing loop would, crossing out of and back into a long.
+         if (random.nextInt(4) == 0)
+         {
+            expectedAccumulator = expectedAccumulator.subtract(right);
+            accumulator.subtract(operand);
+         }
+         else
+         {
+            expectedAccumulator = expectedAccumulator.add(right);
+            accumulator.add(operand);
+         }
+         if (!expectedAccumulator.equals(accumulator.toBigDecimal()))
+         {
+            mismatches++;
+            out.println("ERROR: accumulated " + accumulator + " but expected " + expectedAccumulator);
+            accumulator.set(expectedAccumulator);
+         }
+         if (expectedAccumulator.precision() > 40)
+         {
+            expectedAccumulator = BigDecimal.ZERO;
+            accumulator.set(0, 0);
+         }
+         for (final Format format : Format.values())
+         {
+            if (!format.fromBigDecimal(expected[index % 3]).equals(format.fromDecimal64(result.set(expected[index % 3]))))
+            {
+               mismatches++;
+               out.println("ERROR: " + format + " presented " + result + " as " + format.fromDecimal64(result)
+                  + " rather than " + format.fromBigDecimal(expected[index % 3]));
+            }
+         }
+      }
+      return mismatches;
+   }
+
+   /**
+    * Verify that {@link DecimalColumnWriter} writes columns exactly as
+    * joining each value's rendering in the column's {@link Format} with
+    * the delimiter would, both with buffers large enough for whole chunks
+    * and with buffers so small that chunks overflow them and some values
+    * do not fit in them at all.
+    *
+    * @param count Number of values in each column.
+    * @return Number of columns written differently.
+    * @throws IOException Thrown if a temporary file cannot be written or read.
+    */
+   private static long verifyDecimalColumnWriter(final int count) throws IOException
+   {
+      final Random random = new Random(count);
+      final double[] doubles = new double[count];
+      final float[] floats = new float[count];
+      final BigDecimal[] bigDecimals = new BigDecimal[count];
+      for (int index = 0; index < count; index++)
+      {
+         doubles[index] = generateVerificationValue(random, index);
+         floats[index] = Float.intBitsToFloat(random.nextInt());
+         bigDecimals[index] = new BigDecimal(random.nextLong()).scaleByPowerOfTen(random.nextInt(400) - 200);
+      }
+      final Path file = Files.createTempFile("decimal-column", ".csv");
+      final ExecutorService workers = Executors.newFixedThreadPool(4);
+      long mismatches = 0;
+      try
+      {
+         for (final Format format : Format.values())
+         {
+            for (final String delimiter : new String[] {"\n", ","})
+            {
+               final DecimalColumnWriter[] writers =
+               {
+                  new DecimalColumnWriter(format, delimiter, workers, 1_000, 4, 1 << 16),
+                  new DecimalColumnWriter(format, delimiter, workers, 7, 3, 48)
+               };
+               for (final DecimalColumnWriter writer : writers)
+               {
+                  final StringJoiner expectedDoubles = new StringJoiner(delimiter);
+                  final StringJoiner expectedFloats = new StringJoiner(delimiter);
+                  final StringJoiner expectedBigDecimals = new StringJoiner(delimiter);
+                  for (int index = 0; index < count; index++)
+                  {
+                     expectedDoubles.add(format.fromDouble(doubles[index]));
+                     expectedFloats.add(format.fromFloat(floats[index]));
+                     expectedBigDecimals.add(format.fromBigDecimal(bigDecimals[index]));
+                  }
+                  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+                  {
+                     writer.write(doubles, channel);
+                  }
+                  mismatches += verifyColumn(file, expectedDoubles.toString(), format + " doubles");
+                  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+                  {
+                     writer.write(floats, channel);
+                  }
+                  mismatches += verifyColumn(file, expectedFloats.toString(), format + " floats");
+                  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+                  {
+                     writer.write(bigDecimals, channel);
+                  }
+                  mismatches += verifyColumn(file, expectedBigDecimals.toString(), format + " BigDecimals");
+               }
+            }
+         }
+      }
+      finally
+      {
+         workers.shutdown();
+         Files.delete(file);
+      }
+      return mismatches;
+   }
+
+   /**
+    * @param file File written by a {@link DecimalColumnWriter}.
+    * @param expected Expected contents of the file.
+    * @param label Description of the column for the error message.
+    * @return 1 if the file does not hold the expected contents, else 0.
+    * @throws IOException Thrown if the file cannot be read.
+    */
+   private static int verifyColumn(final Path file, final String expected, final String label) throws IOException
+   {
+      final String actual = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      if (actual.equals(expected))
+      {
+         return 0;
+      }
+      int index = 0;
+      while (index < Math.min(actual.length(), expected.length()) && actual.charAt(index) == expected.charAt(index))
+      {
+         index++;
+      }
+      out.println("ERROR: " + label + " differ from character " + index + " of " + expected.length() + ".");
+      return 1;
+   }
+
+   /**
+    * Write a column of generated metric-like doubles, one per line, to the
+    * provided file, first with a new {@code NumberFormat} per value
+    * through a {@link BufferedWriter} (as {@link Format#NO_EXPONENT} once
+    * rendered values) and then in {@link Format#CSV_BULK} with a
+    * {@link DecimalColumnWriter}, and report how long each took.
+    *
+    * @param file File to be written.
+    * @param rows Number of values in the column.
+    * @throws IOException Thrown if the file cannot be written.
+    */
+   private static void exportColumn(final Path file, final int rows) throws IOException
+   {
+      final Random random = new Random(42);
+      final double[] column = new double[rows];
+      for (int row = 0; row < rows; row++)
+      {
+         column[row] = (row & 1) == 0 ? random.nextDouble() * 10_000 : random.nextInt(1_000_000) / 100.0;
+      }
+
+      final long perValueStart = System.nanoTime();
+      try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+      {
+         for (final double value : column)
+         {
+            writer.write(Format.getFormatter().format(value));
+            writer.write('\n');
+         }
+      }
+      final long perValueNanos = System.nanoTime() - perValueStart;
+      out.println("NumberFormat per value:  " + rows + " rows, " + Files.size(file) + " bytes in "
+         + perValueNanos / 1_000_000 + " ms");
+
+      final ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+         StandardOpenOption.TRUNCATE_EXISTING))
+      {
+         final DecimalColumnWriter columnWriter = new DecimalColumnWriter(Format.CSV_BULK, "\n", workers);
+         final long bulkStart = System.nanoTime();
+         final long bytes = columnWriter.write(column, channel);
+         final long bulkNanos = System.nanoTime() - bulkStart;
+         out.println("DecimalColumnWriter:     " + rows + " rows, " + bytes + " bytes in "
+            + bulkNanos / 1_000_000 + " ms");
+      }
+      finally
+      {
+         workers.shutdown();
+      }
+   }
+
+   /**
+    * Main executable that verifies the decimal writers or times
+    * exporting a column.
+    *
+    * @param arguments Command-line arguments: none or an optional count
+    *    of random values per locale (default 100,000) to verify that
+    *    {@link PlainDecimalWriter} writes values exactly as
+    *    {@code NumberFormat} and {@link BigDecimal#toPlainString()} do,
+    *    that {@link Decimal64} computes as {@link BigDecimal} does, and
+    *    that {@link DecimalColumnWriter} writes columns as they would; or
+    *    "csv", a file, and an optional number of rows (default
+    *    10,000,000) to time exporting a column to that file.
+    * @throws IOException Thrown if a file cannot be written.
+    */
+   public static void main(final String[] arguments) throws IOException
+   {
+      if (arguments.length > 1 && "csv".equals(arguments[0]))
+      {
+         exportColumn(Paths.get(arguments[1]), arguments.length > 2 ? Integer.parseInt(arguments[2]) : 10_000_000);
+         return;
+      }
+      final int count = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 100_000;
+      final Locale[] locales =
+      {
+         Locale.getDefault(Locale.Category.FORMAT), Locale.US, Locale.GERMANY, Locale.FRANCE,
+         Locale.forLanguageTag("sv-SE"), Locale.forLanguageTag("ar-EG"), Locale.forLanguageTag("hi-IN"),
+         Locale.forLanguageTag("fa-IR")
+      };
+      final long mismatches = verifyPlainDecimalWriter(count, locales);
+      out.println("Verified " + count + " random values of each type in each of " + locales.length
+         + " locales: " + mismatches + " mismatches.");
+      out.println("Verified " + count + " random Decimal64 operations of each kind: "
+         + verifyDecimal64(count) + " mismatches.");
+      final int columnCount = Math.min(count, 20_000);
+      final long columnMismatches = verifyDecimalColumnWriter(columnCount);
+      out.println("Verified columns of " + columnCount + " values in each format: "
+         + columnMismatches + " mismatches.");
+   }
+}
@@ -0,0 +1,1235 @@
+package dustin.examples.decimals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Writes floats, doubles, BigDecimals, and {@link Decimal64}s in plain
+ * notation (never in scientific notation) into caller-provided
+ * {@code StringBuilder}s, {@code Appendable}s, or {@code byte[]}s
+ * without creating a {@code NumberFormat}, a {@code String}, or any
+ * other object per value.
+ *
+ * Floats and doubles are written exactly as a {@code NumberFormat} of the
+ * writer's locale with grouping off and the maximum number of fraction
+ * digits writes them (as {@link DecimalsStringFormattingDemo.Format#NO_EXPONENT}
+ * does). Such a format does not write the shortest digits that round
+ * trip, as {@link Double#toString(double)} does on recent JDKs, but the
+ * digits of the JDK's original {@code FloatingDecimal} algorithm, which
+ * differ for some values (for example, integral doubles beyond 2^52).
+ * This writer therefore generates digits with the same algorithm: in
+ * {@code int} or {@code long} arithmetic where that algorithm does, and
+ * otherwise in exact multiword arithmetic on preallocated arrays. Floats
+ * are widened to doubles first, as {@code NumberFormat.format} widens
+ * them. Locale-specific symbols (zero digit, decimal separator, signs,
+ * NaN, and infinity) are taken from the locale's {@link DecimalFormat};
+ * if the locale provides a format other than a plain decimal pattern,
+ * values are written by that format instead.
+ *
+ * BigDecimals are written exactly as {@link BigDecimal#toPlainString()}
+ * writes them. Unscaled values of up to 18 digits are written from a
+ * {@code long}; larger ones are converted from their binary magnitude
+ * in preallocated arrays rather than through {@link BigInteger#toString()}.
+ * Decimal64s are written as the equal BigDecimals are.
+ *
+ * Instances hold reusable buffers and are not thread-safe; use one per
+ * thread.
+ */
+public final class PlainDecimalWriter
+{
+   private static final int EXP_SHIFT = 52;
+   private static final long FRACT_HOB = 1L << EXP_SHIFT;
+   private static final long EXP_ONE = 1023L << EXP_SHIFT;
+   private static final long SIGNIF_BIT_MASK = FRACT_HOB - 1;
+   private static final long EXP_BIT_MASK = 0x7FFL << EXP_SHIFT;
+   private static final long SIGN_BIT_MASK = 1L << 63;
+   private static final int EXP_BIAS = 1023;
+   private static final int MAX_SMALL_BIN_EXP = 62;
+   private static final int MIN_SMALL_BIN_EXP = -(63 / 3);
+
+   /** Largest number of integer or fraction digits a double format writes. */
+   private static final int DOUBLE_INTEGER_DIGITS = 309;
+   private static final int DOUBLE_FRACTION_DIGITS = 340;
+
+   private static final long LONG_MASK = 0xFFFFFFFFL;
+
+   /** 5^0 through 5^13, the powers of five that fit in an {@code int}. */
+   private static final int[] SMALL_5_POW = new int[14];
+
+   /** 5^0 through 5^26, the powers of five that fit in a {@code long}. */
+   private static final long[] LONG_5_POW = new long[27];
+
+   /** Approximately ceil(log2(5^i)). */
+   private static final int[] N_5_BITS =
+   {
+      0, 3, 5, 7, 10, 12, 14, 17, 19, 21, 24, 26, 28, 31, 33, 35, 38, 40, 42, 45, 47, 49, 52, 54, 56, 59, 61
+   };
+
+   /** Number of decimal digits in 2^i, less one, for 0 &lt;= i &lt; 64. */
+   private static final int[] INSIGNIFICANT_DIGITS_FOR_POW2 =
+   {
+      0, 0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 5, 5, 5, 6, 6, 6, 6, 7, 7, 7,
+      8, 8, 8, 9, 9, 9, 9, 10, 10, 10, 11, 11, 11, 12, 12, 12, 12, 13, 13, 13, 14, 14, 14,
+      15, 15, 15, 15, 16, 16, 16, 17, 17, 17, 18, 18, 18, 19
+   };
+
+   static
+   {
+      SMALL_5_POW[0] = 1;
+      for (int power = 1; power < SMALL_5_POW.length; power++)
+      {
+         SMALL_5_POW[power] = SMALL_5_POW[power - 1] * 5;
+      }
+      LONG_5_POW[0] = 1L;
+      for (int power = 1; power < LONG_5_POW.length; power++)
+      {
+         LONG_5_POW[power] = LONG_5_POW[power - 1] * 5;
+      }
+   }
+
+   private final Locale locale;
+
+   /** Format writing values this writer cannot, or {@code null} if there are none. */
+   private final NumberFormat fallbackFormat;
+
+   private final char zeroDigit;
+   private final char decimalSeparator;
+   private final String positivePrefix;
+   private final String positiveSuffix;
+   private final String negativePrefix;
+   private final String negativeSuffix;
+   private final String notANumber;
+   private final String infinity;
+
+   /** Characters of the value being written; grows only for very long BigDecimals. */
+   private char[] characters = new char[512];
+
+   /** Decimal digits ('0' to '9') generated for a double. */
+   private final char[] digits = new char[20];
+   private int firstDigitIndex;
+   private int digitCount;
+   private int decimalExponent;
+
+   private final Natural b = new Natural();
+   private final Natural s = new Natural();
+   private final Natural m = new Natural();
+   private final Natural tenS = new Natural();
+   private final Natural sum = new Natural();
+
+   /** Magnitude of a large BigDecimal's unscaled value, in base 10^9 chunks. */
+   private int[] magnitude = new int[8];
+   private int[] chunks = new int[8];
+
+   /**
+    * Instantiates a writer using the symbols of the default
+    * {@link Locale.Category#FORMAT} locale, as
+    * {@link NumberFormat#getInstance()} does.
+    */
+   public PlainDecimalWriter()
+   {
+      this(Locale.getDefault(Locale.Category.FORMAT));
+   }
+
+   /**
+    * @param newLocale Locale whose number format symbols are written.
+    */
+   public PlainDecimalWriter(final Locale newLocale)
+   {
+      locale = newLocale;
+      final NumberFormat numberFormat = NumberFormat.getInstance(newLocale);
+      final DecimalFormat decimalFormat = numberFormat instanceof DecimalFormat ? (DecimalFormat) numberFormat : null;
+      // Read the pattern before allowing maximum fraction digits, which
+      // toPattern would write out one by one.
+      final boolean exponential = decimalFormat != null && decimalFormat.toPattern().indexOf('E') >= 0;
+      numberFormat.setMaximumFractionDigits(Integer.MAX_VALUE);
+      numberFormat.setGroupingUsed(false);
+      if (decimalFormat != null && !exponential && isPlainDecimalFormat(decimalFormat))
+      {
+         final DecimalFormatSymbols symbols = decimalFormat.getDecimalFormatSymbols();
+         fallbackFormat = null;
+         zeroDigit = symbols.getZeroDigit();
+         decimalSeparator = symbols.getDecimalSeparator();
+         positivePrefix = decimalFormat.getPositivePrefix();
+         positiveSuffix = decimalFormat.getPositiveSuffix();
+         negativePrefix = decimalFormat.getNegativePrefix();
+         negativeSuffix = decimalFormat.getNegativeSuffix();
+         notANumber = symbols.getNaN();
+         infinity = symbols.getInfinity();
+      }
+      else
+      {
+         fallbackFormat = numberFormat;
+         zeroDigit = '0';
+         decimalSeparator = '.';
+         positivePrefix = positiveSuffix = negativePrefix = negativeSuffix = notANumber = infinity = "";
+      }
+   }
+
+   /**
+    * A format is written by this writer only if, apart from its symbols,
+    * it writes exactly the integer and fraction digits of a value: one or
+    * more integer digits, no minimum fraction digits, and no multiplier.
+    */
+   private static boolean isPlainDecimalFormat(final DecimalFormat decimalFormat)
+   {
+      return decimalFormat.getMultiplier() == 1
+         && decimalFormat.getMinimumIntegerDigits() == 1
+         && decimalFormat.getMaximumIntegerDigits() >= DOUBLE_INTEGER_DIGITS
+         && decimalFormat.getMinimumFractionDigits() == 0
+         && decimalFormat.getMaximumFractionDigits() >= DOUBLE_FRACTION_DIGITS
+         && !decimalFormat.isDecimalSeparatorAlwaysShown();
+   }
+
+   /**
+    * @return Locale whose number format symbols this writer writes.
+    */
+   public Locale getLocale()
+   {
+      return locale;
+   }
+
+   /**
+    * Appends the provided double in plain notation.
+    *
+    * @param value Value to be written.
+    * @param destination Builder to which the value is appended.
+    * @return The provided builder.
+    */
+   public StringBuilder append(final double value, final StringBuilder destination)
+   {
+      final int length = format(value);
+      return destination.append(characters, 0, length);
+   }
+
+   /**
+    * Appends the provided BigDecimal in plain notation.
+    *
+    * @param value Value to be written.
+    * @param destination Builder to which the value is appended.
+    * @return The provided builder.
+    */
+   public StringBuilder append(final BigDecimal value, final StringBuilder destination)
+   {
+      final int length = format(value);
+      return destination.append(characters, 0, length);
+   }
+
+   /**
+    * Appends the provided Decimal64 in plain notation, as
+    * {@link BigDecimal#toPlainString()} writes the equal BigDecimal.
+    *
+    * @param value Value to be written.
+    * @param destination Builder to which the value is appended.
+    * @return The provided builder.
+    */
+   public StringBuilder append(final Decimal64 value, final StringBuilder destination)
+   {
+      final int length = format(value);
+      return destination.append(characters, 0, length);
+   }
+
+   /**
+    * Appends the provided double in plain notation.
+    *
+    * @param value Value to be written.
+    * @param destination Destination to which the value is appended.
+    * @return The provided destination.
+    * @throws IOException Thrown if the destination cannot be appended to.
+    */
+   public Appendable append(final double value, final Appendable destination) throws IOException
+   {
+      return appendCharacters(format(value), destination);
+   }
+
+   /**
+    * Appends the provided BigDecimal in plain notation.
+    *
+    * @param value Value to be written.
+    * @param destination Destination to which the value is appended.
+    * @return The provided destination.
+    * @throws IOException Thrown if the destination cannot be appended to.
+    */
+   public Appendable append(final BigDecimal value, final Appendable destination) throws IOException
+   {
+      return appendCharacters(format(value), destination);
+   }
+
+   private Appendable appendCharacters(final int length, final Appendable destination) throws IOException
+   {
+      for (int index = 0; index < length; index++)
+      {
+         destination.append(characters[index]);
+      }
+      return destination;
+   }
+
+   /**
+    * Writes the provided double in plain notation as UTF-8 bytes.
+    *
+    * @param value Value to be written.
+    * @param destination Array receiving the bytes.
+    * @param offset Index in the array of the first byte.
+    * @return Index in the array following the last byte written.
+    * @throws IllegalArgumentException Thrown if the bytes do not fit in
+    *    the array; nothing is written in that case.
+    */
+   public int write(final double value, final byte[] destination, final int offset)
+   {
+      return encode(format(value), destination, offset);
+   }
+
+   /**
+    * Writes the provided BigDecimal in plain notation as UTF-8 bytes.
+    *
+    * @param value Value to be written.
+    * @param destination Array receiving the bytes.
+    * @param offset Index in the array of the first byte.
+    * @return Index in the array following the last byte written.
+    * @throws IllegalArgumentException Thrown if the bytes do not fit in
+    *    the array; nothing is written in that case.
+    */
+   public int write(final BigDecimal value, final byte[] destination, final int offset)
+   {
+      return encode(format(value), destination, offset);
+   }
+
+   /**
+    * Writes the provided Decimal64 in plain notation as UTF-8 bytes.
+    *
+    * @param value Value to be written.
+    * @param destination Array receiving the bytes.
+    * @param offset Index in the array of the first byte.
+    * @return Index in the array following the last byte written.
+    * @throws IllegalArgumentException Thrown if the bytes do not fit in
+    *    the array; nothing is written in that case.
+    */
+   public int write(final Decimal64 value, final byte[] destination, final int offset)
+   {
+      return encode(format(value), destination, offset);
+   }
+
+   /**
+    * Provides the provided double in plain notation.
+    *
+    * @param value Value to be written.
+    * @return Value in plain notation.
+    */
+   public String toString(final double value)
+   {
+      final int length = format(value);
+      return new String(characters, 0, length);
+   }
+
+   /**
+    * Provides the provided BigDecimal in plain notation.
+    *
+    * @param value Value to be written.
+    * @return Value in plain notation.
+    */
+   public String toString(final BigDecimal value)
+   {
+      final int length = format(value);
+      return new String(characters, 0, length);
+   }
+
+   /**
+    * Provides the provided Decimal64 in plain notation.
+    *
+    * @param value Value to be written.
+    * @return Value in plain notation.
+    */
+   public String toString(final Decimal64 value)
+   {
+      final int length = format(value);
+      return new String(characters, 0, length);
+   }
+
+   /**
+    * Encodes the first characters of the character buffer as UTF-8 into
+    * the provided array.
+    */
+   private int encode(final int length, final byte[] destination, final int offset)
+   {
+      int byteCount = 0;
+      for (int index = 0; index < length; index++)
+      {
+         final char character = characters[index];
+         byteCount += character < 0x80 ? 1 : character < 0x800 ? 2 : Character.isSurrogate(character) ? 2 : 3;
+      }
+      if (offset < 0 || offset > destination.length - byteCount)
+      {
+         throw new IllegalArgumentException("Array of length " + destination.length + " cannot hold "
+            + byteCount + " bytes at offset " + offset + ".");
+      }
+      int position = offset;
+      for (int index = 0; index < length; index++)
+      {
+         final char character = characters[index];
+         if (character < 0x80)
+         {
+            destination[position++] = (byte) character;
+         }
+         else if (character < 0x800)
+         {
+            destination[position++] = (byte) (0xC0 | (character >> 6));
+            destination[position++] = (byte) (0x80 | (character & 0x3F));
+         }
+         else if (Character.isHighSurrogate(character) && index + 1 < length
+            && Character.isLowSurrogate(characters[index + 1]))
+         {
+            final int codePoint = Character.toCodePoint(character, characters[++index]);
+            destination[position++] = (byte) (0xF0 | (codePoint >> 18));
+            destination[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            destination[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            destination[position++] = (byte) (0x80 | (codePoint & 0x3F));
+         }
+         else if (Character.isSurrogate(character))
+         {
+            // Unpaired surrogates are encoded as '?' by String.getBytes; the
+            // two bytes counted for them leave room for this one.
+            destination[position++] = '?';
+         }
+         else
+         {
+            destination[position++] = (byte) (0xE0 | (character >> 12));
+            destination[position++] = (byte) (0x80 | ((character >> 6) & 0x3F));
+            destination[position++] = (byte) (0x80 | (character & 0x3F));
+         }
+      }
+      return position;
+   }
+
+   /**
+    * Writes the provided double into the character buffer.
+    *
+    * @return Number of characters written.
+    */
+   private int format(final double value)
+   {
+      if (fallbackFormat != null)
+      {
+         return copy(fallbackFormat.format(value));
+      }
+      if (Double.isNaN(value))
+      {
+         return copy(notANumber);
+      }
+      final long bits = Double.doubleToRawLongBits(value);
+      final boolean negative = (bits & SIGN_BIT_MASK) != 0;
+      int length = copy(negative ? negativePrefix : positivePrefix, 0);
+      if (Double.isInfinite(value))
+      {
+         length = copy(infinity, length);
+      }
+      else if (value == 0.0d)
+      {
+         characters[length++] = zeroDigit;
+      }
+      else
+      {
+         generateDigits(bits);
+         length = writeDigits(length);
+      }
+      return copy(negative ? negativeSuffix : positiveSuffix, length);
+   }
+
+   /**
+    * Writes the generated digits, less trailing zeros, with the decimal
+    * separator placed by the decimal exponent.
+    */
+   private int writeDigits(int length)
+   {
+      int end = firstDigitIndex + digitCount;
+      while (end - firstDigitIndex > 1 && digits[end - 1] == '0')
+      {
+         end--;
+      }
+      final int count = end - firstDigitIndex;
+      final int zeroOffset = zeroDigit - '0';
+      if (decimalExponent > 0)
+      {
+         final int integerDigits = Math.min(count, decimalExponent);
+         for (int index = 0; index < integerDigits; index++)
+         {
+            characters[length++] = (char) (digits[firstDigitIndex + index] + zeroOffset);
+         }
+         for (int index = integerDigits; index < decimalExponent; index++)
+         {
+            characters[length++] = zeroDigit;
+         }
+         if (count > decimalExponent)
+         {
+            characters[length++] = decimalSeparator;
+            for (int index = decimalExponent; index < count; index++)
+            {
+               characters[length++] = (char) (digits[firstDigitIndex + index] + zeroOffset);
+            }
+         }
+      }
+      else
+      {
+         characters[length++] = zeroDigit;
+         characters[length++] = decimalSeparator;
+         for (int index = decimalExponent; index < 0; index++)
+         {
+            characters[length++] = zeroDigit;
+         }
+         for (int index = 0; index < count; index++)
+         {
+            characters[length++] = (char) (digits[firstDigitIndex + index] + zeroOffset);
+         }
+      }
+      return length;
+   }
+
+   /**
+    * Generates the decimal digits and decimal exponent of the provided
+    * positive or negative, finite, nonzero double exactly as the JDK's
+    * {@code FloatingDecimal} does for {@code NumberFormat}.
+    */
+   private void generateDigits(final long bits)
+   {
+      long fractBits = bits & SIGNIF_BIT_MASK;
+      int binExp = (int) ((bits & EXP_BIT_MASK) >> EXP_SHIFT);
+      final int nSignificantBits;
+      if (binExp == 0)
+      {
+         // Subnormal: normalize so the high-order bit is at FRACT_HOB.
+         final int leadingZeros = Long.numberOfLeadingZeros(fractBits);
+         final int shift = leadingZeros - (63 - EXP_SHIFT);
+         fractBits <<= shift;
+         binExp = 1 - shift;
+         nSignificantBits = 64 - leadingZeros;
+      }
+      else
+      {
+         fractBits |= FRACT_HOB;
+         nSignificantBits = EXP_SHIFT + 1;
+      }
+      dtoa(binExp - EXP_BIAS, fractBits, nSignificantBits);
+   }
+
+   /**
+    * Generates digits of {@code fractBits * 2^(binExp - 52)}, stopping as
+    * soon as the digits are within half a unit in the last place of the
+    * value and rounding the last digit, as {@code FloatingDecimal} does.
+    */
+   private void dtoa(final int binExp, long fractBits, final int nSignificantBits)
+   {
+      final int tailZeros = Long.numberOfTrailingZeros(fractBits);
+      final int nFractBits = EXP_SHIFT + 1 - tailZeros;
+      final int nTinyBits = Math.max(0, nFractBits - binExp - 1);
+      if (binExp <= MAX_SMALL_BIN_EXP && binExp >= MIN_SMALL_BIN_EXP && nTinyBits == 0)
+      {
+         // An integer fitting in a long.
+         final int insignificant = binExp > nSignificantBits
+            ? insignificantDigitsForPow2(binExp - nSignificantBits - 1) : 0;
+         if (binExp >= EXP_SHIFT)
+         {
+            fractBits <<= (binExp - EXP_SHIFT);
+         }
+         else
+         {
+            fractBits >>>= (EXP_SHIFT - binExp);
+         }
+         developLongDigits(fractBits, insignificant);
+         return;
+      }
+
+      // Compute B, S, and M such that the value is B / S * 10^decExp with
+      // 1 <= B / S < 10 and M is half a unit in the last place, scaled as B.
+      int decExp = estimateDecExp(fractBits, binExp);
+      final int b5 = Math.max(0, -decExp);
+      int b2 = b5 + nTinyBits + binExp;
+      final int s5 = Math.max(0, decExp);
+      int s2 = s5 + nTinyBits;
+      final int m5 = b5;
+      int m2 = b2 - nSignificantBits;
+
+      fractBits >>>= tailZeros;
+      b2 -= nFractBits - 1;
+      final int common2Factor = Math.min(b2, s2);
+      b2 -= common2Factor;
+      s2 -= common2Factor;
+      m2 -= common2Factor;
+      if (nFractBits == 1)
+      {
+         // The next smaller value of a power of two is only half as far away.
+         m2 -= 1;
+      }
+      if (m2 < 0)
+      {
+         b2 -= m2;
+         s2 -= m2;
+         m2 = 0;
+      }
+
+      int ndigit = 0;
+      boolean low;
+      boolean high;
+      long lowDigitDifference;
+      int q;
+      final int bBits = nFractBits + b2 + (b5 < N_5_BITS.length ? N_5_BITS[b5] : b5 * 3);
+      final int tenSBits = s2 + 1 + (s5 + 1 < N_5_BITS.length ? N_5_BITS[s5 + 1] : (s5 + 1) * 3);
+      if (bBits < 64 && tenSBits < 64)
+      {
+         if (bBits < 32 && tenSBits < 32)
+         {
+            // All fit in an int; the arithmetic, overflow included, is FloatingDecimal's.
+            int bi = ((int) fractBits * SMALL_5_POW[b5]) << b2;
+            final int si = SMALL_5_POW[s5] << s2;
+            int mi = SMALL_5_POW[m5] << m2;
+            final int tensi = si * 10;
+            q = bi / si;
+            bi = 10 * (bi % si);
+            mi *= 10;
+            low = bi < mi;
+            high = bi + mi > tensi;
+            if (q == 0 && !high)
+            {
+               decExp--;
+            }
+            else
+            {
+               digits[ndigit++] = (char) ('0' + q);
+            }
+            if (decExp < -3 || decExp >= 8)
+            {
+               high = low = false;
+            }
+            while (!low && !high)
+            {
+               q = bi / si;
+               bi = 10 * (bi % si);
+               mi *= 10;
+               if (mi > 0L)
+               {
+                  low = bi < mi;
+                  high = bi + mi > tensi;
+               }
+               else
+               {
+                  low = true;
+                  high = true;
+               }
+               digits[ndigit++] = (char) ('0' + q);
+            }
+            lowDigitDifference = (bi << 1) - tensi;
+         }
+         else
+         {
+            // All fit in a long.
+            long bl = (fractBits * LONG_5_POW[b5]) << b2;
+            final long sl = LONG_5_POW[s5] << s2;
+            long ml = LONG_5_POW[m5] << m2;
+            final long tensl = sl * 10L;
+            q = (int) (bl / sl);
+            bl = 10L * (bl % sl);
+            ml *= 10L;
+            low = bl < ml;
+            high = bl + ml > tensl;
+            if (q == 0 && !high)
+            {
+               decExp--;
+            }
+            else
+            {
+               digits[ndigit++] = (char) ('0' + q);
+            }
+            if (decExp < -3 || decExp >= 8)
+            {
+               high = low = false;
+            }
+            while (!low && !high)
+            {
+               q = (int) (bl / sl);
+               bl = 10 * (bl % sl);
+               ml *= 10;
+               if (ml > 0L)
+               {
+                  low = bl < ml;
+                  high = bl + ml > tensl;
+               }
+               else
+               {
+                  low = true;
+                  high = true;
+               }
+               digits[ndigit++] = (char) ('0' + q);
+            }
+            lowDigitDifference = (bl << 1) - tensl;
+         }
+      }
+      else
+      {
+         // Multiword arithmetic; M and 10 * S start at ten times their
+         // values since B is multiplied by ten with each digit.
+         s.setMulPow52(1L, s5, s2);
+         b.setMulPow52(fractBits, b5, b2);
+         m.setMulPow52(1L, m5 + 1, m2 + 1);
+         tenS.setMulPow52(1L, s5 + 1, s2 + 1);
+         q = b.quotientRemainderTimesTen(s);
+         low = b.compareTo(m) < 0;
+         high = tenS.compareTo(sum.setSum(b, m)) <= 0;
+         if (q == 0 && !high)
+         {
+            decExp--;
+         }
+         else
+         {
+            digits[ndigit++] = (char) ('0' + q);
+         }
+         if (decExp < -3 || decExp >= 8)
+         {
+            high = low = false;
+         }
+         while (!low && !high)
+         {
+            q = b.quotientRemainderTimesTen(s);
+            m.multiply(10);
+            low = b.compareTo(m) < 0;
+            high = tenS.compareTo(sum.setSum(b, m)) <= 0;
+            digits[ndigit++] = (char) ('0' + q);
+         }
+         if (high && low)
+         {
+            b.shiftLeft(1);
+            lowDigitDifference = b.compareTo(tenS);
+         }
+         else
+         {
+            lowDigitDifference = 0L;
+         }
+      }
+      decimalExponent = decExp + 1;
+      firstDigitIndex = 0;
+      digitCount = ndigit;
+      if (high)
+      {
+         if (low)
+         {
+            if (lowDigitDifference == 0L)
+            {
+               // A tie: round to even.
+               if ((digits[ndigit - 1] & 1) != 0)
+               {
+                  roundUp();
+               }
+            }
+            else if (lowDigitDifference > 0)
+            {
+               roundUp();
+            }
+         }
+         else
+         {
+            roundUp();
+         }
+      }
+   }
+
+   /**
+    * Generates the digits of a positive long, first rounding away the
+    * provided number of insignificant low-order digits.
+    */
+   private void developLongDigits(long value, final int insignificantDigits)
+   {
+      int decExponent = 0;
+      if (insignificantDigits != 0)
+      {
+         final long pow10 = LONG_5_POW[insignificantDigits] << insignificantDigits;
+         final long residue = value % pow10;
+         value /= pow10;
+         decExponent += insignificantDigits;
+         if (residue >= (pow10 >> 1))
+         {
+            value++;
+         }
+      }
+      int digitno = digits.length - 1;
+      int c = (int) (value % 10L);
+      value /= 10L;
+      while (c == 0)
+      {
+         decExponent++;
+         c = (int) (value % 10L);
+         value /= 10L;
+      }
+      while (value != 0L)
+      {
+         digits[digitno--] = (char) (c + '0');
+         decExponent++;
+         c = (int) (value % 10L);
+         value /= 10L;
+      }
+      digits[digitno] = (char) (c + '0');
+      decimalExponent = decExponent + 1;
+      firstDigitIndex = digitno;
+      digitCount = digits.length - digitno;
+   }
+
+   /** Adds one to the last generated digit, carrying as needed. */
+   private void roundUp()
+   {
+      int index = firstDigitIndex + digitCount - 1;
+      char digit = digits[index];
+      if (digit == '9')
+      {
+         while (digit == '9' && index > firstDigitIndex)
+         {
+            digits[index] = '0';
+            digit = digits[--index];
+         }
+         if (digit == '9')
+         {
+            decimalExponent += 1;
+            digits[firstDigitIndex] = '1';
+            return;
+         }
+      }
+      digits[index] = (char) (digit + 1);
+   }
+
+   /**
+    * Estimates floor(log10(value)) from a linear approximation of log10 of
+    * the significand, exactly as {@code FloatingDecimal} does.
+    */
+   private static int estimateDecExp(final long fractBits, final int binExp)
+   {
+      final double d2 = Double.longBitsToDouble(EXP_ONE | (fractBits & SIGNIF_BIT_MASK));
+      final double d = (d2 - 1.5D) * 0.289529654D + 0.176091259 + (double) binExp * 0.301029995663981;
+      final long dBits = Double.doubleToRawLongBits(d);
+      final int exponent = (int) ((dBits & EXP_BIT_MASK) >> EXP_SHIFT) - EXP_BIAS;
+      final boolean isNegative = (dBits & SIGN_BIT_MASK) != 0;
+      if (exponent >= 0 && exponent < 52)
+      {
+         final long mask = SIGNIF_BIT_MASK >> exponent;
+         final int r = (int) (((dBits & SIGNIF_BIT_MASK) | FRACT_HOB) >> (EXP_SHIFT - exponent));
+         return isNegative ? (((mask & dBits) == 0L) ? -r : -r - 1) : r;
+      }
+      else if (exponent < 0)
+      {
+         return ((dBits & ~SIGN_BIT_MASK) == 0) ? 0 : (isNegative ? -1 : 0);
+      }
+      else
+      {
+         return (int) d;
+      }
+   }
+
+   private static int insignificantDigitsForPow2(final int p2)
+   {
+      return p2 > 1 && p2 < INSIGNIFICANT_DIGITS_FOR_POW2.length ? INSIGNIFICANT_DIGITS_FOR_POW2[p2] : 0;
+   }
+
+   /**
+    * Writes the provided BigDecimal into the character buffer exactly as
+    * {@link BigDecimal#toPlainString()} writes it.
+    *
+    * @return Number of characters written.
+    */
+   private int format(final BigDecimal value)
+   {
+      final int scale = value.scale();
+      final int signum = value.signum();
+      if ((scale < 0 && signum == 0) || scale == Integer.MIN_VALUE)
+      {
+         // "0", or the ArithmeticException toPlainString throws.
+         return copy(value.toPlainString());
+      }
+      return format(signum, value.precision(), scale, value, 0L);
+   }
+
+   /**
+    * Writes the provided Decimal64 into the character buffer exactly as
+    * {@link BigDecimal#toPlainString()} writes the equal BigDecimal.
+    *
+    * @return Number of characters written.
+    */
+   private int format(final Decimal64 value)
+   {
+      final int scale = value.scale();
+      if (!value.isCompact() || value.unscaledValue() == Long.MIN_VALUE
+         || (scale < 0 && value.signum() == 0) || scale == Integer.MIN_VALUE)
+      {
+         return format(value.toBigDecimal());
+      }
+      final long magnitude = Math.abs(value.unscaledValue());
+      int precision = 1;
+      for (long remaining = magnitude / 10; remaining != 0; remaining /= 10)
+      {
+         precision++;
+      }
+      return format(value.signum(), precision, scale, null, magnitude);
+   }
+
+   /**
+    * Writes a number in plain notation into the character buffer.
+    *
+    * @param signum Sign of the number.
+    * @param precision Number of digits in the unscaled value.
+    * @param scale Scale of the number; not {@code Integer.MIN_VALUE}.
+    * @param value Number if its magnitude is not provided as a {@code long}.
+    * @param longMagnitude Magnitude of the unscaled value if no BigDecimal
+    *    is provided.
+    * @return Number of characters written.
+    */
+   private int format(final int signum, final int precision, final int scale, final BigDecimal value,
+      final long longMagnitude)
+   {
+      final int trailingZeros = scale < 0 ? -scale : 0;
+      final int insertionPoint = precision - scale;
+      final int length = (signum < 0 ? 1 : 0)
+         + (scale <= 0 ? precision + trailingZeros
+            : insertionPoint > 0 ? precision + 1 : 2 - insertionPoint + precision);
+      ensureCapacity(length);
+      int position = 0;
+      if (signum < 0)
+      {
+         characters[position++] = '-';
+      }
+      if (scale <= 0)
+      {
+         position = writeUnscaled(value, longMagnitude, precision, position);
+         for (int index = 0; index < trailingZeros; index++)
+         {
+            characters[position++] = '0';
+         }
+      }
+      else if (insertionPoint > 0)
+      {
+         // Write the digits one place to the right, then move the integer
+         // digits back to open a place for the point.
+         writeUnscaled(value, longMagnitude, precision, position + 1);
+         System.arraycopy(characters, position + 1, characters, position, insertionPoint);
+         characters[position + insertionPoint] = '.';
+      }
+      else
+      {
+         characters[position++] = '0';
+         characters[position++] = '.';
+         for (int index = insertionPoint; index < 0; index++)
+         {
+            characters[position++] = '0';
+         }
+         writeUnscaled(value, longMagnitude, precision, position);
+      }
+      return length;
+   }
+
+   /**
+    * Writes the digits of the absolute value of the provided BigDecimal's
+    * unscaled value, or of the provided magnitude if there is no
+    * BigDecimal, at the provided position of the character buffer.
+    *
+    * @return Position following the last digit.
+    */
+   private int writeUnscaled(final BigDecimal value, final long longMagnitude, final int precision,
+      final int position)
+   {
+      if (value == null)
+      {
+         return writeLong(longMagnitude, precision, position);
+      }
+      if (precision <= 18)
+      {
+         return writeLong(Math.abs(value.unscaledValue().longValue()), precision, position);
+      }
+      // Read the magnitude's 32-bit words, least significant first; bits
+      // are read one at a time because BigInteger offers no allocation-free
+      // way to read more than its lowest 64.
+      final BigInteger unscaled = value.unscaledValue();
+      final int wordCount = (unscaled.bitLength() >>> 5) + 1;
+      if (magnitude.length < wordCount)
+      {
+         magnitude = new int[wordCount];
+         chunks = new int[wordCount * 32 / 29 + 1];
+      }
+      for (int word = 0; word < wordCount; word++)
+      {
+         int bits = 0;
+         final int base = word << 5;
+         for (int bit = 31; bit >= 0; bit--)
+         {
+            bits = (bits << 1) | (unscaled.testBit(base + bit) ? 1 : 0);
+         }
+         magnitude[word] = bits;
+      }
+      if (unscaled.signum() < 0)
+      {
+         // testBit reads two's complement; negate to the magnitude.
+         long carry = 1;
+         for (int word = 0; word < wordCount; word++)
+         {
+            final long negated = (~magnitude[word] & LONG_MASK) + carry;
+            magnitude[word] = (int) negated;
+            carry = negated >>> 32;
+         }
+      }
+      // Divide by 10^9 until nothing is left, collecting the remainders.
+      int size = wordCount;
+      int chunkCount = 0;
+      while (size > 0)
+      {
+         long remainder = 0;
+         for (int word = size - 1; word >= 0; word--)
+         {
+            final long dividend = (remainder << 32) | (magnitude[word] & LONG_MASK);
+            magnitude[word] = (int) (dividend / 1_000_000_000L);
+            remainder = dividend % 1_000_000_000L;
+         }
+         chunks[chunkCount++] = (int) remainder;
+         while (size > 0 && magnitude[size - 1] == 0)
+         {
+            size--;
+         }
+      }
+      final int leadingDigits = precision - (chunkCount - 1) * 9;
+      int next = writeLong(chunks[chunkCount - 1], leadingDigits, position);
+      for (int chunk = chunkCount - 2; chunk >= 0; chunk--)
+      {
+         next = writeLong(chunks[chunk], 9, next);
+      }
+      return next;
+   }
+
+   /**
+    * Writes the provided number of low-order decimal digits of the
+    * provided non-negative value, with leading zeros if needed.
+    *
+    * @return Position following the last digit.
+    */
+   private int writeLong(long value, final int digitCount, final int position)
+   {
+      final int end = position + digitCount;
+      for (int index = end - 1; index >= position; index--)
+      {
+         characters[index] = (char) ('0' + value % 10);
+         value /= 10;
+      }
+      return end;
+   }
+
+   private void ensureCapacity(final int length)
+   {
+      if (characters.length < length)
+      {
+         characters = new char[Math.max(length, characters.length * 2)];
+      }
+   }
+
+   private int copy(final String text)
+   {
+      ensureCapacity(text.length());
+      return copy(text, 0);
+   }
+
+   private int copy(final String text, final int position)
+   {
+      text.getChars(0, text.length(), characters, position);
+      return position + text.length();
+   }
+
+   /**
+    * Non-negative integer of up to {@link #CAPACITY} 32-bit words, modified
+    * in place, for the digit generation of doubles whose scaled values do
+    * not fit in a {@code long}.
+    */
+   private static final class Natural
+   {
+      /** Words enough for 10 * S or B of any double after twenty digits. */
+      private static final int CAPACITY = 48;
+
+      /** Words, least significant first. */
+      private final int[] words = new int[CAPACITY];
+
+      /** Number of words in use; the most significant is nonzero. */
+      private int size;
+
+      /**
+       * Sets this to {@code value * 5^p5 * 2^p2}.
+       */
+      private void setMulPow52(final long value, int p5, final int p2)
+      {
+         words[0] = (int) value;
+         words[1] = (int) (value >>> 32);
+         size = 2;
+         trim();
+         while (p5 >= 13)
+         {
+            multiply(SMALL_5_POW[13]);
+            p5 -= 13;
+         }
+         if (p5 > 0)
+         {
+            multiply(SMALL_5_POW[p5]);
+         }
+         shiftLeft(p2);
+      }
+
+      /**
+       * Sets this to the sum of the provided integers.
+       *
+       * @return This.
+       */
+      private Natural setSum(final Natural x, final Natural y)
+      {
+         final int length = Math.max(x.size, y.size);
+         long carry = 0;
+         for (int index = 0; index < length; index++)
+         {
+            final long total = (index < x.size ? x.words[index] & LONG_MASK : 0)
+               + (index < y.size ? y.words[index] & LONG_MASK : 0) + carry;
+            words[index] = (int) total;
+            carry = total >>> 32;
+         }
+         size = length;
+         if (carry != 0)
+         {
+            words[size++] = (int) carry;
+         }
+         return this;
+      }
+
+      /**
+       * Multiplies this by the provided positive {@code int}.
+       */
+      private void multiply(final int factor)
+      {
+         long carry = 0;
+         for (int index = 0; index < size; index++)
+         {
+            final long product = (words[index] & LONG_MASK) * factor + carry;
+            words[index] = (int) product;
+            carry = product >>> 32;
+         }
+         if (carry != 0)
+         {
+            words[size++] = (int) carry;
+         }
+      }
+
+      private void shiftLeft(final int shift)
+      {
+         if (size == 0 || shift == 0)
+         {
+            return;
+         }
+         final int wordShift = shift >>> 5;
+         final int bitShift = shift & 31;
+         if (bitShift == 0)
+         {
+            System.arraycopy(words, 0, words, wordShift, size);
+         }
+         else
+         {
+            words[size + wordShift] = words[size - 1] >>> (32 - bitShift);
+            for (int index = size - 1; index > 0; index--)
+            {
+               words[index + wordShift] = (words[index] << bitShift) | (words[index - 1] >>> (32 - bitShift));
+            }
+            words[wordShift] = words[0] << bitShift;
+            size++;
+         }
+         for (int index = 0; index < wordShift; index++)
+         {
+            words[index] = 0;
+         }
+         size += wordShift;
+         trim();
+      }
+
+      private int compareTo(final Natural other)
+      {
+         if (size != other.size)
+         {
+            return size < other.size ? -1 : 1;
+         }
+         for (int index = size - 1; index >= 0; index--)
+         {
+            if (words[index] != other.words[index])
+            {
+               return (words[index] & LONG_MASK) < (other.words[index] & LONG_MASK) ? -1 : 1;
+            }
+         }
+         return 0;
+      }
+
+      /**
+       * Replaces this with ten times the remainder of its division by the
+       * provided divisor, which must be no more than a tenth of this.
+       *
+       * @return Quotient of the division, from 0 to 9.
+       */
+      private int quotientRemainderTimesTen(final Natural divisor)
+      {
+         int quotient = 0;
+         if (size >= divisor.size)
+         {
+            // Estimate the quotient from the leading words, low enough that
+            // it never exceeds the true quotient and then correct upward.
+            final int base = divisor.size - 2;
+            final double estimate = leading(this, base) / leading(divisor, base) * (1 - 1e-9);
+            quotient = Math.max(0, (int) estimate);
+            if (quotient > 0)
+            {
+               multiplySubtract(divisor, quotient);
+            }
+            while (compareTo(divisor) >= 0)
+            {
+               multiplySubtract(divisor, 1);
+               quotient++;
+            }
+         }
+         multiply(10);
+         return quotient;
+      }
+
+      /**
+       * @return Approximate value of the provided integer's words at and
+       *    above the provided index, scaled by 2^(-32 * index).
+       */
+      private static double leading(final Natural natural, final int base)
+      {
+         double value = 0;
+         for (int index = natural.size - 1; index >= Math.max(base, 0); index--)
+         {
+            value = value * 4294967296.0 + (natural.words[index] & LONG_MASK);
+         }
+         return value;
+      }
+
+      /**
+       * Subtracts the provided multiple of the provided integer, which must
+       * not exceed this, from this.
+       */
+      private void multiplySubtract(final Natural subtrahend, final int multiple)
+      {
+         long productCarry = 0;
+         long borrow = 0;
+         for (int index = 0; index < size; index++)
+         {
+            final long product = (index < subtrahend.size ? (subtrahend.words[index] & LONG_MASK) * multiple : 0)
+               + productCarry;
+            productCarry = product >>> 32;
+            final long difference = (words[index] & LONG_MASK) - (product & LONG_MASK) - borrow;
+            words[index] = (int) difference;
+            borrow = difference < 0 ? 1 : 0;
+         }
+         trim();
+      }
+
+      private void trim()
+      {
+         while (size > 0 && words[size - 1] == 0)
+         {
+            size--;
+         }
+      }
+   }
+}
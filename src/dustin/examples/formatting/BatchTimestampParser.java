@@ -0,0 +1,314 @@
+package dustin.examples.formatting;
+
+import java.nio.CharBuffer;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses batches of "yyyy-MM-dd'T'HH:mm:ss" timestamps, such as those
+ * leading log lines, into epoch milliseconds, memoizing results so that
+ * runs of the same timestamp cost a comparison and timestamps within a
+ * recently seen minute cost a lookup and an addition.
+ *
+ * Two levels of memoization are kept: the most recent timestamp and its
+ * result, and a direct-mapped table of the epoch milliseconds at the
+ * start of recently seen minutes keyed by the minute's digits
+ * (yyyyMMddHHmm) packed into a {@code long}. A minute containing a zone
+ * offset transition is never memoized. Timestamps missing both levels,
+ * and any not in the fixed layout, are parsed by {@link TimestampParser},
+ * which in turn falls back to {@link java.time.format.DateTimeFormatter},
+ * so results and exceptions match parsing each timestamp individually.
+ *
+ * Instances hold mutable memoization state and are not thread-safe; use
+ * one per thread or per ingest pipeline.
+ */
+public final class BatchTimestampParser
+{
+    /** Default number of minutes memoized. */
+    public static final int DEFAULT_MEMOIZED_MINUTES = 64;
+
+    private static final int MILLIS_PER_SECOND = 1000;
+
+    private final TimestampParser parser;
+
+    private final ZoneRules rules;
+
+    private final long[] minuteKeys;
+
+    private final long[] minuteMillis;
+
+    private final int mask;
+
+    private final char[] lastTimestamp = new char[TimestampParser.LENGTH];
+
+    private boolean lastTimestampValid;
+
+    private long lastMillis;
+
+    private long timestampHits;
+
+    private long minuteHits;
+
+    private long misses;
+
+    /**
+     * Instantiates a batch parser converting to instants in the system
+     * default time zone and memoizing {@link #DEFAULT_MEMOIZED_MINUTES}
+     * minutes.
+     */
+    public BatchTimestampParser()
+    {
+        this(ZoneId.systemDefault(), DEFAULT_MEMOIZED_MINUTES);
+    }
+
+    /**
+     * @param zone Time zone in which timestamps are converted to instants.
+     * @param memoizedMinutes Number of minutes memoized; rounded up to a
+     *    power of two.
+     */
+    public BatchTimestampParser(final ZoneId zone, final int memoizedMinutes)
+    {
+        if (memoizedMinutes <= 0)
+        {
+            throw new IllegalArgumentException("Memoized minutes must be positive: " + memoizedMinutes);
+        }
+        parser = new TimestampParser(zone);
+        rules = zone.getRules();
+        final int slots = memoizedMinutes == 1 ? 1 : Integer.highestOneBit(memoizedMinutes - 1) << 1;
+        minuteKeys = new long[slots];
+        minuteMillis = new long[slots];
+        Arrays.fill(minuteKeys, -1L);
+        mask = slots - 1;
+    }
+
+    /**
+     * Parses each of the provided timestamps.
+     *
+     * @param timestamps Timestamps to be parsed.
+     * @param epochMillis Array receiving the milliseconds since the epoch
+     *    of each timestamp, at the same index as the timestamp.
+     * @throws java.time.format.DateTimeParseException Thrown if a
+     *    timestamp cannot be parsed.
+     * @throws IllegalArgumentException Thrown if the array is shorter
+     *    than the list.
+     */
+    public void parse(final List<? extends CharSequence> timestamps, final long[] epochMillis)
+    {
+        final int count = timestamps.size();
+        if (epochMillis.length < count)
+        {
+            throw new IllegalArgumentException(
+                "Array of length " + epochMillis.length + " cannot hold " + count + " results.");
+        }
+        for (int index = 0; index < count; index++)
+        {
+            final CharSequence timestamp = timestamps.get(index);
+            epochMillis[index] = parse(timestamp, 0, timestamp.length());
+        }
+    }
+
+    /**
+     * Parses newline-delimited timestamps from the provided buffer's
+     * position until either the buffer has no characters remaining or the
+     * array is full, advancing the buffer's position past each line parsed.
+     * A line may end with {@code \r\n}; empty lines are skipped.
+     *
+     * @param lines Buffer of newline-delimited timestamps.
+     * @param epochMillis Array receiving the milliseconds since the epoch
+     *    of each timestamp in order.
+     * @param offset Index in the array of the first result.
+     * @return Number of timestamps parsed.
+     * @throws java.time.format.DateTimeParseException Thrown if a
+     *    timestamp cannot be parsed; the buffer is positioned at the
+     *    start of that line.
+     */
+    public int parse(final CharBuffer lines, final long[] epochMillis, final int offset)
+    {
+        int count = 0;
+        final int limit = lines.limit();
+        int position = lines.position();
+        while (position < limit && offset + count < epochMillis.length)
+        {
+            int end = position;
+            while (end < limit && lines.get(end) != '\n')
+            {
+                end++;
+            }
+            final int next = end < limit ? end + 1 : end;
+            if (end > position && lines.get(end - 1) == '\r')
+            {
+                end--;
+            }
+            if (end > position)
+            {
+                // As a CharSequence, the buffer is indexed relative to its position.
+                epochMillis[offset + count] = parse(lines, 0, end - position);
+                count++;
+            }
+            position = next;
+            lines.position(position);
+        }
+        return count;
+    }
+
+    /**
+     * Parses the timestamp in the provided range of characters.
+     *
+     * @param text Characters holding the timestamp.
+     * @param start Index of the first character of the timestamp.
+     * @param end Index following the last character of the timestamp.
+     * @return Milliseconds since the epoch.
+     */
+    private long parse(final CharSequence text, final int start, final int end)
+    {
+        if (end - start != TimestampParser.LENGTH)
+        {
+            misses++;
+            return parser.parseEpochMillis(text.subSequence(start, end));
+        }
+        if (lastTimestampValid && matchesLastTimestamp(text, start))
+        {
+            timestampHits++;
+            return lastMillis;
+        }
+
+        final long minuteKey = minuteKey(text, start);
+        final int second = twoDigits(text, start + 17);
+        final long millis;
+        if (minuteKey < 0 || second < 0 || second > 59)
+        {
+            misses++;
+            millis = parser.parseEpochMillis(text.subSequence(start, end));
+        }
+        else
+        {
+            final int slot = (int) (minuteKey ^ (minuteKey >>> 29) ^ (minuteKey >>> 17)) & mask;
+            if (minuteKeys[slot] == minuteKey)
+            {
+                minuteHits++;
+                millis = minuteMillis[slot] + second * MILLIS_PER_SECOND;
+            }
+            else
+            {
+                misses++;
+                millis = parser.parseEpochMillis(text.subSequence(start, end));
+                final long minuteStart = millis - second * MILLIS_PER_SECOND;
+                if (isMemoizable(minuteKey, minuteStart))
+                {
+                    minuteKeys[slot] = minuteKey;
+                    minuteMillis[slot] = minuteStart;
+                }
+            }
+        }
+        for (int index = 0; index < TimestampParser.LENGTH; index++)
+        {
+            lastTimestamp[index] = text.charAt(start + index);
+        }
+        lastTimestampValid = true;
+        lastMillis = millis;
+        return millis;
+    }
+
+    /**
+     * A minute is memoized only if its fields are valid as written (so
+     * that no resolution adjusted them) and its zone offset is the same
+     * throughout, so that every second in it is the start plus the second.
+     *
+     * @param minuteKey Packed digits of the minute.
+     * @param minuteStart Epoch milliseconds at the start of the minute.
+     * @return {@code true} if the minute may be memoized.
+     */
+    private boolean isMemoizable(final long minuteKey, final long minuteStart)
+    {
+        final int minute = (int) (minuteKey % 100);
+        final int hour = (int) (minuteKey / 100 % 100);
+        final int day = (int) (minuteKey / 10_000 % 100);
+        final int month = (int) (minuteKey / 1_000_000 % 100);
+        final int year = (int) (minuteKey / 100_000_000);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()
+            || hour > 23 || minute > 59)
+        {
+            return false;
+        }
+        return rules.isFixedOffset() || rules.getOffset(Instant.ofEpochMilli(minuteStart))
+            .equals(rules.getOffset(Instant.ofEpochMilli(minuteStart + 59 * MILLIS_PER_SECOND)));
+    }
+
+    private boolean matchesLastTimestamp(final CharSequence text, final int start)
+    {
+        // Seconds change most often, so compare from the end.
+        for (int index = TimestampParser.LENGTH - 1; index >= 0; index--)
+        {
+            if (text.charAt(start + index) != lastTimestamp[index])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs the year, month, day, hour, and minute digits of a timestamp
+     * in the fixed layout into a {@code long}.
+     *
+     * @return Packed digits or a negative value if the characters are not
+     *    in the fixed layout.
+     */
+    private static long minuteKey(final CharSequence text, final int start)
+    {
+        if (text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-' || text.charAt(start + 10) != 'T'
+            || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':')
+        {
+            return -1;
+        }
+        long key = 0;
+        for (int index = start; index < start + 16; index++)
+        {
+            final char character = text.charAt(index);
+            if (character >= '0' && character <= '9')
+            {
+                key = key * 10 + (character - '0');
+            }
+            else if (index - start != 4 && index - start != 7 && index - start != 10 && index - start != 13)
+            {
+                return -1;
+            }
+        }
+        return key;
+    }
+
+    private static int twoDigits(final CharSequence text, final int start)
+    {
+        final int tens = text.charAt(start) - '0';
+        final int ones = text.charAt(start + 1) - '0';
+        return tens < 0 || tens > 9 || ones < 0 || ones > 9 ? -1 : tens * 10 + ones;
+    }
+
+    /**
+     * @return Number of timestamps identical to the one before them.
+     */
+    public long getTimestampHits()
+    {
+        return timestampHits;
+    }
+
+    /**
+     * @return Number of timestamps resolved from a memoized minute.
+     */
+    public long getMinuteHits()
+    {
+        return minuteHits;
+    }
+
+    /**
+     * @return Number of timestamps fully parsed.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+}
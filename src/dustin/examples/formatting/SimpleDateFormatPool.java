@@ -0,0 +1,173 @@
+package dustin.examples.formatting;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of {@link SimpleDateFormat} instances for a single pattern
+ * whose size tracks the number of carrier (platform) threads rather than
+ * the number of threads using it.
+ *
+ * A {@link ThreadLocal} {@link SimpleDateFormat} creates one instance per
+ * thread, which with a virtual thread per task means one instance per
+ * task. This pool instead keeps idle instances in a fixed array of slots
+ * (a small multiple of the number of processors) that threads take from
+ * and return to with atomic operations, starting at a slot chosen by
+ * thread ID so that concurrent threads rarely meet and scanning every
+ * slot before giving up. Parsing and formatting do not block, so a
+ * virtual thread holds an instance only while running on a carrier and
+ * the number of instances in use at once is bounded by the number of
+ * carriers. An instance is created only when a scan of every slot finds
+ * none idle (which, racing with a concurrent return, can happen while an
+ * instance is being put back) and is discarded on return only if every
+ * slot is occupied.
+ */
+public final class SimpleDateFormatPool
+{
+    private final String pattern;
+
+    private final AtomicReferenceArray<SimpleDateFormat> idle;
+
+    private final int mask;
+
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * Instantiates a pool with two slots per available processor.
+     *
+     * @param newPattern Pattern of the pooled {@link SimpleDateFormat}s.
+     */
+    public SimpleDateFormatPool(final String newPattern)
+    {
+        this(newPattern, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param newPattern Pattern of the pooled {@link SimpleDateFormat}s.
+     * @param capacity Minimum number of idle instances retained; rounded
+     *    up to a power of two.
+     */
+    public SimpleDateFormatPool(final String newPattern, final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // Fails fast on an invalid pattern.
+        new SimpleDateFormat(newPattern);
+        pattern = newPattern;
+        final int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        idle = new AtomicReferenceArray<>(slots);
+        mask = slots - 1;
+    }
+
+    /**
+     * @return Slot at which the current thread begins scanning.
+     */
+    private int homeSlot()
+    {
+        final long threadId = Thread.currentThread().threadId();
+        return ((int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9 >>> 16) & mask;
+    }
+
+    /**
+     * Takes an idle instance from the pool or creates one if none is idle;
+     * the caller must {@link #release(SimpleDateFormat)} it when done.
+     *
+     * @return Instance for the exclusive use of the caller.
+     */
+    public SimpleDateFormat borrow()
+    {
+        final int home = homeSlot();
+        for (int probe = 0; probe <= mask; probe++)
+        {
+            final int slot = (home + probe) & mask;
+            if (idle.get(slot) != null)
+            {
+                final SimpleDateFormat format = idle.getAndSet(slot, null);
+                if (format != null)
+                {
+                    return format;
+                }
+            }
+        }
+        created.increment();
+        return new SimpleDateFormat(pattern);
+    }
+
+    /**
+     * Returns an instance obtained from {@link #borrow()} to the pool.
+     *
+     * @param format Instance no longer used by the caller.
+     */
+    public void release(final SimpleDateFormat format)
+    {
+        final int home = homeSlot();
+        for (int probe = 0; probe <= mask; probe++)
+        {
+            final int slot = (home + probe) & mask;
+            if (idle.get(slot) == null && idle.compareAndSet(slot, null, format))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses the provided text with a pooled instance.
+     *
+     * @param text Date/time string to be parsed.
+     * @return Parsed date.
+     * @throws ParseException Thrown if the text cannot be parsed.
+     */
+    public Date parse(final String text) throws ParseException
+    {
+        final SimpleDateFormat format = borrow();
+        try
+        {
+            return format.parse(text);
+        }
+        finally
+        {
+            release(format);
+        }
+    }
+
+    /**
+     * Formats the provided date with a pooled instance.
+     *
+     * @param date Date to be formatted.
+     * @return Formatted date.
+     */
+    public String format(final Date date)
+    {
+        final SimpleDateFormat format = borrow();
+        try
+        {
+            return format.format(date);
+        }
+        finally
+        {
+            release(format);
+        }
+    }
+
+    /**
+     * @return Number of {@link SimpleDateFormat} instances this pool has created.
+     */
+    public long getCreatedCount()
+    {
+        return created.sum();
+    }
+
+    /**
+     * @return Number of idle instances the pool can retain.
+     */
+    public int getCapacity()
+    {
+        return idle.length();
+    }
+}
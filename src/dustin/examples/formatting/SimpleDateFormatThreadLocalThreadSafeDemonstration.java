@@ -5,6 +5,10 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 import static java.lang.System.out;
 
@@ -16,15 +20,129 @@ import static java.lang.System.out;
  */
 public class SimpleDateFormatThreadLocalThreadSafeDemonstration
 {
+    /** Number of {@link SimpleDateFormat} instances created for {@link #SIMPLE_DATE_FORMAT}. */
+    private static final LongAdder SIMPLE_DATE_FORMATS_CREATED = new LongAdder();
+
     /** Date/Time Format. */
     private static final ThreadLocal<SimpleDateFormat> SIMPLE_DATE_FORMAT
-        = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss"));
+        = ThreadLocal.withInitial(() ->
+        {
+            SIMPLE_DATE_FORMATS_CREATED.increment();
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        });
+
+    /** Carrier-bounded pool of Date/Time Formats. */
+    private static final SimpleDateFormatPool SIMPLE_DATE_FORMAT_POOL
+        = new SimpleDateFormatPool("yyyy-MM-dd'T'HH:mm:ss");
+
+    /** Number of tasks run on virtual threads in "virtual" mode. */
+    private static final int DEFAULT_VIRTUAL_THREAD_TASK_COUNT = 1_000_000;
 
     /** DateTime string to be parsed. */
     private static final String DATE_TIME_STRING = "2021-07-12T13:25:45";
 
-    public static void main(final String[] arguments)
+    /**
+     * Parse the demonstration's date/time string on one virtual thread per
+     * task with the provided parse operation, then write the number of
+     * {@link SimpleDateFormat} instances created and the throughput to
+     * standard output.
+     *
+     * @param label Description of the parsing strategy.
+     * @param taskCount Number of tasks (and virtual threads).
+     * @param parse Parse operation returning {@code true} on success.
+     * @param created Supplier of the number of instances created so far.
+     */
+    private static void runOnVirtualThreads(
+        final String label, final int taskCount, final BooleanSupplier parse, final LongSupplier created)
+    {
+        final LongAdder failures = new LongAdder();
+        final long createdBefore = created.getAsLong();
+        final long start = System.nanoTime();
+        try (final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int i = 0; i < taskCount; i++)
+            {
+                executorService.submit(() ->
+                {
+                    if (!parse.getAsBoolean())
+                    {
+                        failures.increment();
+                    }
+                });
+            }
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+        out.println(label + ": " + taskCount + " virtual-thread tasks created "
+            + (created.getAsLong() - createdBefore) + " SimpleDateFormat instances; "
+            + (long) (taskCount / (elapsedNanos / 1_000_000_000.0)) + " parses/second; "
+            + failures.sum() + " failures.");
+    }
+
+    /**
+     * Compare the {@link ThreadLocal} {@link SimpleDateFormat} with the
+     * {@link SimpleDateFormatPool} when each parse runs on its own virtual
+     * thread.
+     *
+     * @param taskCount Number of tasks (and virtual threads) per strategy.
+     */
+    private static void compareOnVirtualThreads(final int taskCount)
     {
+        runOnVirtualThreads(
+            "ThreadLocal<SimpleDateFormat>", taskCount,
+            () -> parseQuietly(SIMPLE_DATE_FORMAT.get()), SIMPLE_DATE_FORMATS_CREATED::sum);
+        runOnVirtualThreads(
+            "SimpleDateFormatPool (capacity " + SIMPLE_DATE_FORMAT_POOL.getCapacity() + ")", taskCount,
+            () ->
+            {
+                try
+                {
+                    SIMPLE_DATE_FORMAT_POOL.parse(DATE_TIME_STRING);
+                    return true;
+                }
+                catch (ParseException parseException)
+                {
+                    return false;
+                }
+            },
+            SIMPLE_DATE_FORMAT_POOL::getCreatedCount);
+    }
+
+    /**
+     * @param format Format with which to parse the demonstration's date/time string.
+     * @return {@code true} if the string was parsed.
+     */
+    private static boolean parseQuietly(final SimpleDateFormat format)
+    {
+        try
+        {
+            format.parse(DATE_TIME_STRING);
+            return true;
+        }
+        catch (ParseException parseException)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the demonstration.
+     *
+     * @param arguments Command-line arguments: "virtual" followed by an
+     *    optional task count (default one million) compares the
+     *    {@link ThreadLocal} with {@link SimpleDateFormatPool} on virtual
+     *    threads; with no arguments, parses on a fixed thread pool.
+     * @throws InterruptedException Thrown if interrupted while awaiting
+     *    executor termination.
+     */
+    public static void main(final String[] arguments) throws InterruptedException
+    {
+        if (arguments.length > 0 && "virtual".equals(arguments[0]))
+        {
+            compareOnVirtualThreads(
+                arguments.length > 1 ? Integer.parseInt(arguments[1]) : DEFAULT_VIRTUAL_THREAD_TASK_COUNT);
+            return;
+        }
+
         final ExecutorService executorService = Executors.newFixedThreadPool(10);
         final Runnable task = () -> parseDate(DATE_TIME_STRING);
 
@@ -34,6 +152,7 @@ public class SimpleDateFormatThreadLocalThreadSafeDemonstration
         }
 
         executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
     }
 
     /**
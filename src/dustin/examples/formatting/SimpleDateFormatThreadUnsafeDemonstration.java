@@ -5,6 +5,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.System.out;
 
@@ -22,7 +23,7 @@ public class SimpleDateFormatThreadUnsafeDemonstration
     /** DateTime string to be parsed. */
     private static final String DATE_TIME_STRING = "2021-07-12T13:25:45";
 
-    public static void main(final String[] arguments)
+    public static void main(final String[] arguments) throws InterruptedException
     {
         final ExecutorService executorService = Executors.newFixedThreadPool(10);
         final Runnable task = () -> parseDate(DATE_TIME_STRING);
@@ -33,6 +34,7 @@ public class SimpleDateFormatThreadUnsafeDemonstration
         }
 
         executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
     }
 
     /**
@@ -0,0 +1,380 @@
+package dustin.examples.formatting;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+
+/**
+ * Thread-safe parser of date/time strings in the fixed ISO-8601 layout
+ * "yyyy-MM-dd'T'HH:mm:ss" used by the demonstrations in this package.
+ *
+ * Input in exactly that layout with valid field values is parsed by a
+ * hand-rolled fast path that reads the digits at their fixed positions
+ * from a {@link CharSequence} or ASCII {@code byte[]} without the
+ * {@code ParsePosition} and {@code Parsed} objects that
+ * {@link DateTimeFormatter} allocates. Anything else is handed to
+ * {@link DateTimeFormatter}, so results and exceptions are the same as
+ * parsing with {@link DateTimeFormatter#ofPattern(String)}.
+ *
+ * Conversion to epoch milliseconds caches the zone offset in effect
+ * between the surrounding zone transitions in an immutable object
+ * published through a {@code volatile} field, so an instance can be
+ * shared by any number of threads without {@link ThreadLocal} and
+ * without allocating while consecutive timestamps share an offset.
+ */
+public final class TimestampParser
+{
+    /** Pattern of the fixed layout parsed by the fast path. */
+    public static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+    /** Length of the fixed layout. */
+    public static final int LENGTH = 19;
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    /** Days from 0000-03-01 to 1970-01-01 (as in {@code LocalDate.toEpochDay()}). */
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    private final ZoneId zone;
+
+    private final ZoneRules rules;
+
+    private final DateTimeFormatter fallback;
+
+    /** Most recently used range of local date/times sharing a single offset. */
+    private volatile OffsetWindow window;
+
+    /**
+     * Local date/times, as seconds since 1970-01-01T00:00:00, in
+     * {@code [startLocalSecond, endLocalSecond)} all have the same offset.
+     */
+    private static final class OffsetWindow
+    {
+        private final long startLocalSecond;
+        private final long endLocalSecond;
+        private final int offsetSeconds;
+
+        private OffsetWindow(final long newStartLocalSecond, final long newEndLocalSecond, final int newOffsetSeconds)
+        {
+            startLocalSecond = newStartLocalSecond;
+            endLocalSecond = newEndLocalSecond;
+            offsetSeconds = newOffsetSeconds;
+        }
+    }
+
+    /**
+     * Instantiates a parser converting to instants in the system default
+     * time zone (as the demonstrations in this package do).
+     */
+    public TimestampParser()
+    {
+        this(ZoneId.systemDefault());
+    }
+
+    /**
+     * @param newZone Time zone in which parsed local date/times are
+     *    converted to instants.
+     */
+    public TimestampParser(final ZoneId newZone)
+    {
+        zone = newZone;
+        rules = newZone.getRules();
+        fallback = DateTimeFormatter.ofPattern(PATTERN);
+    }
+
+    /**
+     * Parses the provided date/time string.
+     *
+     * @param text Date/time string to be parsed.
+     * @return Parsed local date/time.
+     * @throws java.time.format.DateTimeParseException Thrown if the text
+     *    cannot be parsed.
+     */
+    public LocalDateTime parse(final CharSequence text)
+    {
+        final long localSecond = parseLocalSecond(text);
+        return localSecond != Long.MIN_VALUE
+            ? LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC)
+            : LocalDateTime.parse(text, fallback);
+    }
+
+    /**
+     * Parses the provided ASCII date/time bytes.
+     *
+     * @param bytes Array holding the date/time.
+     * @param offset Index of the first byte of the date/time.
+     * @param length Number of bytes in the date/time.
+     * @return Parsed local date/time.
+     * @throws java.time.format.DateTimeParseException Thrown if the bytes
+     *    cannot be parsed.
+     */
+    public LocalDateTime parse(final byte[] bytes, final int offset, final int length)
+    {
+        final long localSecond = parseLocalSecond(bytes, offset, length);
+        return localSecond != Long.MIN_VALUE
+            ? LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC)
+            : LocalDateTime.parse(new String(bytes, offset, length, StandardCharsets.US_ASCII), fallback);
+    }
+
+    /**
+     * Parses the provided date/time string as a local date/time in this
+     * parser's zone.
+     *
+     * @param text Date/time string to be parsed.
+     * @return Milliseconds since the epoch.
+     * @throws java.time.format.DateTimeParseException Thrown if the text
+     *    cannot be parsed.
+     */
+    public long parseEpochMillis(final CharSequence text)
+    {
+        final long localSecond = parseLocalSecond(text);
+        return localSecond != Long.MIN_VALUE
+            ? toEpochMillis(localSecond)
+            : LocalDateTime.parse(text, fallback).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Parses the provided ASCII date/time bytes as a local date/time in
+     * this parser's zone.
+     *
+     * @param bytes Array holding the date/time.
+     * @param offset Index of the first byte of the date/time.
+     * @param length Number of bytes in the date/time.
+     * @return Milliseconds since the epoch.
+     * @throws java.time.format.DateTimeParseException Thrown if the bytes
+     *    cannot be parsed.
+     */
+    public long parseEpochMillis(final byte[] bytes, final int offset, final int length)
+    {
+        final long localSecond = parseLocalSecond(bytes, offset, length);
+        return localSecond != Long.MIN_VALUE
+            ? toEpochMillis(localSecond)
+            : parse(bytes, offset, length).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Parses the provided date/time string as a local date/time in this
+     * parser's zone.
+     *
+     * @param text Date/time string to be parsed.
+     * @return Parsed {@link Date}.
+     * @throws java.time.format.DateTimeParseException Thrown if the text
+     *    cannot be parsed.
+     */
+    public Date parseDate(final CharSequence text)
+    {
+        return new Date(parseEpochMillis(text));
+    }
+
+    /**
+     * Parses text in the fixed layout to seconds since 1970-01-01T00:00:00
+     * on the local time line.
+     *
+     * @param text Date/time string to be parsed.
+     * @return Local seconds or {@link Long#MIN_VALUE} if the text is not
+     *    in the fixed layout or has an invalid field value.
+     */
+    private static long parseLocalSecond(final CharSequence text)
+    {
+        if (text.length() != LENGTH
+            || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+            || text.charAt(13) != ':' || text.charAt(16) != ':')
+        {
+            return Long.MIN_VALUE;
+        }
+        final int year = digits(text, 0, 4);
+        final int month = digits(text, 5, 2);
+        final int day = digits(text, 8, 2);
+        final int hour = digits(text, 11, 2);
+        final int minute = digits(text, 14, 2);
+        final int second = digits(text, 17, 2);
+        return toLocalSecond(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * Parses ASCII bytes in the fixed layout to seconds since
+     * 1970-01-01T00:00:00 on the local time line.
+     *
+     * @param bytes Array holding the date/time.
+     * @param offset Index of the first byte of the date/time.
+     * @param length Number of bytes in the date/time.
+     * @return Local seconds or {@link Long#MIN_VALUE} if the bytes are not
+     *    in the fixed layout or have an invalid field value.
+     */
+    private static long parseLocalSecond(final byte[] bytes, final int offset, final int length)
+    {
+        if (length != LENGTH
+            || bytes[offset + 4] != '-' || bytes[offset + 7] != '-' || bytes[offset + 10] != 'T'
+            || bytes[offset + 13] != ':' || bytes[offset + 16] != ':')
+        {
+            return Long.MIN_VALUE;
+        }
+        final int year = digits(bytes, offset, 4);
+        final int month = digits(bytes, offset + 5, 2);
+        final int day = digits(bytes, offset + 8, 2);
+        final int hour = digits(bytes, offset + 11, 2);
+        final int minute = digits(bytes, offset + 14, 2);
+        final int second = digits(bytes, offset + 17, 2);
+        return toLocalSecond(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * @return Value of the provided number of decimal digits or a
+     *    negative value if any character is not a digit.
+     */
+    private static int digits(final CharSequence text, final int start, final int count)
+    {
+        int value = 0;
+        for (int index = start; index < start + count; index++)
+        {
+            final int digit = text.charAt(index) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return Value of the provided number of ASCII decimal digits or a
+     *    negative value if any byte is not a digit.
+     */
+    private static int digits(final byte[] bytes, final int start, final int count)
+    {
+        int value = 0;
+        for (int index = start; index < start + count; index++)
+        {
+            final int digit = bytes[index] - '0';
+            if (digit < 0 || digit > 9)
+            {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Validates fields and converts them to seconds since
+     * 1970-01-01T00:00:00 on the local time line.
+     *
+     * Only unambiguously valid values are accepted; everything else
+     * (including values that {@link java.time.format.ResolverStyle#SMART}
+     * resolution would adjust, such as February 30) is left to the
+     * fallback formatter.
+     *
+     * @return Local seconds or {@link Long#MIN_VALUE} if any field is invalid.
+     */
+    private static long toLocalSecond(
+        final int year, final int month, final int day, final int hour, final int minute, final int second)
+    {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 28 && day > lengthOfMonth(year, month)
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59)
+        {
+            return Long.MIN_VALUE;
+        }
+        return toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    private static int lengthOfMonth(final int year, final int month)
+    {
+        switch (month)
+        {
+            case 2:
+                return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Same algorithm as {@link LocalDate#toEpochDay()}, for positive years.
+     */
+    private static long toEpochDay(final int year, final int month, final int day)
+    {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2)
+        {
+            total--;
+            if (!((year & 3) == 0 && (year % 100 != 0 || year % 400 == 0)))
+            {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Converts seconds on the local time line to epoch milliseconds in
+     * this parser's zone, using the cached offset window when possible.
+     *
+     * @param localSecond Seconds since 1970-01-01T00:00:00 on the local
+     *    time line.
+     * @return Milliseconds since the epoch.
+     */
+    private long toEpochMillis(final long localSecond)
+    {
+        final OffsetWindow current = window;
+        if (current != null && localSecond >= current.startLocalSecond && localSecond < current.endLocalSecond)
+        {
+            return (localSecond - current.offsetSeconds) * 1000;
+        }
+        final LocalDateTime local = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+        final long epochSecond = local.atZone(zone).toEpochSecond();
+        final OffsetWindow computed = computeWindow(local, epochSecond);
+        if (computed != null)
+        {
+            window = computed;
+        }
+        return epochSecond * 1000;
+    }
+
+    /**
+     * Determines the range of local date/times around the provided one
+     * that map to instants with a single, unambiguous offset.
+     *
+     * @param local Local date/time.
+     * @param epochSecond Instant to which the local date/time maps.
+     * @return Window or {@code null} if the local date/time is in a gap
+     *    or overlap.
+     */
+    private OffsetWindow computeWindow(final LocalDateTime local, final long epochSecond)
+    {
+        if (rules.isFixedOffset())
+        {
+            return new OffsetWindow(Long.MIN_VALUE, Long.MAX_VALUE, rules.getOffset(local).getTotalSeconds());
+        }
+        if (rules.getValidOffsets(local).size() != 1)
+        {
+            return null;
+        }
+        final Instant instant = Instant.ofEpochSecond(epochSecond);
+        final ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1));
+        final ZoneOffsetTransition next = rules.nextTransition(instant);
+        final long start = previous == null
+            ? Long.MIN_VALUE
+            : previous.toEpochSecond() + Math.max(
+                previous.getOffsetBefore().getTotalSeconds(), previous.getOffsetAfter().getTotalSeconds());
+        final long end = next == null
+            ? Long.MAX_VALUE
+            : next.toEpochSecond() + Math.min(
+                next.getOffsetBefore().getTotalSeconds(), next.getOffsetAfter().getTotalSeconds());
+        return new OffsetWindow(start, end, (int) (local.toEpochSecond(ZoneOffset.UTC) - epochSecond));
+    }
+}
@@ -0,0 +1,55 @@
+package dustin.examples.formatting;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.out;
+
+/**
+ * Demonstrative example of a single {@link TimestampParser} instance
+ * shared by multiple threads without synchronization or {@link ThreadLocal}.
+ */
+public class TimestampParserThreadSafeDemonstration
+{
+    /** Date/Time parser shared by all threads. */
+    private static final TimestampParser TIMESTAMP_PARSER = new TimestampParser();
+
+    /** DateTime string to be parsed. */
+    private static final String DATE_TIME_STRING = "2021-07-12T13:25:45";
+
+    public static void main(final String[] arguments) throws InterruptedException
+    {
+        final ExecutorService executorService = Executors.newFixedThreadPool(10);
+        final Runnable task = () -> parseDate(DATE_TIME_STRING);
+
+        for (int i = 0; i < 100; i++)
+        {
+            executorService.submit(task);
+        }
+
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Parse the supplied date/time string and write parsed {@link Date} to standard
+     * output or write exception details to standard output if the supplied date/time
+     * string cannot be parsed.
+     *
+     * @param dateTimeStringToParse Date/time string to be parsed.
+     */
+    private static void parseDate(final String dateTimeStringToParse)
+    {
+        try
+        {
+            final Date date = TIMESTAMP_PARSER.parseDate(dateTimeStringToParse);
+            out.println("Parsed date/time " + date + " from string '" + dateTimeStringToParse + "'.");
+        }
+        catch (Exception exception)
+        {
+            out.println("ERROR: Exception while parsing string '" + dateTimeStringToParse + "': " + exception);
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package dustin.examples.jdk12.format;
+
+import java.math.RoundingMode;
+import java.text.AttributedCharacterIterator;
+import java.text.CharacterIterator;
+import java.text.CompactNumberFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Formats {@code long} values exactly as a {@link CompactNumberFormat}
+ * does, writing the result directly into a caller-supplied
+ * {@link StringBuilder} without the {@code StringBuffer},
+ * {@code FieldPosition}, {@code BigDecimal}, and plural rule evaluation
+ * that {@link CompactNumberFormat#format(long)} performs on every call.
+ *
+ * The format is compiled once, when this formatter is instantiated, by
+ * formatting each power of ten with the {@link CompactNumberFormat} to
+ * learn the divisor of each magnitude. When formatting, the magnitude,
+ * the rounded value the JDK selects plural forms with, and the digits
+ * are computed with {@code long} arithmetic. The prefix and suffix of a
+ * magnitude, sign, and rounded value (such as "Mio." or " Millionen")
+ * are learned from the {@link CompactNumberFormat} the first time they
+ * are needed and kept in a table indexed by magnitude, sign, and rounded
+ * value, so that once warm formatting allocates nothing. A learned
+ * prefix and suffix are kept only if the result they produce is
+ * identical to the JDK's.
+ *
+ * Values of magnitude 2<sup>53</sup> or more are formatted by the
+ * {@link CompactNumberFormat} itself. Instances are safe for use by
+ * multiple threads.
+ */
+public final class CompactLongFormatter
+{
+   /** Maximum number of fraction digits supported. */
+   public static final int MAXIMUM_FRACTION_DIGITS = 3;
+
+   /** Values of this magnitude or more are formatted by the JDK. */
+   private static final long MAXIMUM_FAST_MAGNITUDE = 1L << 53;
+
+   /** Magnitudes (powers of ten) a {@code long} can have. */
+   private static final int MAGNITUDES = 19;
+
+   /** Values below this are written by {@link Double#toString(double)} without an exponent. */
+   private static final long PLAIN_DOUBLE_LIMIT = 10_000_000L;
+
+   /** Rounded values below this, before scaling by ten, have their entries in dense rows. */
+   private static final int DENSE_VALUES = 1000;
+
+   /** Entries of larger rounded values, which only the largest magnitudes have. */
+   private static final int SPARSE_ENTRIES = 256;
+
+   private static final long[] POWERS_OF_TEN = new long[MAGNITUDES];
+
+   static
+   {
+      POWERS_OF_TEN[0] = 1;
+      for (int power = 1; power < MAGNITUDES; power++)
+      {
+         POWERS_OF_TEN[power] = POWERS_OF_TEN[power - 1] * 10;
+      }
+   }
+
+   /** Format learned from and falling back to; guarded by itself. */
+   private final CompactNumberFormat format;
+
+   private final int minimumFractionDigits;
+
+   private final int maximumFractionDigits;
+
+   private final long fractionScale;
+
+   private final char zeroDigit;
+
+   private final char decimalSeparator;
+
+   /** Power of ten of each magnitude's divisor. */
+   private final int[] divisorPowers = new int[MAGNITUDES];
+
+   /** Whether each magnitude's compact pattern is empty. */
+   private final boolean[] emptyPatterns = new boolean[MAGNITUDES];
+
+   /** Length of each dense row. */
+   private final int rowLength;
+
+   /**
+    * Learned prefixes and suffixes of small rounded values, in a row per
+    * magnitude and sign created when first needed and indexed by value.
+    * Races only cause repeated learning.
+    */
+   private final AtomicReferenceArray<Entry[]> rows = new AtomicReferenceArray<>(MAGNITUDES * 2);
+
+   /** Learned prefixes and suffixes of larger rounded values, direct-mapped by hash. */
+   private final Entry[] sparseEntries = new Entry[SPARSE_ENTRIES];
+
+   /** Prefix and suffix of a magnitude, sign, and rounded value. */
+   private static final class Entry
+   {
+      private final int magnitudeAndSign;
+      private final long value;
+      private final String prefix;
+      private final String suffix;
+      /** Whether the number is written, which it is not for a pattern without zeros. */
+      private final boolean numbered;
+      /** Whether the number is written in full by the plain decimal pattern. */
+      private final boolean plain;
+      /** Grouping separator of the plain decimal pattern, if it was seen. */
+      private final char groupingSeparator;
+      /** Digits per group of the plain decimal pattern or 0 if no separator was seen. */
+      private final int groupingSize;
+
+      private Entry(
+         final int newMagnitudeAndSign, final long newValue, final String newPrefix,
+         final String newSuffix, final boolean newNumbered, final boolean newPlain,
+         final char newGroupingSeparator, final int newGroupingSize)
+      {
+         magnitudeAndSign = newMagnitudeAndSign;
+         value = newValue;
+         prefix = newPrefix;
+         suffix = newSuffix;
+         numbered = newNumbered;
+         plain = newPlain;
+         groupingSeparator = newGroupingSeparator;
+         groupingSize = newGroupingSize;
+      }
+   }
+
+   /**
+    * Instantiates a formatter equivalent to
+    * {@link NumberFormat#getCompactNumberInstance(Locale, NumberFormat.Style)}.
+    *
+    * @param locale Locale of the format.
+    * @param style Style of the format.
+    */
+   public CompactLongFormatter(final Locale locale, final NumberFormat.Style style)
+   {
+      this((CompactNumberFormat) NumberFormat.getCompactNumberInstance(locale, style));
+   }
+
+   /**
+    * @param prototype Format whose output this formatter reproduces; it is
+    *    not used after construction and later changes to it have no effect.
+    * @throws IllegalArgumentException Thrown if the format uses a rounding
+    *    mode other than {@link RoundingMode#HALF_EVEN}, grouping, more than
+    *    {@link #MAXIMUM_FRACTION_DIGITS} fraction digits, or other than one
+    *    minimum integer digit.
+    */
+   public CompactLongFormatter(final CompactNumberFormat prototype)
+   {
+      if (prototype.getRoundingMode() != RoundingMode.HALF_EVEN)
+      {
+         throw new IllegalArgumentException("Unsupported rounding mode: " + prototype.getRoundingMode());
+      }
+      if (prototype.isGroupingUsed() && prototype.getGroupingSize() > 0)
+      {
+         throw new IllegalArgumentException("Grouping is not supported.");
+      }
+      if (prototype.getMaximumFractionDigits() > MAXIMUM_FRACTION_DIGITS)
+      {
+         throw new IllegalArgumentException(
+            "Maximum fraction digits exceed " + MAXIMUM_FRACTION_DIGITS + ": "
+               + prototype.getMaximumFractionDigits());
+      }
+      if (prototype.getMinimumIntegerDigits() != 1 || prototype.getMaximumIntegerDigits() < MAGNITUDES)
+      {
+         throw new IllegalArgumentException("Integer digits other than 1 to at least " + MAGNITUDES
+            + " are not supported.");
+      }
+      format = prototype.clone();
+      minimumFractionDigits = format.getMinimumFractionDigits();
+      maximumFractionDigits = format.getMaximumFractionDigits();
+      fractionScale = POWERS_OF_TEN[maximumFractionDigits];
+      rowLength = maximumFractionDigits > 0 ? DENSE_VALUES * 10 : DENSE_VALUES;
+
+      char zero = '0';
+      for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+      {
+         final AttributedCharacterIterator probe = format.formatToCharacterIterator(POWERS_OF_TEN[magnitude]);
+         final long integer = integerValue(probe);
+         if (magnitude == 0 && integer == 1)
+         {
+            zero = (char) (firstCharacter(probe, NumberFormat.Field.INTEGER) - 1);
+         }
+         final boolean compact = hasAttribute(probe, NumberFormat.Field.PREFIX)
+            || hasAttribute(probe, NumberFormat.Field.SUFFIX);
+         emptyPatterns[magnitude] = !compact;
+         divisorPowers[magnitude] = compact && integer > 0
+            ? magnitude - (int) Math.log10(integer)
+            : magnitude;
+      }
+      zeroDigit = zero;
+
+      // Some patterns omit the number (such as "mille"), so look until one shows the separator.
+      char separator = '.';
+      final CompactNumberFormat fractional = format.clone();
+      fractional.setMinimumFractionDigits(1);
+      for (int magnitude = 0; magnitude < MAGNITUDES; magnitude++)
+      {
+         final char found = firstCharacter(
+            fractional.formatToCharacterIterator(POWERS_OF_TEN[magnitude]), NumberFormat.Field.DECIMAL_SEPARATOR);
+         if (found != CharacterIterator.DONE)
+         {
+            separator = found;
+            break;
+         }
+      }
+      decimalSeparator = separator;
+   }
+
+   /**
+    * Appends the provided number, formatted, to the provided builder.
+    *
+    * @param number Number to be formatted.
+    * @param builder Builder to which the formatted number is appended.
+    * @return The provided builder.
+    */
+   public StringBuilder format(final long number, final StringBuilder builder)
+   {
+      if (number >= MAXIMUM_FAST_MAGNITUDE || number <= -MAXIMUM_FAST_MAGNITUDE)
+      {
+         return builder.append(formatWithJdk(number));
+      }
+      final boolean negative = number < 0;
+      final long magnitudeValue = negative ? -number : number;
+
+      // As in CompactNumberFormat: the magnitude selects the pattern, and
+      // a value that rounds up to the next pattern's divisor moves to it.
+      int magnitude = magnitudeValue <= 1 ? 0 : (int) Math.log10(magnitudeValue);
+      long value = pluralValue(magnitudeValue, divisorPowers[magnitude]);
+      if (!emptyPatterns[magnitude] && magnitude + 1 < MAGNITUDES
+         && divisorPowers[magnitude + 1] != divisorPowers[magnitude]
+         && value == POWERS_OF_TEN[divisorPowers[magnitude + 1] - divisorPowers[magnitude]]
+            * (maximumFractionDigits > 0 ? 10 : 1))
+      {
+         magnitude++;
+         value = pluralValue(magnitudeValue, divisorPowers[magnitude]);
+      }
+
+      final int magnitudeAndSign = magnitude << 1 | (negative ? 1 : 0);
+      final Entry entry = lookUp(magnitudeAndSign, value);
+      if (entry != null)
+      {
+         return append(entry, magnitudeValue, divisorPowers[magnitude], builder);
+      }
+      return learn(number, magnitudeAndSign, value, divisorPowers[magnitude], builder);
+   }
+
+   /**
+    * Formats the provided number.
+    *
+    * @param number Number to be formatted.
+    * @return Formatted number.
+    */
+   public String format(final long number)
+   {
+      return format(number, new StringBuilder(16)).toString();
+   }
+
+   /**
+    * Appends the number formatted with a learned prefix and suffix.
+    *
+    * @return The provided builder.
+    */
+   private StringBuilder append(
+      final Entry entry, final long magnitudeValue, final int divisorPower, final StringBuilder builder)
+   {
+      builder.append(entry.prefix);
+      if (entry.plain)
+      {
+         appendGrouped(magnitudeValue, entry.groupingSeparator, entry.groupingSize, builder);
+      }
+      else if (entry.numbered)
+      {
+         appendDigits(roundedDigits(magnitudeValue, POWERS_OF_TEN[divisorPower]), maximumFractionDigits, builder);
+      }
+      else
+      {
+         // CompactNumberFormat omits the suffix along with the number.
+         return builder;
+      }
+      return builder.append(entry.suffix);
+   }
+
+   /**
+    * Formats the provided number with the JDK, learns its prefix and
+    * suffix, and keeps them if they reproduce the JDK's result.
+    *
+    * @return The provided builder.
+    */
+   private StringBuilder learn(
+      final long number, final int magnitudeAndSign, final long value, final int divisorPower,
+      final StringBuilder builder)
+   {
+      final AttributedCharacterIterator formatted;
+      synchronized (format)
+      {
+         formatted = format.formatToCharacterIterator(number);
+      }
+      final StringBuilder text = new StringBuilder();
+      int numberStart = -1;
+      int numberEnd = -1;
+      char groupingSeparator = 0;
+      int groupingSize = 0;
+      for (char character = formatted.first(); character != CharacterIterator.DONE; character = formatted.next())
+      {
+         final Map<AttributedCharacterIterator.Attribute, Object> attributes = formatted.getAttributes();
+         if (attributes.containsKey(NumberFormat.Field.GROUPING_SEPARATOR))
+         {
+            groupingSeparator = character;
+            groupingSize = 0;
+         }
+         else if (attributes.containsKey(NumberFormat.Field.INTEGER))
+         {
+            groupingSize++;
+         }
+         if (attributes.containsKey(NumberFormat.Field.INTEGER)
+            || attributes.containsKey(NumberFormat.Field.DECIMAL_SEPARATOR)
+            || attributes.containsKey(NumberFormat.Field.FRACTION))
+         {
+            if (numberStart < 0)
+            {
+               numberStart = text.length();
+            }
+            numberEnd = text.length() + 1;
+         }
+         text.append(character);
+      }
+      final boolean compact = hasAttribute(formatted, NumberFormat.Field.PREFIX)
+         || hasAttribute(formatted, NumberFormat.Field.SUFFIX);
+      final Entry entry = numberStart < 0
+         ? new Entry(magnitudeAndSign, value, text.toString(), "", false, false, groupingSeparator, 0)
+         : new Entry(magnitudeAndSign, value, text.substring(0, numberStart), text.substring(numberEnd), true,
+            !compact, groupingSeparator, groupingSeparator == 0 ? 0 : groupingSize);
+
+      final long magnitudeValue = number < 0 ? -number : number;
+      final StringBuilder expected = append(entry, magnitudeValue, divisorPower, new StringBuilder(text.length()));
+      if (expected.toString().equals(text.toString()))
+      {
+         store(entry);
+      }
+      return builder.append(text);
+   }
+
+   /**
+    * Provides the value, scaled by ten if the format has fraction digits,
+    * that {@link CompactNumberFormat} selects the plural form of a pattern
+    * with: the number as written by {@link Double#toString(double)},
+    * divided by the divisor at that representation's scale, then
+    * truncated to an integer if the format has no fraction digits.
+    */
+   private long pluralValue(final long magnitudeValue, final int divisorPower)
+   {
+      final long tenths;
+      if (magnitudeValue < PLAIN_DOUBLE_LIMIT)
+      {
+         // Written as "1234.0", so one decimal place.
+         tenths = divideHalfEven(magnitudeValue * 10, POWERS_OF_TEN[divisorPower]);
+      }
+      else
+      {
+         // Written as "1.234E6", so the unit is ten to the power of the
+         // number of trailing zeros, but at least one digit follows the point.
+         int digits = 1;
+         while (digits < MAGNITUDES && magnitudeValue >= POWERS_OF_TEN[digits])
+         {
+            digits++;
+         }
+         int trailingZeros = 0;
+         while (magnitudeValue % POWERS_OF_TEN[trailingZeros + 1] == 0)
+         {
+            trailingZeros++;
+         }
+         final int unitPower = Math.min(trailingZeros, digits - 2);
+         final int denominatorPower = unitPower + divisorPower;
+         final long units = denominatorPower >= MAGNITUDES
+            ? 0
+            : divideHalfEven(magnitudeValue, POWERS_OF_TEN[denominatorPower]);
+         tenths = units * POWERS_OF_TEN[unitPower] * 10;
+      }
+      return maximumFractionDigits > 0 ? tenths : tenths / 10;
+   }
+
+   /**
+    * Provides the number divided by the divisor and rounded as
+    * {@code DecimalFormat} rounds the {@code double} quotient: half-even
+    * on the exact binary value of the quotient.
+    *
+    * @return Rounded quotient scaled by ten to the maximum fraction digits.
+    */
+   private long roundedDigits(final long magnitudeValue, final long divisor)
+   {
+      if (magnitudeValue % divisor == 0)
+      {
+         return magnitudeValue / divisor * fractionScale;
+      }
+      final long truncated = magnitudeValue * fractionScale / divisor;
+      final double quotient = (double) magnitudeValue / divisor;
+      // The sign of the fused product is the exact side of the tie the quotient lies on.
+      final double aboveTie = Math.fma(quotient, 2.0 * fractionScale, -(2.0 * truncated + 1));
+      return aboveTie > 0 || (aboveTie == 0 && (truncated & 1) != 0) ? truncated + 1 : truncated;
+   }
+
+   /**
+    * Appends a scaled number with trailing fraction zeros beyond the
+    * minimum fraction digits removed.
+    */
+   private void appendDigits(final long scaled, final int scalePower, final StringBuilder builder)
+   {
+      long fraction = scaled % POWERS_OF_TEN[scalePower];
+      int fractionDigits = scalePower;
+      while (fractionDigits > minimumFractionDigits && fraction % 10 == 0)
+      {
+         fraction /= 10;
+         fractionDigits--;
+      }
+      appendInteger(scaled / POWERS_OF_TEN[scalePower], 1, builder);
+      if (fractionDigits > 0)
+      {
+         builder.append(decimalSeparator);
+         appendInteger(fraction, fractionDigits, builder);
+      }
+   }
+
+   /**
+    * Appends an integer with a grouping separator between each group of
+    * the provided number of digits, counted from the right.
+    */
+   private void appendGrouped(
+      final long value, final char groupingSeparator, final int groupingSize, final StringBuilder builder)
+   {
+      int digits = 1;
+      while (digits < MAGNITUDES && value >= POWERS_OF_TEN[digits])
+      {
+         digits++;
+      }
+      for (int power = digits - 1; power >= 0; power--)
+      {
+         builder.append((char) (zeroDigit + value / POWERS_OF_TEN[power] % 10));
+         if (groupingSize > 0 && power > 0 && power % groupingSize == 0)
+         {
+            builder.append(groupingSeparator);
+         }
+      }
+   }
+
+   private void appendInteger(final long value, final int minimumDigits, final StringBuilder builder)
+   {
+      int digits = 1;
+      while (digits < MAGNITUDES && value >= POWERS_OF_TEN[digits])
+      {
+         digits++;
+      }
+      for (int power = Math.max(digits, minimumDigits) - 1; power >= 0; power--)
+      {
+         builder.append((char) (zeroDigit + value / POWERS_OF_TEN[power] % 10));
+      }
+   }
+
+   private String formatWithJdk(final long number)
+   {
+      synchronized (format)
+      {
+         return format.format(number);
+      }
+   }
+
+   private static long divideHalfEven(final long dividend, final long divisor)
+   {
+      final long quotient = dividend / divisor;
+      final long twiceRemainder = (dividend - quotient * divisor) * 2;
+      return twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)
+         ? quotient + 1
+         : quotient;
+   }
+
+   /**
+    * @return Learned entry of the magnitude, sign, and rounded value or
+    *    {@code null} if none has been learned.
+    */
+   private Entry lookUp(final int magnitudeAndSign, final long value)
+   {
+      if (value < rowLength)
+      {
+         final Entry[] row = rows.get(magnitudeAndSign);
+         return row != null ? row[(int) value] : null;
+      }
+      final Entry entry = sparseEntries[sparseSlot(magnitudeAndSign, value)];
+      return entry != null && entry.magnitudeAndSign == magnitudeAndSign && entry.value == value ? entry : null;
+   }
+
+   private void store(final Entry entry)
+   {
+      if (entry.value < rowLength)
+      {
+         Entry[] row = rows.get(entry.magnitudeAndSign);
+         if (row == null)
+         {
+            rows.compareAndSet(entry.magnitudeAndSign, null, new Entry[rowLength]);
+            row = rows.get(entry.magnitudeAndSign);
+         }
+         row[(int) entry.value] = entry;
+      }
+      else
+      {
+         sparseEntries[sparseSlot(entry.magnitudeAndSign, entry.value)] = entry;
+      }
+   }
+
+   private static int sparseSlot(final int magnitudeAndSign, final long value)
+   {
+      return (int) ((value * 0x9E3779B97F4A7C15L + magnitudeAndSign) >>> 56) & (SPARSE_ENTRIES - 1);
+   }
+
+   private static boolean hasAttribute(
+      final AttributedCharacterIterator iterator, final AttributedCharacterIterator.Attribute attribute)
+   {
+      return iterator.getAllAttributeKeys().contains(attribute);
+   }
+
+   /**
+    * @return First character having the attribute or
+    *    {@link CharacterIterator#DONE} if none has it.
+    */
+   private static char firstCharacter(
+      final AttributedCharacterIterator iterator, final AttributedCharacterIterator.Attribute attribute)
+   {
+      for (char character = iterator.first(); character != CharacterIterator.DONE; character = iterator.next())
+      {
+         if (iterator.getAttribute(attribute) != null)
+         {
+            return character;
+         }
+      }
+      return CharacterIterator.DONE;
+   }
+
+   /**
+    * @return Value of the integer digits of a formatted number or
+    *    {@code -1} if it has none.
+    */
+   private static long integerValue(final AttributedCharacterIterator iterator)
+   {
+      long value = -1;
+      for (char character = iterator.first(); character != CharacterIterator.DONE; character = iterator.next())
+      {
+         if (iterator.getAttribute(NumberFormat.Field.INTEGER) != null
+            && Character.isDigit(character))
+         {
+            value = Math.max(value, 0) * 10 + Character.digit(character, 10);
+         }
+      }
+      return value;
+   }
+}
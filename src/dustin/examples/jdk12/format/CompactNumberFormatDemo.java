@@ -16,32 +16,16 @@ import java.util.Map;
  */
 public class CompactNumberFormatDemo
 {
-   /**
-    * Generates standardized map of labels to Compact Number Format
-    * instances described by the labels. The instances of {@code NumberFormat}
-    * are created with Locale and Style only.
-    *
-    * @return Mapping of label to an instance of a Compact Number Format
-    *    consisting of a Locale and Style that is described by the label.
-    */
-   private static Map<String, NumberFormat> generateCompactNumberFormats()
-   {
-      var numberFormats = new LinkedHashMap<String, NumberFormat>();
-      numberFormats.put("Default", NumberFormat.getCompactNumberInstance());
-      numberFormats.put("US/Long", NumberFormat.getCompactNumberInstance(Locale.US, NumberFormat.Style.LONG));
-      numberFormats.put("UK/Short", NumberFormat.getCompactNumberInstance(Locale.UK, NumberFormat.Style.SHORT));
-      numberFormats.put("UK/Long", NumberFormat.getCompactNumberInstance(Locale.UK, NumberFormat.Style.LONG));
-      numberFormats.put("FR/Short", NumberFormat.getCompactNumberInstance(Locale.FRANCE, NumberFormat.Style.SHORT));
-      numberFormats.put("FR/Long", NumberFormat.getCompactNumberInstance(Locale.FRANCE, NumberFormat.Style.LONG));
-      numberFormats.put("DE/Short", NumberFormat.getCompactNumberInstance(Locale.GERMANY, NumberFormat.Style.SHORT));
-      numberFormats.put("DE/Long", NumberFormat.getCompactNumberInstance(Locale.GERMANY, NumberFormat.Style.LONG));
-      numberFormats.put("IT/Short", NumberFormat.getCompactNumberInstance(Locale.ITALY, NumberFormat.Style.SHORT));
-      numberFormats.put("IT/Long", NumberFormat.getCompactNumberInstance(Locale.ITALY, NumberFormat.Style.LONG));
-      numberFormats.put("ES/Short", NumberFormat.getCompactNumberInstance(new Locale("es", "ES"), NumberFormat.Style.SHORT));
-      numberFormats.put("ES/Long", NumberFormat.getCompactNumberInstance(new Locale("es", "ES"), NumberFormat.Style.LONG));
-      numberFormats.put("DE/Custom", generateCustomizedGermanCompactNumberFormat());
-      return numberFormats;
-   }
+   /** Shared cache of thread-safe compact number formats by locale and style. */
+   private static final CompactNumberFormatPool FORMATS = new CompactNumberFormatPool();
+
+   /** Compact number formats by label, created once and shared by every demonstration. */
+   private static final Map<String, StripedNumberFormat> COMPACT_NUMBER_FORMATS
+      = generateCompactNumberFormats(-1);
+
+   /** Compact number formats by label with a single minimum fraction digit. */
+   private static final Map<String, StripedNumberFormat> COMPACT_NUMBER_FORMATS_ONE_FRACTION_DIGIT
+      = generateCompactNumberFormats(1);
 
    /**
     * Provides an instance of {@code CompactNumberFormat} that has been
@@ -53,7 +37,7 @@ public class CompactNumberFormatDemo
     * @return Instance of {@code CompactNumberFormat} with customized
     *    alternate German compact pattern representations.
     */
-   private static CompactNumberFormat generateCustomizedGermanCompactNumberFormat()
+   static CompactNumberFormat generateCustomizedGermanCompactNumberFormat()
    {
       final String[] germanyGermanCompactPatterns
          = {"", "", "", "0k", "00k", "000k", "0m", "00m", "000m", "0b", "00b", "000b", "0t", "00t", "000t"};
@@ -97,22 +81,39 @@ public class CompactNumberFormatDemo
 
    /**
     * Generates standardized map of labels to Compact Number Format
-    * instances described by the labels. The instances of {@code NumberFormat}
-    * are created with Locale and Style only and with the provided number
-    * of minimum fractional digits.
+    * instances described by the labels. The instances are obtained from
+    * {@link #FORMATS} by Locale and Style, so their patterns are parsed
+    * only once, and with the provided number of minimum fractional digits.
     *
     * @param minimumNumberFractionDigits Minimum number of fractional digits
-    *    for each {@code NumberFormat} value in my returned mapping.
-    * @return Mapping of label to an instance of a Compact Number Format
+    *    for each format in my returned mapping or a negative value for each
+    *    format's default.
+    * @return Mapping of label to a thread-safe Compact Number Format
     *    consisting of a Locale, Style, and specified minimum number of fractional
     *    digits that is described by the label.
     */
-   private static Map<String, NumberFormat> generateCompactNumberFormats(
+   private static Map<String, StripedNumberFormat> generateCompactNumberFormats(
       final int minimumNumberFractionDigits)
    {
-      var numberFormats = generateCompactNumberFormats();
-      numberFormats.forEach((label, numberFormat) ->
-         numberFormat.setMinimumFractionDigits(minimumNumberFractionDigits));
+      var numberFormats = new LinkedHashMap<String, StripedNumberFormat>();
+      numberFormats.put("Default", FORMATS.get(Locale.getDefault(Locale.Category.FORMAT), NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("US/Long", FORMATS.get(Locale.US, NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      numberFormats.put("UK/Short", FORMATS.get(Locale.UK, NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("UK/Long", FORMATS.get(Locale.UK, NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      numberFormats.put("FR/Short", FORMATS.get(Locale.FRANCE, NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("FR/Long", FORMATS.get(Locale.FRANCE, NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      numberFormats.put("DE/Short", FORMATS.get(Locale.GERMANY, NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("DE/Long", FORMATS.get(Locale.GERMANY, NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      numberFormats.put("IT/Short", FORMATS.get(Locale.ITALY, NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("IT/Long", FORMATS.get(Locale.ITALY, NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      numberFormats.put("ES/Short", FORMATS.get(Locale.forLanguageTag("es-ES"), NumberFormat.Style.SHORT, minimumNumberFractionDigits));
+      numberFormats.put("ES/Long", FORMATS.get(Locale.forLanguageTag("es-ES"), NumberFormat.Style.LONG, minimumNumberFractionDigits));
+      final CompactNumberFormat customGermanFormat = generateCustomizedGermanCompactNumberFormat();
+      if (minimumNumberFractionDigits >= 0)
+      {
+         customGermanFormat.setMinimumFractionDigits(minimumNumberFractionDigits);
+      }
+      numberFormats.put("DE/Custom", new StripedNumberFormat(customGermanFormat));
       return numberFormats;
    }
 
@@ -125,7 +126,7 @@ public class CompactNumberFormatDemo
     */
    private static void demonstrateCompactNumberFormatting(final long numberToFormat)
    {
-      final Map<String, NumberFormat> numberFormats = generateCompactNumberFormats();
+      final Map<String, StripedNumberFormat> numberFormats = COMPACT_NUMBER_FORMATS;
       out.println("Demonstrating Compact Number Formatting on long '" + numberToFormat + "':");
       numberFormats.forEach((label, numberFormat) ->
          out.println("\t" +  label + ": " + numberFormat.format(numberToFormat))
@@ -141,7 +142,7 @@ public class CompactNumberFormatDemo
     */
    private static void demonstrateCompactNumberFormatting(final double numberToFormat)
    {
-      final Map<String, NumberFormat> numberFormats = generateCompactNumberFormats();
+      final Map<String, StripedNumberFormat> numberFormats = COMPACT_NUMBER_FORMATS;
       out.println("Demonstrating Compact Number Formatting on double '" + numberToFormat + "':");
       numberFormats.forEach((label, numberFormat) ->
          out.println("\t" +  label + ": " + numberFormat.format(numberToFormat))
@@ -160,9 +161,7 @@ public class CompactNumberFormatDemo
    private static void demonstrateCompactNumberFormattingOneFractionalDigitMinimum(
       final long numberToFormat)
    {
-      final int minimumNumberFractionDigits = 1;
-      final Map<String, NumberFormat> numberFormats
-         = generateCompactNumberFormats(minimumNumberFractionDigits);
+      final Map<String, StripedNumberFormat> numberFormats = COMPACT_NUMBER_FORMATS_ONE_FRACTION_DIGIT;
       out.println(
          "Demonstrating Compact Number Formatting on long '" + numberToFormat
             + "' with 1 minimum fraction digit:");
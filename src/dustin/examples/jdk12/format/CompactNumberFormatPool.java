@@ -0,0 +1,143 @@
+package dustin.examples.jdk12.format;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent cache of thread-safe compact number formats keyed by
+ * {@link Locale}, {@link NumberFormat.Style}, and minimum number of
+ * fraction digits.
+ *
+ * {@link NumberFormat#getCompactNumberInstance(Locale, NumberFormat.Style)}
+ * looks up and parses the locale's compact patterns each time it is
+ * called, and the {@link NumberFormat} it returns may not be shared
+ * between threads. This cache calls it once per key and wraps the result
+ * in a {@link StripedNumberFormat} that any number of threads may use.
+ */
+public final class CompactNumberFormatPool
+{
+   private final Map<Key, StripedNumberFormat> formats = new ConcurrentHashMap<>();
+
+   private final int stripeCount;
+
+   /** Locale, style, and minimum fraction digits of a cached format. */
+   private static final class Key
+   {
+      private final Locale locale;
+      private final NumberFormat.Style style;
+      private final int minimumFractionDigits;
+
+      private Key(final Locale newLocale, final NumberFormat.Style newStyle, final int newMinimumFractionDigits)
+      {
+         locale = newLocale;
+         style = newStyle;
+         minimumFractionDigits = newMinimumFractionDigits;
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         if (this == other)
+         {
+            return true;
+         }
+         if (!(other instanceof Key))
+         {
+            return false;
+         }
+         final Key that = (Key) other;
+         return minimumFractionDigits == that.minimumFractionDigits
+            && style == that.style
+            && locale.equals(that.locale);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return Objects.hash(locale, style, minimumFractionDigits);
+      }
+   }
+
+   /**
+    * Instantiates a cache whose formats have two stripes per available
+    * processor.
+    */
+   public CompactNumberFormatPool()
+   {
+      this(2 * Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * @param newStripeCount Number of stripes of each cached format.
+    */
+   public CompactNumberFormatPool(final int newStripeCount)
+   {
+      if (newStripeCount <= 0)
+      {
+         throw new IllegalArgumentException("Stripe count must be positive: " + newStripeCount);
+      }
+      stripeCount = newStripeCount;
+   }
+
+   /**
+    * Provides the compact number format for the provided locale and style
+    * with the style's default minimum number of fraction digits.
+    *
+    * @param locale Locale of the format.
+    * @param style Style of the format.
+    * @return Thread-safe compact number format.
+    */
+   public StripedNumberFormat get(final Locale locale, final NumberFormat.Style style)
+   {
+      return get(locale, style, -1);
+   }
+
+   /**
+    * Provides the compact number format for the provided locale, style,
+    * and minimum number of fraction digits.
+    *
+    * @param locale Locale of the format.
+    * @param style Style of the format.
+    * @param minimumFractionDigits Minimum number of fraction digits or a
+    *    negative value for the format's default.
+    * @return Thread-safe compact number format.
+    */
+   public StripedNumberFormat get(
+      final Locale locale, final NumberFormat.Style style, final int minimumFractionDigits)
+   {
+      return formats.computeIfAbsent(new Key(locale, style, minimumFractionDigits), this::create);
+   }
+
+   /**
+    * Provides the short compact number format for the default
+    * {@link Locale.Category#FORMAT} locale, as
+    * {@link NumberFormat#getCompactNumberInstance()} would use.
+    *
+    * @return Thread-safe compact number format.
+    */
+   public StripedNumberFormat get()
+   {
+      return get(Locale.getDefault(Locale.Category.FORMAT), NumberFormat.Style.SHORT);
+   }
+
+   private StripedNumberFormat create(final Key key)
+   {
+      final NumberFormat prototype = NumberFormat.getCompactNumberInstance(key.locale, key.style);
+      if (key.minimumFractionDigits >= 0)
+      {
+         prototype.setMinimumFractionDigits(key.minimumFractionDigits);
+      }
+      return new StripedNumberFormat(prototype, stripeCount);
+   }
+
+   /**
+    * @return Number of cached formats.
+    */
+   public int size()
+   {
+      return formats.size();
+   }
+}
@@ -0,0 +1,146 @@
+package dustin.examples.jdk12.format;
+
+import static java.lang.System.out;
+
+import java.text.CompactNumberFormat;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Verifies that {@link CompactLongFormatter} formats {@code long} values
+ * identically to the {@code CompactNumberFormat}s demonstrated by
+ * {@link CompactNumberFormatDemo}.
+ */
+public class CompactNumberFormatVerification
+{
+   /** Locales demonstrated by {@link CompactNumberFormatDemo}. */
+   private static final List<Locale> DEMONSTRATED_LOCALES = List.of(
+      Locale.getDefault(Locale.Category.FORMAT), Locale.US, Locale.UK, Locale.FRANCE,
+      Locale.GERMANY, Locale.ITALY, Locale.forLanguageTag("es-ES"));
+
+   /** Number of values checked per format. */
+   private static final int DEFAULT_VERIFICATION_SAMPLE_COUNT = 100_000;
+
+   /** Number of mismatches written per format. */
+   private static final int MAXIMUM_MISMATCHES_WRITTEN = 5;
+
+   /**
+    * Provides a random {@code long} for checking formatting, favoring the
+    * values most likely to be formatted differently: powers of ten and
+    * their neighbors, values halfway between rounded values, and small
+    * values, each equally likely to be negative.
+    *
+    * @param random Source of randomness.
+    * @return Value to be formatted.
+    */
+   private static long generateVerificationValue(final ThreadLocalRandom random)
+   {
+      final long powerOfTen = (long) Math.pow(10, random.nextInt(19));
+      final long value;
+      switch (random.nextInt(5))
+      {
+         case 0:
+            value = powerOfTen + random.nextInt(3) - 1;
+            break;
+         case 1:
+            value = powerOfTen / 1000 * (random.nextInt(1_999_999) + 1) / 2 + random.nextInt(3) - 1;
+            break;
+         case 2:
+            value = random.nextLong() >> random.nextInt(64);
+            break;
+         case 3:
+            value = random.nextInt(100_000);
+            break;
+         default:
+            value = random.nextLong();
+      }
+      return random.nextBoolean() ? -value : value;
+   }
+
+   /**
+    * Checks that {@link CompactLongFormatter} formats random values
+    * identically to the provided {@code CompactNumberFormat}, writing
+    * the first few mismatches to standard output.
+    *
+    * @param label Description of the format.
+    * @param format Format whose output is expected.
+    * @param sampleCount Number of random values checked.
+    * @return Number of values formatted differently.
+    */
+   private static int verifyCompactLongFormatter(
+      final String label, final CompactNumberFormat format, final int sampleCount)
+   {
+      final CompactLongFormatter formatter = new CompactLongFormatter(format);
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final StringBuilder builder = new StringBuilder();
+      int mismatches = 0;
+      for (int sample = 0; sample < sampleCount; sample++)
+      {
+         final long value = sample == 0 ? Long.MIN_VALUE : sample == 1 ? Long.MAX_VALUE : generateVerificationValue(random);
+         builder.setLength(0);
+         final String expected = format.format(value);
+         if (!expected.contentEquals(formatter.format(value, builder)))
+         {
+            if (mismatches++ < MAXIMUM_MISMATCHES_WRITTEN)
+            {
+               out.println("ERROR: " + label + " formats " + value + " as '" + expected
+                  + "' but CompactLongFormatter formats it as '" + builder + "'.");
+            }
+         }
+      }
+      return mismatches;
+   }
+
+   /**
+    * Checks {@link CompactLongFormatter} against each locale and style
+    * demonstrated, and the customized German format, with and without a
+    * minimum fraction digit.
+    *
+    * @param sampleCount Number of random values checked per format.
+    */
+   private static void verifyCompactLongFormatters(final int sampleCount)
+   {
+      int formats = 0;
+      int mismatches = 0;
+      for (final int minimumFractionDigits : new int[] {-1, 1})
+      {
+         final String fractionLabel = minimumFractionDigits < 0 ? "" : " with 1 minimum fraction digit";
+         for (final Locale locale : DEMONSTRATED_LOCALES)
+         {
+            for (final NumberFormat.Style style : NumberFormat.Style.values())
+            {
+               final CompactNumberFormat format
+                  = (CompactNumberFormat) NumberFormat.getCompactNumberInstance(locale, style);
+               if (minimumFractionDigits >= 0)
+               {
+                  format.setMinimumFractionDigits(minimumFractionDigits);
+               }
+               mismatches += verifyCompactLongFormatter(locale + "/" + style + fractionLabel, format, sampleCount);
+               formats++;
+            }
+         }
+         final CompactNumberFormat customGermanFormat = CompactNumberFormatDemo.generateCustomizedGermanCompactNumberFormat();
+         if (minimumFractionDigits >= 0)
+         {
+            customGermanFormat.setMinimumFractionDigits(minimumFractionDigits);
+         }
+         mismatches += verifyCompactLongFormatter("DE/Custom" + fractionLabel, customGermanFormat, sampleCount);
+         formats++;
+      }
+      out.println("Checked " + sampleCount + " values in each of " + formats + " formats: "
+         + mismatches + " formatted differently by CompactLongFormatter.");
+   }
+
+   /**
+    * Main verification executable.
+    * @param arguments Command-line arguments: an optional number of
+    *    values checked per format (default 100,000).
+    */
+   public static void main(final String[] arguments)
+   {
+      verifyCompactLongFormatters(
+         arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_VERIFICATION_SAMPLE_COUNT);
+   }
+}
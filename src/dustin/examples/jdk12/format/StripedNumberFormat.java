@@ -0,0 +1,99 @@
+package dustin.examples.jdk12.format;
+
+import java.text.NumberFormat;
+
+/**
+ * Thread-safe wrapper of a {@link NumberFormat}, which is not itself safe
+ * for use by multiple threads, that spreads concurrent formatting across a
+ * fixed set of clones of a prototype.
+ *
+ * Each clone is guarded by its own lock and a thread formats with the
+ * clone in the stripe chosen by its thread's identity hash code, so
+ * threads contend only when they hash to the same stripe. The clones
+ * are created once, when this wrapper is, by {@link NumberFormat#clone()},
+ * which copies the prototype's already parsed patterns rather than
+ * parsing them again.
+ */
+public final class StripedNumberFormat
+{
+   private final NumberFormat[] stripes;
+
+   private final int mask;
+
+   /**
+    * Instantiates a wrapper with two stripes per available processor.
+    *
+    * @param prototype Format whose clones do the formatting; it is not
+    *    used after construction and later changes to it have no effect.
+    */
+   public StripedNumberFormat(final NumberFormat prototype)
+   {
+      this(prototype, 2 * Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * @param prototype Format whose clones do the formatting; it is not
+    *    used after construction and later changes to it have no effect.
+    * @param stripeCount Number of clones; rounded up to a power of two.
+    */
+   public StripedNumberFormat(final NumberFormat prototype, final int stripeCount)
+   {
+      if (stripeCount <= 0)
+      {
+         throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+      }
+      final int length = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+      stripes = new NumberFormat[length];
+      for (int stripe = 0; stripe < length; stripe++)
+      {
+         stripes[stripe] = (NumberFormat) prototype.clone();
+      }
+      mask = length - 1;
+   }
+
+   /**
+    * @return Clone used by the current thread.
+    */
+   private NumberFormat stripe()
+   {
+      return stripes[(System.identityHashCode(Thread.currentThread()) * 0x9E3779B9 >>> 16) & mask];
+   }
+
+   /**
+    * Formats the provided {@code long}.
+    *
+    * @param number Number to be formatted.
+    * @return Formatted number.
+    */
+   public String format(final long number)
+   {
+      final NumberFormat format = stripe();
+      synchronized (format)
+      {
+         return format.format(number);
+      }
+   }
+
+   /**
+    * Formats the provided {@code double}.
+    *
+    * @param number Number to be formatted.
+    * @return Formatted number.
+    */
+   public String format(final double number)
+   {
+      final NumberFormat format = stripe();
+      synchronized (format)
+      {
+         return format.format(number);
+      }
+   }
+
+   /**
+    * @return Number of clones formatting is spread across.
+    */
+   public int getStripeCount()
+   {
+      return stripes.length;
+   }
+}
@@ -0,0 +1,231 @@
+package dustin.examples.jdk16.datetime;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent cache of {@link DateTimeFormatter}s keyed by pattern and
+ * {@link Locale} so that a pattern is parsed by
+ * {@link DateTimeFormatter#ofPattern(String, Locale)} once per locale
+ * rather than on every use.
+ *
+ * Lookups are lock-free reads of nested {@link ConcurrentHashMap}s (by
+ * locale, then by pattern) that allocate no key object. The cache holds
+ * at most a configured number of formatters; when a new formatter would
+ * exceed that, the least recently used formatters are evicted. Recency
+ * is tracked with a logical clock that advances on each miss, so a hit
+ * writes to its entry only the first time it is used after a miss
+ * rather than on every use.
+ */
+public class DateTimeFormatterCache
+{
+   /** Default maximum number of cached formatters. */
+   public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+   private final int maximumSize;
+
+   private final Map<Locale, Map<String, Entry>> formattersByLocale = new ConcurrentHashMap<>();
+
+   private final LongAdder hits = new LongAdder();
+
+   private final LongAdder misses = new LongAdder();
+
+   private final LongAdder evictions = new LongAdder();
+
+   /** Number of cached formatters; updated only while holding this cache's lock. */
+   private volatile int size;
+
+   /** Logical time, advanced on each miss. */
+   private volatile long clock;
+
+   /** A cached formatter and the logical time at which it was last used. */
+   private static final class Entry
+   {
+      private final DateTimeFormatter formatter;
+      private volatile long lastUsed;
+
+      private Entry(final DateTimeFormatter newFormatter, final long newLastUsed)
+      {
+         formatter = newFormatter;
+         lastUsed = newLastUsed;
+      }
+   }
+
+   /**
+    * Instantiates a cache holding at most {@link #DEFAULT_MAXIMUM_SIZE}
+    * formatters.
+    */
+   public DateTimeFormatterCache()
+   {
+      this(DEFAULT_MAXIMUM_SIZE);
+   }
+
+   /**
+    * @param newMaximumSize Maximum number of cached formatters.
+    */
+   public DateTimeFormatterCache(final int newMaximumSize)
+   {
+      if (newMaximumSize <= 0)
+      {
+         throw new IllegalArgumentException("Maximum size must be positive: " + newMaximumSize);
+      }
+      maximumSize = newMaximumSize;
+   }
+
+   /**
+    * Provides the formatter for the provided pattern and locale, creating
+    * and caching it if it is not already cached.
+    *
+    * @param pattern Pattern as accepted by {@link DateTimeFormatter#ofPattern(String, Locale)}.
+    * @param locale Locale of the formatter.
+    * @return Formatter for the provided pattern and locale.
+    * @throws IllegalArgumentException Thrown if the pattern is invalid.
+    */
+   public DateTimeFormatter get(final String pattern, final Locale locale)
+   {
+      final Map<String, Entry> formatters = formattersByLocale.get(locale);
+      final Entry entry = formatters != null ? formatters.get(pattern) : null;
+      if (entry != null)
+      {
+         hits.increment();
+         final long now = clock;
+         if (entry.lastUsed != now)
+         {
+            entry.lastUsed = now;
+         }
+         return entry.formatter;
+      }
+      return add(pattern, locale);
+   }
+
+   /**
+    * Provides the formatter for the provided pattern and the default
+    * {@link Locale.Category#FORMAT} locale, as
+    * {@link DateTimeFormatter#ofPattern(String)} would use.
+    *
+    * @param pattern Pattern as accepted by {@link DateTimeFormatter#ofPattern(String)}.
+    * @return Formatter for the provided pattern.
+    */
+   public DateTimeFormatter get(final String pattern)
+   {
+      return get(pattern, Locale.getDefault(Locale.Category.FORMAT));
+   }
+
+   /**
+    * Creates and caches the formatter for the provided pattern and
+    * locale, evicting least recently used formatters if the cache is full.
+    * Counts a miss only if a formatter is created and a hit if another
+    * thread cached it first.
+    */
+   private synchronized DateTimeFormatter add(final String pattern, final Locale locale)
+   {
+      final Map<String, Entry> formatters =
+         formattersByLocale.computeIfAbsent(locale, newLocale -> new ConcurrentHashMap<>());
+      final Entry existing = formatters.get(pattern);
+      if (existing != null)
+      {
+         // Another thread added it while this one awaited the lock.
+         hits.increment();
+         existing.lastUsed = clock;
+         return existing.formatter;
+      }
+      final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, locale);
+      misses.increment();
+      while (size >= maximumSize)
+      {
+         evictLeastRecentlyUsed();
+      }
+      final long now = clock + 1;
+      clock = now;
+      formatters.put(pattern, new Entry(formatter, now));
+      size++;
+      return formatter;
+   }
+
+   /**
+    * Removes the least recently used formatter; called with this cache's
+    * lock held.
+    */
+   private void evictLeastRecentlyUsed()
+   {
+      Map<String, Entry> oldestFormatters = null;
+      String oldestPattern = null;
+      long oldestUse = Long.MAX_VALUE;
+      for (final Map<String, Entry> formatters : formattersByLocale.values())
+      {
+         for (final Map.Entry<String, Entry> cached : formatters.entrySet())
+         {
+            if (cached.getValue().lastUsed < oldestUse)
+            {
+               oldestUse = cached.getValue().lastUsed;
+               oldestPattern = cached.getKey();
+               oldestFormatters = formatters;
+            }
+         }
+      }
+      oldestFormatters.remove(oldestPattern);
+      size--;
+      evictions.increment();
+   }
+
+   /**
+    * Creates and caches the formatter for every combination of the
+    * provided patterns and locales so that later lookups hit.
+    *
+    * @param patterns Patterns to be cached.
+    * @param locales Locales for which each pattern is cached.
+    */
+   public void prewarm(final Collection<String> patterns, final Collection<Locale> locales)
+   {
+      for (final Locale locale : locales)
+      {
+         for (final String pattern : patterns)
+         {
+            get(pattern, locale);
+         }
+      }
+   }
+
+   /**
+    * @return Number of lookups that found a cached formatter.
+    */
+   public long getHitCount()
+   {
+      return hits.sum();
+   }
+
+   /**
+    * @return Number of lookups that created a formatter.
+    */
+   public long getMissCount()
+   {
+      return misses.sum();
+   }
+
+   /**
+    * @return Number of formatters evicted to stay within the maximum size.
+    */
+   public long getEvictionCount()
+   {
+      return evictions.sum();
+   }
+
+   /**
+    * @return Number of cached formatters.
+    */
+   public int size()
+   {
+      return size;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "DateTimeFormatterCache[size=" + size + "/" + maximumSize + ", hits=" + getHitCount()
+         + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+   }
+}
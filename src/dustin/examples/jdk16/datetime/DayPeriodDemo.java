@@ -10,6 +10,8 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.IllformedLocaleException;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -24,6 +26,12 @@ public class DayPeriodDemo
    /** Default Locale if country/language are not otherwise specified. */
    private final static Locale DEFAULT_LOCAL = Locale.US;
 
+   /** Patterns with which this demonstration formats date/times. */
+   final static List<String> DAY_PERIOD_PATTERNS = List.of("B", "hh B", "hh B, zzzz", "K:mm B z");
+
+   /** Formatters for this demonstration's patterns, keyed by pattern and locale. */
+   private final static DateTimeFormatterCache FORMATTERS = new DateTimeFormatterCache();
+
    /**
     * Writes the current day period out to standard output.
     *
@@ -33,7 +41,7 @@ public class DayPeriodDemo
    public void printCurrentDayPeriod()
    {
       final String currentDayPeriodStr
-         = DateTimeFormatter.ofPattern("B").format(LocalTime.now());
+         = FORMATTERS.get("B").format(LocalTime.now());
       out.println("Pattern 'B' (time now): \"" + currentDayPeriodStr + "\"");
    }
 
@@ -47,7 +55,7 @@ public class DayPeriodDemo
    public void printHourDayPeriodAndZone(final ZonedDateTime zonedDateTime)
    {
       final String dateTimeStr
-         = DateTimeFormatter.ofPattern("hh B, zzzz").format(zonedDateTime);
+         = FORMATTERS.get("hh B, zzzz").format(zonedDateTime);
       out.println("Hour/Day Period/Zone: \"" + dateTimeStr + "\"");
    }
 
@@ -61,7 +69,7 @@ public class DayPeriodDemo
    public void printHourDayMinutePeriodAndZone(final ZonedDateTime zonedDateTime)
    {
       final String dateTimeStr
-         = DateTimeFormatter.ofPattern("K:mm B z").format(zonedDateTime);
+         = FORMATTERS.get("K:mm B z").format(zonedDateTime);
       out.println("Hour/Minute/Day Period/Zone: \"" + dateTimeStr + "\"");
    }
 
@@ -72,7 +80,7 @@ public class DayPeriodDemo
    public void printDayPeriodsByHour()
    {
       out.println("===== Hours With Non-Zero Minutes/Seconds/Nanoseconds =====");
-      final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("hh B");
+      final DateTimeFormatter dateTimeFormat = FORMATTERS.get("hh B");
       for (int hour = 0; hour < 24; hour++)
       {
          final OffsetDateTime dateTime
@@ -88,7 +96,7 @@ public class DayPeriodDemo
    public void printDayPeriodsByWholeHours()
    {
       out.println("===== Exact Hours =====");
-      final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("hh B");
+      final DateTimeFormatter dateTimeFormat = FORMATTERS.get("hh B");
       for (int hour = 0; hour < 24; hour++)
       {
          final OffsetDateTime dateTime = OffsetDateTime.of(
@@ -97,6 +105,21 @@ public class DayPeriodDemo
       }
    }
 
+   /**
+    * Prints Day Period phraseology for each of 24 hours of day looked up
+    * in the {@link DayPeriodTable} of the default locale, which matches
+    * formatting with pattern "B", to standard output.
+    */
+   public void printDayPeriodsByHourFromTable()
+   {
+      out.println("===== Exact Hours From Day Period Table =====");
+      final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+      for (int hour = 0; hour < 24; hour++)
+      {
+         out.println("Hour " + hour + ": \"" + DayPeriodTable.dayPeriod(LocalTime.of(hour, 0), locale) + "\"");
+      }
+   }
+
    /**
     * Demonstrates day period formatting.
     *
@@ -110,7 +133,14 @@ public class DayPeriodDemo
       Locale localeToSet = null;
       if (arguments.length > 1)
       {
-         localeToSet = new Locale(arguments[0], arguments[1]);
+         try
+         {
+            localeToSet = new Locale.Builder().setLanguage(arguments[0]).setRegion(arguments[1]).build();
+         }
+         catch (IllformedLocaleException illformedLocale)
+         {
+            // Reported below along with missing arguments.
+         }
       }
 
       if (localeToSet == null)
@@ -123,6 +153,7 @@ public class DayPeriodDemo
 
       out.println("Setting Locale to " + localeToSet);
       Locale.setDefault(localeToSet);
+      FORMATTERS.prewarm(DAY_PERIOD_PATTERNS, List.of(localeToSet));
 
       final DayPeriodDemo instance = new DayPeriodDemo();
       instance.printCurrentDayPeriod();
@@ -132,5 +163,7 @@ public class DayPeriodDemo
       instance.printHourDayMinutePeriodAndZone(now);
       instance.printDayPeriodsByHour();
       instance.printDayPeriodsByWholeHours();
+      instance.printDayPeriodsByHourFromTable();
+      out.println(FORMATTERS);
    }
 }
@@ -0,0 +1,100 @@
+package dustin.examples.jdk16.datetime;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Constant-time lookup of the day period (the output of pattern "B",
+ * such as "in the morning" or "at night") for a time of day and locale.
+ *
+ * The day period a {@link DateTimeFormatter} renders for pattern "B"
+ * depends only on the locale and the minute of the day, so the first
+ * lookup for a locale formats each of the day's 1440 minutes once with
+ * the JDK's formatter and keeps the results, interned, in a table
+ * indexed by minute of day. Later lookups for that locale are an array
+ * index. Tables are computed at most once per locale and are safe to
+ * use from any number of threads.
+ */
+public final class DayPeriodTable
+{
+   /** Number of minutes in a day and so entries in each locale's table. */
+   public static final int MINUTES_PER_DAY = 24 * 60;
+
+   private static final Map<Locale, String[]> TABLES = new ConcurrentHashMap<>();
+
+   private DayPeriodTable()
+   {
+   }
+
+   /**
+    * Provides the day period of the provided time in the provided locale.
+    *
+    * @param time Time of day.
+    * @param locale Locale of the day period.
+    * @return Day period, identical to formatting the time with pattern
+    *    "B" in the provided locale.
+    */
+   public static String dayPeriod(final LocalTime time, final Locale locale)
+   {
+      return dayPeriod(time.getHour() * 60 + time.getMinute(), locale);
+   }
+
+   /**
+    * Provides the day period of the provided minute of the day in the
+    * provided locale.
+    *
+    * @param minuteOfDay Minute of the day, from 0 to 1439.
+    * @param locale Locale of the day period.
+    * @return Day period, identical to formatting a time in that minute
+    *    with pattern "B" in the provided locale.
+    */
+   public static String dayPeriod(final int minuteOfDay, final Locale locale)
+   {
+      return table(locale)[minuteOfDay];
+   }
+
+   /**
+    * Computes the tables of the provided locales ahead of their first
+    * lookups.
+    *
+    * @param locales Locales whose tables are computed.
+    */
+   public static void prewarm(final Iterable<Locale> locales)
+   {
+      for (final Locale locale : locales)
+      {
+         table(locale);
+      }
+   }
+
+   /**
+    * @param locale Locale whose table is to be provided.
+    * @return Day period of each minute of the day in the provided locale.
+    */
+   private static String[] table(final Locale locale)
+   {
+      final String[] table = TABLES.get(locale);
+      return table != null ? table : TABLES.computeIfAbsent(locale, DayPeriodTable::computeTable);
+   }
+
+   /**
+    * @param locale Locale whose table is to be computed.
+    * @return Day period of each minute of the day in the provided locale.
+    */
+   private static String[] computeTable(final Locale locale)
+   {
+      final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("B", locale);
+      final Map<String, String> distinct = new HashMap<>();
+      final String[] table = new String[MINUTES_PER_DAY];
+      for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++)
+      {
+         final String dayPeriod = formatter.format(LocalTime.of(minuteOfDay / 60, minuteOfDay % 60));
+         table[minuteOfDay] = distinct.computeIfAbsent(dayPeriod, String::intern);
+      }
+      return table;
+   }
+}
@@ -0,0 +1,650 @@
+package dustin.examples.jdk17.hex;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Bulk hexadecimal encoder and decoder of byte arrays and
+ * {@link ByteBuffer}s whose text is exactly that of a {@link HexFormat}:
+ * {@link #formatHex(byte[])} returns what {@link HexFormat#formatHex(byte[])}
+ * returns, and {@link #parseHex(CharSequence)} accepts and rejects what
+ * {@link HexFormat#parseHex(CharSequence)} does. Encoded text is written
+ * to bytes as UTF-8, which for hexadecimal digits is ASCII.
+ *
+ * Without delimiter, prefix, or suffix, eight bytes at a time are read
+ * as a {@code long}, each of their nibbles is spread into its own byte
+ * of two {@code long}s, and the nibbles are turned into digits with
+ * arithmetic on all eight bytes at once (SWAR: SIMD within a register);
+ * otherwise each byte's prefix, digits, suffix, and delimiter are copied
+ * together from a table of the text of every byte value. When the
+ * {@code jdk.incubator.vector} module is resolved (with
+ * {@code --add-modules jdk.incubator.vector}) and the optional
+ * {@code src/vector} classes are on the class path, the bulk of a plain
+ * byte array is instead encoded a vector at a time with the Vector
+ * API; direct buffers, delimited formats, and decoding are not
+ * vectorized.
+ *
+ * Memory outside the heap, such as a mapped file or a
+ * {@code java.lang.foreign.MemorySegment} (through its
+ * {@code asByteBuffer()} view), is encoded through a direct
+ * {@link ByteBuffer}.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class HexCodec
+{
+   /** Reads and writes a {@code long} at any index of a byte array. */
+   private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+   /** Encoder of the bulk of plain byte arrays, or {@code null} to encode them eight bytes at a time. */
+   private static final PlainHexEncoder BULK_ENCODER = PlainHexEncoder.fastest();
+
+   private static final byte[] LOWER_CASE_DIGITS = newDigitTable("0123456789abcdef");
+
+   private static final byte[] UPPER_CASE_DIGITS = newDigitTable("0123456789ABCDEF");
+
+   /** Value of each hexadecimal digit, by unsigned byte; -1 for other bytes. */
+   private static final byte[] NIBBLES = new byte[256];
+
+   static
+   {
+      for (int character = 0; character < NIBBLES.length; character++)
+      {
+         NIBBLES[character] = (byte) Character.digit(character < 128 ? character : -1, 16);
+      }
+   }
+
+   private final HexFormat hexFormat;
+
+   /** Two digits for each unsigned byte value. */
+   private final byte[] digits;
+
+   /** Added to a nibble of ten or more, beyond '0', to reach its letter. */
+   private final long letterOffset;
+
+   private final byte[] delimiter;
+
+   private final byte[] prefix;
+
+   private final byte[] suffix;
+
+   /** Length of the text of one byte followed by the delimiter. */
+   private final int stride;
+
+   /**
+    * Text of each unsigned byte value, prefix, digits, and suffix,
+    * followed by the delimiter, in consecutive records of stride bytes.
+    */
+   private final byte[] records;
+
+   /**
+    * Records of at most eight bytes as the first bytes of a {@code long},
+    * most significant first, or {@code null} if records are longer.
+    */
+   private final long[] recordWords;
+
+   /** No delimiter, prefix, or suffix. */
+   private final boolean plain;
+
+   /** Delimiter, prefix, and suffix are all ASCII. */
+   private final boolean ascii;
+
+   /**
+    * @param newHexFormat Format whose case, delimiter, prefix, and
+    *    suffix are encoded and decoded.
+    */
+   private HexCodec(final HexFormat newHexFormat)
+   {
+      hexFormat = newHexFormat;
+      digits = newHexFormat.isUpperCase() ? UPPER_CASE_DIGITS : LOWER_CASE_DIGITS;
+      letterOffset = newHexFormat.isUpperCase() ? 'A' - '0' - 10 : 'a' - '0' - 10;
+      delimiter = newHexFormat.delimiter().getBytes(StandardCharsets.UTF_8);
+      prefix = newHexFormat.prefix().getBytes(StandardCharsets.UTF_8);
+      suffix = newHexFormat.suffix().getBytes(StandardCharsets.UTF_8);
+      plain = delimiter.length == 0 && prefix.length == 0 && suffix.length == 0;
+      stride = prefix.length + 2 + suffix.length + delimiter.length;
+      records = new byte[256 * stride];
+      for (int value = 0; value < 256; value++)
+      {
+         final int record = value * stride;
+         System.arraycopy(prefix, 0, records, record, prefix.length);
+         records[record + prefix.length] = digits[2 * value];
+         records[record + prefix.length + 1] = digits[2 * value + 1];
+         System.arraycopy(suffix, 0, records, record + prefix.length + 2, suffix.length);
+         System.arraycopy(delimiter, 0, records, record + prefix.length + 2 + suffix.length, delimiter.length);
+      }
+      recordWords = stride <= Long.BYTES ? new long[256] : null;
+      for (int value = 0; recordWords != null && value < 256; value++)
+      {
+         for (int character = 0; character < stride; character++)
+         {
+            recordWords[value] |= (records[value * stride + character] & 0xFFL) << (56 - 8 * character);
+         }
+      }
+      ascii = isAscii(newHexFormat.delimiter()) && isAscii(newHexFormat.prefix()) && isAscii(newHexFormat.suffix());
+   }
+
+   /**
+    * Provides a codec of the text of the provided format.
+    *
+    * @param hexFormat Format whose case, delimiter, prefix, and suffix
+    *    are encoded and decoded.
+    * @return Codec of the provided format.
+    */
+   public static HexCodec of(final HexFormat hexFormat)
+   {
+      return new HexCodec(Objects.requireNonNull(hexFormat, "hexFormat"));
+   }
+
+   private static byte[] newDigitTable(final String digitCharacters)
+   {
+      final byte[] table = new byte[512];
+      for (int value = 0; value < 256; value++)
+      {
+         table[2 * value] = (byte) digitCharacters.charAt(value >>> 4);
+         table[2 * value + 1] = (byte) digitCharacters.charAt(value & 0xF);
+      }
+      return table;
+   }
+
+   private static boolean isAscii(final String text)
+   {
+      for (int index = 0; index < text.length(); index++)
+      {
+         if (text.charAt(index) >= 128)
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return Format whose text this codec encodes and decodes.
+    */
+   public HexFormat getHexFormat()
+   {
+      return hexFormat;
+   }
+
+   /**
+    * Provides the number of bytes of UTF-8 text into which the provided
+    * number of bytes is encoded.
+    *
+    * @param byteCount Number of bytes to be encoded.
+    * @return Length of the encoded text in bytes.
+    */
+   public long encodedLength(final long byteCount)
+   {
+      if (byteCount < 0)
+      {
+         throw new IllegalArgumentException("Byte count must not be negative: " + byteCount);
+      }
+      if (byteCount == 0)
+      {
+         return 0;
+      }
+      return byteCount * (prefix.length + 2 + suffix.length) + (byteCount - 1) * delimiter.length;
+   }
+
+   /**
+    * Provides the number of bytes decoded from UTF-8 text of the provided
+    * length.
+    *
+    * @param textLength Length of the encoded text in bytes.
+    * @return Number of decoded bytes.
+    * @throws IllegalArgumentException Thrown if no text of this format
+    *    has the provided length.
+    */
+   public int decodedLength(final int textLength)
+   {
+      if (textLength < 0)
+      {
+         throw new IllegalArgumentException("Text length must not be negative: " + textLength);
+      }
+      if (textLength == 0)
+      {
+         return 0;
+      }
+      final long strides = (long) textLength + delimiter.length;
+      if (strides % stride != 0)
+      {
+         throw new IllegalArgumentException("Text of length " + textLength
+            + " is not a whole number of delimited values of prefix, two hexadecimal digits, and suffix");
+      }
+      return (int) (strides / stride);
+   }
+
+   /**
+    * Formats the provided bytes as {@link HexFormat#formatHex(byte[])}
+    * does.
+    *
+    * @param bytes Bytes to be formatted.
+    * @return Hexadecimal text.
+    */
+   public String formatHex(final byte[] bytes)
+   {
+      return formatHex(bytes, 0, bytes.length);
+   }
+
+   /**
+    * Formats a range of the provided bytes as
+    * {@link HexFormat#formatHex(byte[], int, int)} does.
+    *
+    * @param bytes Bytes to be formatted.
+    * @param fromIndex Index of the first byte formatted.
+    * @param toIndex Index following the last byte formatted.
+    * @return Hexadecimal text.
+    */
+   public String formatHex(final byte[] bytes, final int fromIndex, final int toIndex)
+   {
+      Objects.checkFromToIndex(fromIndex, toIndex, bytes.length);
+      if (!ascii)
+      {
+         return hexFormat.formatHex(bytes, fromIndex, toIndex);
+      }
+      final byte[] text = new byte[checkedLength(encodedLength(toIndex - fromIndex))];
+      encode(bytes, fromIndex, toIndex, text, 0);
+      return new String(text, StandardCharsets.ISO_8859_1);
+   }
+
+   /**
+    * Encodes a range of the provided bytes as UTF-8 text into the
+    * provided array.
+    *
+    * @param source Bytes to be encoded.
+    * @param fromIndex Index of the first byte encoded.
+    * @param toIndex Index following the last byte encoded.
+    * @param destination Array into which the text is written.
+    * @param offset Index in the destination of the first byte of text.
+    * @return Number of bytes of text written.
+    * @throws IllegalArgumentException Thrown if the text does not fit in
+    *    the destination from the provided offset.
+    */
+   public int encode(final byte[] source, final int fromIndex, final int toIndex,
+      final byte[] destination, final int offset)
+   {
+      Objects.checkFromToIndex(fromIndex, toIndex, source.length);
+      final long length = encodedLength(toIndex - fromIndex);
+      if (offset < 0 || offset > destination.length || length > destination.length - offset)
+      {
+         throw new IllegalArgumentException("Encoded length " + length + " does not fit in array of length "
+            + destination.length + " from offset " + offset);
+      }
+      if (plain)
+      {
+         encodePlain(source, fromIndex, toIndex, destination, offset);
+      }
+      else
+      {
+         encodeDelimited(source, fromIndex, toIndex, destination, offset);
+      }
+      return (int) length;
+   }
+
+   /**
+    * Encodes the bytes remaining in the provided source as UTF-8 text
+    * into the provided destination, advancing the position of both.
+    *
+    * @param source Bytes to be encoded, from its position to its limit.
+    * @param destination Buffer into which the text is written at its
+    *    position.
+    * @return Number of bytes of text written.
+    * @throws BufferOverflowException Thrown, with neither buffer changed,
+    *    if the text does not fit in the destination's remaining space.
+    */
+   public int encode(final ByteBuffer source, final ByteBuffer destination)
+   {
+      final int sourcePosition = source.position();
+      final int destinationPosition = destination.position();
+      final int sourceLength = source.remaining();
+      final long length = encodedLength(sourceLength);
+      if (length > destination.remaining())
+      {
+         throw new BufferOverflowException();
+      }
+      if (source.hasArray() && destination.hasArray())
+      {
+         final int from = source.arrayOffset() + sourcePosition;
+         encode(source.array(), from, from + sourceLength,
+            destination.array(), destination.arrayOffset() + destinationPosition);
+      }
+      else if (plain)
+      {
+         encodePlain(source, sourcePosition, sourcePosition + sourceLength, destination, destinationPosition);
+      }
+      else
+      {
+         encodeDelimited(source, sourcePosition, sourcePosition + sourceLength, destination, destinationPosition);
+      }
+      source.position(sourcePosition + sourceLength);
+      destination.position(destinationPosition + (int) length);
+      return (int) length;
+   }
+
+   private void encodePlain(final byte[] source, final int fromIndex, final int toIndex,
+      final byte[] destination, final int offset)
+   {
+      int index = fromIndex;
+      int position = offset;
+      if (BULK_ENCODER != null)
+      {
+         index = BULK_ENCODER.encode(source, fromIndex, toIndex, destination, offset, hexFormat.isUpperCase());
+         position = offset + 2 * (index - fromIndex);
+      }
+      for (; index <= toIndex - Long.BYTES; index += Long.BYTES)
+      {
+         final long word = (long) LONGS.get(source, index);
+         LONGS.set(destination, position, expand((int) (word >>> 32)));
+         LONGS.set(destination, position + Long.BYTES, expand((int) word));
+         position += 2 * Long.BYTES;
+      }
+      for (; index < toIndex; index++)
+      {
+         final int value = (source[index] & 0xFF) << 1;
+         destination[position++] = digits[value];
+         destination[position++] = digits[value + 1];
+      }
+   }
+
+   private void encodePlain(final ByteBuffer source, final int fromIndex, final int toIndex,
+      final ByteBuffer destination, final int offset)
+   {
+      final boolean swapSource = source.order() != ByteOrder.BIG_ENDIAN;
+      final boolean swapDestination = destination.order() != ByteOrder.BIG_ENDIAN;
+      int index = fromIndex;
+      int position = offset;
+      for (; index <= toIndex - Long.BYTES; index += Long.BYTES)
+      {
+         long word = source.getLong(index);
+         if (swapSource)
+         {
+            word = Long.reverseBytes(word);
+         }
+         final long high = expand((int) (word >>> 32));
+         final long low = expand((int) word);
+         destination.putLong(position, swapDestination ? Long.reverseBytes(high) : high);
+         destination.putLong(position + Long.BYTES, swapDestination ? Long.reverseBytes(low) : low);
+         position += 2 * Long.BYTES;
+      }
+      for (; index < toIndex; index++)
+      {
+         final int value = (source.get(index) & 0xFF) << 1;
+         destination.put(position++, digits[value]);
+         destination.put(position++, digits[value + 1]);
+      }
+   }
+
+   /**
+    * Spreads the eight nibbles of the provided value, most significant
+    * first, into the eight bytes of a {@code long}, most significant
+    * first, and turns each into its ASCII hexadecimal digit.
+    */
+   private long expand(final int value)
+   {
+      long nibbles = value & 0xFFFFFFFFL;
+      nibbles = ((nibbles & 0xFFFF0000L) << 16) | (nibbles & 0x0000FFFFL);
+      nibbles = ((nibbles & 0x0000FF000000FF00L) << 8) | (nibbles & 0x000000FF000000FFL);
+      nibbles = ((nibbles & 0x00F000F000F000F0L) << 4) | (nibbles & 0x000F000F000F000FL);
+      // 1 in each byte whose nibble is ten or more; adding 6 carries into bit 4 of that byte only.
+      final long letters = ((nibbles + 0x0606060606060606L) >>> 4) & 0x0101010101010101L;
+      return nibbles + 0x3030303030303030L + letters * letterOffset;
+   }
+
+   private void encodeDelimited(final byte[] source, final int fromIndex, final int toIndex,
+      final byte[] destination, final int offset)
+   {
+      int position = offset;
+      int index = fromIndex;
+      if (recordWords != null)
+      {
+         // Each record is written as one long, its excess bytes overwritten by the next record.
+         final int end = offset + (int) encodedLength(toIndex - fromIndex);
+         for (; index < toIndex && position + Long.BYTES <= end; index++)
+         {
+            LONGS.set(destination, position, recordWords[source[index] & 0xFF]);
+            position += stride;
+         }
+      }
+      for (; index < toIndex; index++)
+      {
+         final int record = (source[index] & 0xFF) * stride;
+         // The last byte's text is not followed by the delimiter.
+         final int length = index < toIndex - 1 ? stride : stride - delimiter.length;
+         for (int character = 0; character < length; character++)
+         {
+            destination[position + character] = records[record + character];
+         }
+         position += length;
+      }
+   }
+
+   private void encodeDelimited(final ByteBuffer source, final int fromIndex, final int toIndex,
+      final ByteBuffer destination, final int offset)
+   {
+      int position = offset;
+      for (int index = fromIndex; index < toIndex; index++)
+      {
+         // The last byte's text is not followed by the delimiter.
+         final int length = index < toIndex - 1 ? stride : stride - delimiter.length;
+         destination.put(position, records, (source.get(index) & 0xFF) * stride, length);
+         position += length;
+      }
+   }
+
+   /**
+    * Parses the provided text as {@link HexFormat#parseHex(CharSequence)}
+    * does.
+    *
+    * @param text Hexadecimal text.
+    * @return Parsed bytes.
+    * @throws IllegalArgumentException Thrown if the text is not of this
+    *    codec's format.
+    */
+   public byte[] parseHex(final CharSequence text)
+   {
+      if (!ascii)
+      {
+         return hexFormat.parseHex(text);
+      }
+      final int length = text.length();
+      final byte[] bytes = new byte[decodedLength(length)];
+      if (plain)
+      {
+         return parsePlainHex(text, bytes);
+      }
+      int position = 0;
+      for (int index = 0; index < bytes.length; index++)
+      {
+         if (index > 0)
+         {
+            position = skip(delimiter, text, position);
+         }
+         position = skip(prefix, text, position);
+         final char high = text.charAt(position);
+         final char low = text.charAt(position + 1);
+         bytes[index] = decode(high < 128 ? NIBBLES[high] : -1, low < 128 ? NIBBLES[low] : -1, position);
+         position = skip(suffix, text, position + 2);
+      }
+      return bytes;
+   }
+
+   /**
+    * Parses text without delimiter, prefix, or suffix, checking only once
+    * all digits are parsed whether any was invalid.
+    */
+   private static byte[] parsePlainHex(final CharSequence text, final byte[] bytes)
+   {
+      int invalid = 0;
+      for (int index = 0; index < bytes.length; index++)
+      {
+         final char high = text.charAt(2 * index);
+         final char low = text.charAt(2 * index + 1);
+         final int highNibble = high < 128 ? NIBBLES[high] : -1;
+         final int lowNibble = low < 128 ? NIBBLES[low] : -1;
+         invalid |= highNibble | lowNibble;
+         bytes[index] = (byte) (highNibble << 4 | lowNibble);
+      }
+      if (invalid < 0)
+      {
+         for (int index = 0; index < bytes.length; index++)
+         {
+            final char high = text.charAt(2 * index);
+            final char low = text.charAt(2 * index + 1);
+            decode(high < 128 ? NIBBLES[high] : -1, low < 128 ? NIBBLES[low] : -1, 2 * index);
+         }
+      }
+      return bytes;
+   }
+
+   /**
+    * Decodes a range of the provided UTF-8 text into the provided array.
+    *
+    * @param source Hexadecimal text.
+    * @param fromIndex Index of the first byte of text.
+    * @param toIndex Index following the last byte of text.
+    * @param destination Array into which the decoded bytes are written.
+    * @param offset Index in the destination of the first decoded byte.
+    * @return Number of bytes decoded.
+    * @throws IllegalArgumentException Thrown if the text is not of this
+    *    codec's format or its bytes do not fit in the destination.
+    */
+   public int decode(final byte[] source, final int fromIndex, final int toIndex,
+      final byte[] destination, final int offset)
+   {
+      Objects.checkFromToIndex(fromIndex, toIndex, source.length);
+      final int length = decodedLength(toIndex - fromIndex);
+      if (offset < 0 || offset > destination.length || length > destination.length - offset)
+      {
+         throw new IllegalArgumentException("Decoded length " + length + " does not fit in array of length "
+            + destination.length + " from offset " + offset);
+      }
+      int position = fromIndex;
+      for (int index = offset; index < offset + length; index++)
+      {
+         if (!plain)
+         {
+            if (index > offset)
+            {
+               position = skip(delimiter, source, position);
+            }
+            position = skip(prefix, source, position);
+         }
+         destination[index] = decode(NIBBLES[source[position] & 0xFF], NIBBLES[source[position + 1] & 0xFF],
+            position - fromIndex);
+         position += 2;
+         if (!plain)
+         {
+            position = skip(suffix, source, position);
+         }
+      }
+      return length;
+   }
+
+   /**
+    * Decodes the UTF-8 text remaining in the provided source into the
+    * provided destination, advancing the position of both.
+    *
+    * @param source Hexadecimal text, from its position to its limit.
+    * @param destination Buffer into which the decoded bytes are written
+    *    at its position.
+    * @return Number of bytes decoded.
+    * @throws IllegalArgumentException Thrown if the text is not of this
+    *    codec's format; the destination may then be partly written, but
+    *    neither position is changed.
+    * @throws BufferOverflowException Thrown, with neither buffer changed,
+    *    if the decoded bytes do not fit in the destination's remaining
+    *    space.
+    */
+   public int decode(final ByteBuffer source, final ByteBuffer destination)
+   {
+      final int sourcePosition = source.position();
+      final int length = decodedLength(source.remaining());
+      if (length > destination.remaining())
+      {
+         throw new BufferOverflowException();
+      }
+      final int destinationPosition = destination.position();
+      int position = sourcePosition;
+      for (int index = destinationPosition; index < destinationPosition + length; index++)
+      {
+         if (index > destinationPosition)
+         {
+            position = skip(delimiter, source, position);
+         }
+         position = skip(prefix, source, position);
+         destination.put(index, decode(NIBBLES[source.get(position) & 0xFF], NIBBLES[source.get(position + 1) & 0xFF],
+            position - sourcePosition));
+         position = skip(suffix, source, position + 2);
+      }
+      source.position(source.limit());
+      destination.position(destinationPosition + length);
+      return length;
+   }
+
+   private static byte decode(final int high, final int low, final int index)
+   {
+      if ((high | low) < 0)
+      {
+         throw new IllegalArgumentException("Invalid hexadecimal digits at index " + index);
+      }
+      return (byte) (high << 4 | low);
+   }
+
+   private static int skip(final byte[] literal, final CharSequence text, final int position)
+   {
+      for (int index = 0; index < literal.length; index++)
+      {
+         if (text.charAt(position + index) != literal[index])
+         {
+            throw newMissingLiteralException(literal, position);
+         }
+      }
+      return position + literal.length;
+   }
+
+   private static int skip(final byte[] literal, final byte[] text, final int position)
+   {
+      for (int index = 0; index < literal.length; index++)
+      {
+         if (text[position + index] != literal[index])
+         {
+            throw newMissingLiteralException(literal, position);
+         }
+      }
+      return position + literal.length;
+   }
+
+   private static int skip(final byte[] literal, final ByteBuffer text, final int position)
+   {
+      for (int index = 0; index < literal.length; index++)
+      {
+         if (text.get(position + index) != literal[index])
+         {
+            throw newMissingLiteralException(literal, position);
+         }
+      }
+      return position + literal.length;
+   }
+
+   private static IllegalArgumentException newMissingLiteralException(final byte[] literal, final int position)
+   {
+      return new IllegalArgumentException("Expected \"" + new String(literal, StandardCharsets.UTF_8)
+         + "\" at index " + position);
+   }
+
+   private static int checkedLength(final long length)
+   {
+      if (length > Integer.MAX_VALUE - 8)
+      {
+         throw new IllegalArgumentException("Encoded length " + length + " exceeds the maximum array length");
+      }
+      return (int) length;
+   }
+}
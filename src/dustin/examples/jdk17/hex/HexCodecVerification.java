@@ -0,0 +1,139 @@
+package dustin.examples.jdk17.hex;
+
+import static java.lang.System.out;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Verifies that {@link HexCodec} formats and parses exactly as
+ * {@link HexFormat} does in each of the formats demonstrated by
+ * {@link HexadecimalDemonstration}.
+ */
+public class HexCodecVerification
+{
+   /**
+    * Verifies that {@link HexCodec} formats random byte arrays, from byte
+    * arrays and from heap and direct buffers of either byte order, as
+    * {@link HexFormat#formatHex(byte[])} does, that it parses the text
+    * back to the same bytes, and that it rejects altered text as
+    * {@link HexFormat#parseHex(CharSequence)} does.
+    *
+    * @param count Number of random byte arrays verified per format.
+    * @return Number of mismatches.
+    */
+   private static long verifyHexCodec(final int count)
+   {
+      final Random random = new Random(count);
+      long mismatches = 0;
+      for (final HexFormat hexFormat : HexadecimalDemonstration.VERIFIED_FORMATS)
+      {
+         final HexCodec codec = HexCodec.of(hexFormat);
+         for (int index = 0; index < count; index++)
+         {
+            final byte[] bytes = new byte[random.nextInt(index % 10 == 0 ? 5000 : 40)];
+            random.nextBytes(bytes);
+            final int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            final String expected = hexFormat.formatHex(bytes, from, bytes.length);
+            final byte[] expectedUtf8 = expected.getBytes(StandardCharsets.UTF_8);
+            final String actual = codec.formatHex(bytes, from, bytes.length);
+            if (!expected.equals(actual))
+            {
+               mismatches++;
+               out.println("ERROR: [" + hexFormat + "] formatted '" + actual + "' rather than '" + expected + "'");
+            }
+
+            final ByteBuffer source = random.nextBoolean()
+               ? ByteBuffer.wrap(bytes, from, bytes.length - from)
+               : ByteBuffer.allocateDirect(bytes.length - from).put(bytes, from, bytes.length - from).flip();
+            source.order(random.nextBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            final ByteBuffer destination = random.nextBoolean()
+               ? ByteBuffer.allocate(expectedUtf8.length + 3)
+               : ByteBuffer.allocateDirect(expectedUtf8.length + 3);
+            destination.order(random.nextBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN).position(3);
+            codec.encode(source, destination);
+            final byte[] encoded = new byte[destination.flip().position(3).remaining()];
+            destination.get(encoded);
+            if (source.hasRemaining() || !Arrays.equals(expectedUtf8, encoded))
+            {
+               mismatches++;
+               out.println("ERROR: [" + hexFormat + "] encoded buffer '" + new String(encoded,
+                  StandardCharsets.UTF_8) + "' rather than '" + expected + "'");
+            }
+
+            final byte[] expectedBytes = Arrays.copyOfRange(bytes, from, bytes.length);
+            final byte[] decoded = new byte[expectedBytes.length];
+            codec.decode(expectedUtf8, 0, expectedUtf8.length, decoded, 0);
+            final ByteBuffer decodedBuffer = ByteBuffer.allocateDirect(expectedBytes.length);
+            codec.decode(ByteBuffer.wrap(expectedUtf8), decodedBuffer);
+            if (!Arrays.equals(expectedBytes, codec.parseHex(expected)) || !Arrays.equals(expectedBytes, decoded)
+               || !decodedBuffer.flip().equals(ByteBuffer.wrap(expectedBytes)))
+            {
+               mismatches++;
+               out.println("ERROR: [" + hexFormat + "] did not parse '" + expected + "' back");
+            }
+
+            if (!expected.isEmpty())
+            {
+               final StringBuilder altered = new StringBuilder(expected);
+               altered.setCharAt(random.nextInt(altered.length()), "0fFg: x".charAt(random.nextInt(7)));
+               if (random.nextInt(4) == 0)
+               {
+                  altered.setLength(random.nextInt(altered.length()));
+               }
+               if (!sameResult(() -> hexFormat.parseHex(altered), () -> codec.parseHex(altered)))
+               {
+                  mismatches++;
+                  out.println("ERROR: [" + hexFormat + "] parsed '" + altered + "' differently");
+               }
+            }
+         }
+      }
+      return mismatches;
+   }
+
+   /**
+    * @return {@code true} if both parsers return equal bytes or both
+    *    throw {@link IllegalArgumentException}.
+    */
+   private static boolean sameResult(
+      final Supplier<byte[]> expected, final Supplier<byte[]> actual)
+   {
+      byte[] expectedBytes = null;
+      byte[] actualBytes = null;
+      try
+      {
+         expectedBytes = expected.get();
+      }
+      catch (IllegalArgumentException rejected)
+      {
+         // Compared below as null.
+      }
+      try
+      {
+         actualBytes = actual.get();
+      }
+      catch (IllegalArgumentException rejected)
+      {
+         // Compared below as null.
+      }
+      return Arrays.equals(expectedBytes, actualBytes);
+   }
+
+   /**
+    * Main verification executable.
+    * @param arguments Command-line arguments; an optional number of
+    *    random byte arrays verified per format (default 10,000).
+    */
+   public static void main(final String[] arguments)
+   {
+      final int count = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 10_000;
+      out.println("Verified " + count + " random byte arrays in each of "
+         + HexadecimalDemonstration.VERIFIED_FORMATS.length + " formats: " + verifyHexCodec(count) + " mismatches.");
+   }
+}
@@ -0,0 +1,349 @@
+package dustin.examples.jdk17.hex;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes the canonical hexadecimal dump of a file, as {@code hexdump -C -v}
+ * does, to a channel: lines of a hexadecimal offset, sixteen bytes as
+ * hexadecimal digits in two groups of eight, and those bytes as ASCII
+ * with unprintable bytes shown as '.', followed by a line with the
+ * length of the file. Unlike {@code hexdump -C} without {@code -v},
+ * repeated lines are written rather than replaced with '*'.
+ *
+ * The file is memory-mapped in windows that are formatted in parallel on
+ * the provided worker {@link Executor}, each into one of a fixed pool of
+ * direct {@link ByteBuffer}s with a {@link HexCodec}, while the calling
+ * thread writes the formatted windows to the channel in order. At most
+ * one window per pooled buffer is mapped and formatted ahead of the
+ * channel, so memory use is bounded by the pool regardless of the size
+ * of the file. (Mapped windows are released when garbage collected.)
+ *
+ * Dumps by one instance are serialized; concurrent calls wait.
+ */
+public class HexDump
+{
+   /** Default size (1 MB) of each window of the file mapped at a time. */
+   public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+
+   private static final int BYTES_PER_LINE = 16;
+
+   private static final int BYTES_PER_GROUP = 8;
+
+   /** Width of the two groups of hexadecimal digits and the spaces following them. */
+   private static final int HEX_COLUMNS_WIDTH = 50;
+
+   /** Longest line: a sixteen-digit offset, hexadecimal and ASCII columns, and newline. */
+   private static final int MAXIMUM_LINE_LENGTH = 16 + 2 + HEX_COLUMNS_WIDTH + 1 + BYTES_PER_LINE + 1 + 1;
+
+   /** Largest window whose formatted lines fit in a single buffer. */
+   private static final int MAXIMUM_WINDOW_SIZE =
+      (Integer.MAX_VALUE - 8) / MAXIMUM_LINE_LENGTH * BYTES_PER_LINE;
+
+   /** Encodes a group of bytes separated by spaces. */
+   private static final HexCodec GROUP_CODEC = HexCodec.of(HexFormat.ofDelimiter(" "));
+
+   /** Encodes the bytes of an offset. */
+   private static final HexCodec OFFSET_CODEC = HexCodec.of(HexFormat.of());
+
+   /** Character shown in the ASCII column for each unsigned byte value. */
+   private static final byte[] PRINTABLE = new byte[256];
+
+   static
+   {
+      for (int value = 0; value < PRINTABLE.length; value++)
+      {
+         PRINTABLE[value] = (byte) (value >= ' ' && value <= '~' ? value : '.');
+      }
+   }
+
+   private final Executor workers;
+
+   private final int windowSize;
+
+   /** Idle output buffers; only used while holding this dump's lock. */
+   private final ArrayDeque<Slot> idle = new ArrayDeque<>();
+
+   private final int slotCount;
+
+   /** A pooled output buffer and the scratch space for formatting offsets. */
+   private static final class Slot
+   {
+      private final ByteBuffer output;
+
+      private final byte[] offsetBytes = new byte[Long.BYTES];
+
+      private final byte[] offsetDigits = new byte[2 * Long.BYTES];
+
+      private Slot(final int capacity)
+      {
+         output = ByteBuffer.allocateDirect(capacity);
+      }
+   }
+
+   /** A window being formatted and the buffer it is formatted into. */
+   private static final class Window
+   {
+      private final Slot slot;
+      private final CompletableFuture<Void> formatted;
+
+      private Window(final Slot newSlot, final CompletableFuture<Void> newFormatted)
+      {
+         slot = newSlot;
+         formatted = newFormatted;
+      }
+   }
+
+   /**
+    * Instantiates a dump mapping windows of {@link #DEFAULT_WINDOW_SIZE}
+    * bytes with two pooled buffers per available processor.
+    *
+    * @param newWorkers Executor on which windows are formatted; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    */
+   public HexDump(final Executor newWorkers)
+   {
+      this(newWorkers, DEFAULT_WINDOW_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * @param newWorkers Executor on which windows are formatted; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    * @param newWindowSize Size in bytes of each window of the file mapped
+    *    at a time; a multiple of sixteen, the number of bytes per line.
+    * @param windowCount Number of pooled buffers and so the maximum
+    *    number of windows mapped and formatted ahead of the channel.
+    */
+   public HexDump(final Executor newWorkers, final int newWindowSize, final int windowCount)
+   {
+      if (newWindowSize <= 0 || newWindowSize % BYTES_PER_LINE != 0 || newWindowSize > MAXIMUM_WINDOW_SIZE)
+      {
+         throw new IllegalArgumentException("Window size must be a positive multiple of " + BYTES_PER_LINE
+            + " no greater than " + MAXIMUM_WINDOW_SIZE + ": " + newWindowSize);
+      }
+      if (windowCount <= 0)
+      {
+         throw new IllegalArgumentException("Window count must be positive: " + windowCount);
+      }
+      workers = Objects.requireNonNull(newWorkers, "workers");
+      windowSize = newWindowSize;
+      slotCount = windowCount;
+      final int capacity = newWindowSize / BYTES_PER_LINE * MAXIMUM_LINE_LENGTH;
+      for (int slot = 0; slot < windowCount; slot++)
+      {
+         idle.push(new Slot(capacity));
+      }
+   }
+
+   /**
+    * Writes the dump of the provided file to the provided channel.
+    *
+    * @param file File to be dumped.
+    * @param channel Channel written at its current position.
+    * @return Number of bytes written.
+    * @throws IOException Thrown if the file cannot be read or the channel
+    *    cannot be written.
+    */
+   public synchronized long dump(final Path file, final WritableByteChannel channel) throws IOException
+   {
+      try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ))
+      {
+         final long size = input.size();
+         final ArrayDeque<Window> inFlight = new ArrayDeque<>(slotCount);
+         long written = 0;
+         long nextPosition = 0;
+         try
+         {
+            while (true)
+            {
+               while (nextPosition < size && !idle.isEmpty())
+               {
+                  final Slot slot = idle.pop();
+                  final long start = nextPosition;
+                  final int length = (int) Math.min(windowSize, size - start);
+                  inFlight.add(new Window(slot,
+                     CompletableFuture.runAsync(() -> format(slot, input, start, length), workers)));
+                  nextPosition = start + length;
+               }
+               if (inFlight.isEmpty())
+               {
+                  break;
+               }
+               final Window window = inFlight.remove();
+               try
+               {
+                  window.formatted.join();
+                  written += drain(window.slot, channel);
+               }
+               finally
+               {
+                  idle.push(window.slot);
+               }
+            }
+            if (size > 0)
+            {
+               final Slot slot = idle.peek();
+               slot.output.clear();
+               writeOffset(slot, size);
+               slot.output.put((byte) '\n');
+               written += drain(slot, channel);
+            }
+            return written;
+         }
+         catch (CompletionException completionException)
+         {
+            final Throwable cause = completionException.getCause();
+            if (cause instanceof UncheckedIOException)
+            {
+               throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException)
+            {
+               throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+               throw (Error) cause;
+            }
+            throw completionException;
+         }
+         finally
+         {
+            // Buffers are reused only once no worker can still be filling them.
+            for (final Window window : inFlight)
+            {
+               try
+               {
+                  window.formatted.join();
+               }
+               catch (CompletionException ignored)
+               {
+                  // The first failure has already been reported.
+               }
+               idle.push(window.slot);
+            }
+         }
+      }
+   }
+
+   /**
+    * Maps the window of the file of the provided length from the provided
+    * start and formats its lines into the slot's buffer.
+    */
+   private static void format(final Slot slot, final FileChannel file, final long start, final int length)
+   {
+      final MappedByteBuffer input;
+      try
+      {
+         input = file.map(FileChannel.MapMode.READ_ONLY, start, length);
+      }
+      catch (IOException ioException)
+      {
+         throw new UncheckedIOException(ioException);
+      }
+      final ByteBuffer output = slot.output;
+      output.clear();
+      for (int line = 0; line < length; line += BYTES_PER_LINE)
+      {
+         final int count = Math.min(BYTES_PER_LINE, length - line);
+         writeOffset(slot, start + line);
+         output.put((byte) ' ').put((byte) ' ');
+         final int hexColumnsEnd = output.position() + HEX_COLUMNS_WIDTH;
+         input.limit(line + Math.min(BYTES_PER_GROUP, count)).position(line);
+         GROUP_CODEC.encode(input, output);
+         if (count > BYTES_PER_GROUP)
+         {
+            output.put((byte) ' ').put((byte) ' ');
+            input.limit(line + count).position(line + BYTES_PER_GROUP);
+            GROUP_CODEC.encode(input, output);
+         }
+         while (output.position() < hexColumnsEnd)
+         {
+            output.put((byte) ' ');
+         }
+         output.put((byte) '|');
+         for (int index = line; index < line + count; index++)
+         {
+            output.put(PRINTABLE[input.get(index) & 0xFF]);
+         }
+         output.put((byte) '|').put((byte) '\n');
+      }
+   }
+
+   /**
+    * Writes the provided offset as at least eight hexadecimal digits.
+    */
+   private static void writeOffset(final Slot slot, final long offset)
+   {
+      for (int index = 0; index < Long.BYTES; index++)
+      {
+         slot.offsetBytes[index] = (byte) (offset >>> (56 - 8 * index));
+      }
+      OFFSET_CODEC.encode(slot.offsetBytes, 0, Long.BYTES, slot.offsetDigits, 0);
+      final int digits = Math.max(8, (Long.SIZE - Long.numberOfLeadingZeros(offset) + 3) / 4);
+      slot.output.put(slot.offsetDigits, slot.offsetDigits.length - digits, digits);
+   }
+
+   /**
+    * Writes the lines formatted into the provided slot's buffer to the
+    * channel.
+    *
+    * @return Number of bytes written.
+    */
+   private static long drain(final Slot slot, final WritableByteChannel channel) throws IOException
+   {
+      final ByteBuffer output = slot.output.flip();
+      final int length = output.remaining();
+      while (output.hasRemaining())
+      {
+         channel.write(output);
+      }
+      return length;
+   }
+
+   /**
+    * Writes the dump of the file named by the first argument to the file
+    * named by the second argument or, without one, to standard output.
+    *
+    * @param arguments Command-line arguments: file to be dumped and
+    *    optional file to which the dump is written.
+    * @throws IOException Thrown if a file cannot be read or written.
+    */
+   public static void main(final String[] arguments) throws IOException
+   {
+      if (arguments.length < 1)
+      {
+         System.err.println("Usage: java dustin.examples.jdk17.hex.HexDump <file> [output file]");
+         return;
+      }
+      final ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try (WritableByteChannel output = arguments.length > 1
+         ? FileChannel.open(Path.of(arguments[1]),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+         : Channels.newChannel(new FileOutputStream(FileDescriptor.out)))
+      {
+         new HexDump(workers).dump(Path.of(arguments[0]), output);
+      }
+      finally
+      {
+         workers.shutdown();
+      }
+   }
+}
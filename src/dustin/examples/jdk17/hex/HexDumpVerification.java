@@ -0,0 +1,110 @@
+package dustin.examples.jdk17.hex;
+
+import static java.lang.System.out;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Verifies that {@link HexDump} dumps files of various sizes as
+ * {@code hexdump -C -v} does.
+ */
+public class HexDumpVerification
+{
+   /**
+    * Provides the dump of the provided bytes as {@code hexdump -C -v}
+    * writes it, one line at a time with {@link HexFormat}.
+    *
+    * @param bytes Bytes to be dumped.
+    * @return Expected dump.
+    */
+   private static String generateExpectedDump(final byte[] bytes)
+   {
+      final StringBuilder dump = new StringBuilder();
+      for (int line = 0; line < bytes.length; line += 16)
+      {
+         final StringBuilder hexColumns = new StringBuilder();
+         final StringBuilder asciiColumn = new StringBuilder();
+         for (int index = line; index < Math.min(line + 16, bytes.length); index++)
+         {
+            if (index == line + 8)
+            {
+               hexColumns.append(' ');
+            }
+            hexColumns.append(HexFormat.of().toHexDigits(bytes[index])).append(' ');
+            asciiColumn.append(bytes[index] >= ' ' && bytes[index] <= '~' ? (char) bytes[index] : '.');
+         }
+         dump.append(String.format("%08x  %-50s|%s|\n", line, hexColumns, asciiColumn));
+      }
+      if (bytes.length > 0)
+      {
+         dump.append(String.format("%08x\n", bytes.length));
+      }
+      return dump.toString();
+   }
+
+   /**
+    * Verifies that {@link HexDump} dumps random files of various sizes,
+    * spanning various numbers of windows of various sizes, as
+    * {@link #generateExpectedDump(byte[])} does.
+    *
+    * @return Number of mismatches.
+    * @throws IOException Thrown if a temporary file cannot be written,
+    *    read, or deleted.
+    */
+   private static long verifyHexDump() throws IOException
+   {
+      final Random random = new Random(17);
+      final ExecutorService workers = Executors.newFixedThreadPool(3);
+      final Path file = Files.createTempFile("hexdump", ".bin");
+      long mismatches = 0;
+      try
+      {
+         for (final int size : new int[] {0, 1, 7, 8, 9, 15, 16, 17, 100, 4095, 4096, 4097, 123_457})
+         {
+            final byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            Files.write(file, bytes);
+            final String expected = generateExpectedDump(bytes);
+            for (final int windowSize : new int[] {16, 48, 4096, HexDump.DEFAULT_WINDOW_SIZE})
+            {
+               final ByteArrayOutputStream output = new ByteArrayOutputStream();
+               final long written = new HexDump(workers, windowSize, 1 + random.nextInt(3))
+                  .dump(file, Channels.newChannel(output));
+               final String actual = output.toString(StandardCharsets.US_ASCII);
+               if (!expected.equals(actual) || written != output.size())
+               {
+                  mismatches++;
+                  out.println("ERROR: dump of " + size + " bytes in windows of " + windowSize
+                     + " bytes differs:\n" + actual);
+               }
+            }
+         }
+      }
+      finally
+      {
+         Files.delete(file);
+         workers.shutdown();
+      }
+      return mismatches;
+   }
+
+   /**
+    * Main verification executable.
+    * @param arguments Command-line arguments; none expected.
+    * @throws IOException Thrown if a temporary file cannot be written,
+    *    read, or deleted.
+    */
+   public static void main(final String[] arguments) throws IOException
+   {
+      out.println("Verified dumps of files in windows of various sizes: " + verifyHexDump() + " mismatches.");
+   }
+}
@@ -2,17 +2,31 @@ package dustin.examples.jdk17.hex;
 
 import static java.lang.System.out;
 
+import java.util.Arrays;
 import java.util.HexFormat;
 
 /**
  * Demonstrates hexadecimal parsing and formatting class
- * {@link java.util.HexFormat} introduced with JDK 17.
+ * {@link java.util.HexFormat} introduced with JDK 17 and its bulk
+ * counterpart {@link HexCodec}.
  */
 public class HexadecimalDemonstration
 {
    /** Instance of {@link HexFormat} used in this demonstration. */
    private static final HexFormat HEX_FORMAT_UPPER_CASE = HexFormat.of().withUpperCase();
 
+   /** Formats in which {@link HexCodec} is demonstrated and verified. */
+   static final HexFormat[] VERIFIED_FORMATS =
+   {
+      HexFormat.of(),
+      HEX_FORMAT_UPPER_CASE,
+      HexFormat.ofDelimiter(":"),
+      HexFormat.ofDelimiter(", ").withPrefix("0x").withUpperCase(),
+      HexFormat.of().withPrefix("\\x"),
+      HexFormat.ofDelimiter(" ").withPrefix("[").withSuffix("]"),
+      HexFormat.ofDelimiter("\u00b7")
+   };
+
    /**
     * Demonstrates use of {@link HexFormat#toHexDigits(int)}.
     */
@@ -55,6 +69,21 @@ public class HexadecimalDemonstration
       out.println("HexFormat.toString(): " + HEX_FORMAT_UPPER_CASE);
    }
 
+   /**
+    * Demonstrates formatting and parsing whole byte arrays with
+    * {@link HexCodec} in the same formats as {@link HexFormat}.
+    */
+   public void demoBulkHex()
+   {
+      final byte[] bytes = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 1, 0x7F, (byte) 0x80, (byte) 0xFF};
+      for (final HexFormat hexFormat : VERIFIED_FORMATS)
+      {
+         final String text = HexCodec.of(hexFormat).formatHex(bytes);
+         out.println("HexCodec [" + hexFormat + "]: '" + text + "' parses back to "
+            + Arrays.toString(HexCodec.of(hexFormat).parseHex(text)));
+      }
+   }
+
    /**
     * Main demonstration executable.
     * @param arguments Command-line arguments; none expected.
@@ -65,5 +94,6 @@ public class HexadecimalDemonstration
       demoInstance.demoIntegerToHexadecimal();
       demoInstance.demoIsHex();
       demoInstance.demoToString();
+      demoInstance.demoBulkHex();
    }
 }
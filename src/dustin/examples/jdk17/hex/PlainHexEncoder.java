@@ -0,0 +1,65 @@
+package dustin.examples.jdk17.hex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Encodes bytes as hexadecimal digits, without delimiter, prefix, or
+ * suffix, many bytes at a time; used by {@link HexCodec} for the bulk of
+ * a byte array when such an encoder is available.
+ *
+ * {@link #fastest()} provides the Vector API backend when the
+ * {@code jdk.incubator.vector} module is resolved (with
+ * {@code --add-modules jdk.incubator.vector}) and its class is on the
+ * class path, and {@code null} otherwise, in which case {@link HexCodec}
+ * encodes eight bytes at a time within a {@code long}.
+ */
+interface PlainHexEncoder
+{
+   /**
+    * Encodes as many whole blocks of the provided range of bytes as fit
+    * in it, leaving the rest to the caller.
+    *
+    * @param source Bytes to be encoded.
+    * @param fromIndex Index of the first byte encoded.
+    * @param toIndex Index following the last byte that may be encoded.
+    * @param destination Array into which two digits per byte are written.
+    * @param offset Index in the destination of the first digit.
+    * @param upperCase Whether digits above nine are upper case letters.
+    * @return Index following the last byte encoded.
+    */
+   int encode(byte[] source, int fromIndex, int toIndex, byte[] destination, int offset, boolean upperCase);
+
+   /**
+    * Provides the Vector API encoder when it can be loaded and encodes
+    * every byte value as {@link HexCodec} does, and {@code null}
+    * otherwise.
+    *
+    * @return Fastest encoder available in this VM instance or
+    *    {@code null} if none is faster than {@link HexCodec}'s own.
+    */
+   static PlainHexEncoder fastest()
+   {
+      try
+      {
+         final PlainHexEncoder vector = (PlainHexEncoder)
+            Class.forName("dustin.examples.jdk17.hex.VectorPlainHexEncoder")
+                 .getDeclaredConstructor()
+                 .newInstance();
+         final byte[] values = new byte[1024];
+         for (int value = 0; value < values.length; value++)
+         {
+            values[value] = (byte) value;
+         }
+         final String expected = HexFormat.of().withUpperCase().formatHex(values);
+         final byte[] digits = new byte[2 * values.length];
+         final int encoded = vector.encode(values, 0, values.length, digits, 0, true);
+         return encoded > 0 && expected.regionMatches(0, new String(digits, StandardCharsets.ISO_8859_1), 0, 2 * encoded)
+            ? vector : null;
+      }
+      catch (ReflectiveOperationException | LinkageError | RuntimeException unavailable)
+      {
+         return null;
+      }
+   }
+}
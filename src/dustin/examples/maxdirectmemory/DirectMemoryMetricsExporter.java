@@ -0,0 +1,25 @@
+package dustin.examples.maxdirectmemory;
+
+/**
+ * Receives each sample taken by a {@link DirectMemorySampler} so that
+ * direct memory statistics can be published to a metrics system or
+ * used to raise alerts.
+ *
+ * Exporters are invoked on the sampling thread and should return
+ * quickly. A runtime exception thrown by an exporter does not stop
+ * sampling; it is passed to the handler set with
+ * {@link DirectMemorySampler#setErrorHandler(java.util.function.Consumer)}
+ * or, without one, to the sampling thread's uncaught exception handler.
+ */
+@FunctionalInterface
+public interface DirectMemoryMetricsExporter
+{
+   /**
+    * Exports the provided sample.
+    *
+    * @param sample Most recently taken sample.
+    * @param sampler Sampler that took the sample, which can be queried
+    *    for percentiles over its window.
+    */
+   void export(DirectMemorySample sample, DirectMemorySampler sampler);
+}
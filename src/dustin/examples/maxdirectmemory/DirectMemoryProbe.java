@@ -0,0 +1,76 @@
+package dustin.examples.maxdirectmemory;
+
+/**
+ * Reports direct (and memory-mapped) buffer usage and the maximum amount
+ * of direct memory available to this VM instance.
+ *
+ * {@link #platform()} is backed by the supported {@code java.lang.management}
+ * and {@code com.sun.management} APIs and needs no command-line options.
+ * {@link #fastest()} uses the internal SharedSecrets/VM backend when
+ * {@code --add-exports=java.base/jdk.internal.misc=ALL-UNNAMED} (and, on
+ * JDK 12 and later, {@code --add-exports=java.base/jdk.internal.access=ALL-UNNAMED})
+ * makes it available and falls back to the platform probe otherwise.
+ */
+public interface DirectMemoryProbe
+{
+   /**
+    * @return Number of direct buffers.
+    */
+   long getCount();
+
+   /**
+    * @return Bytes of direct memory used by direct buffers.
+    */
+   long getMemoryUsed();
+
+   /**
+    * @return Total capacity in bytes of direct buffers.
+    */
+   long getTotalCapacity();
+
+   /**
+    * @return Number of memory-mapped buffers.
+    */
+   long getMappedCount();
+
+   /**
+    * @return Bytes of memory used by memory-mapped buffers.
+    */
+   long getMappedMemoryUsed();
+
+   /**
+    * @return Maximum bytes of direct memory for this VM instance.
+    */
+   long getMaxDirectMemory();
+
+   /**
+    * @return Probe backed by BufferPoolMXBean and HotSpotDiagnosticMXBean.
+    */
+   static DirectMemoryProbe platform()
+   {
+      return MXBeanDirectMemoryProbe.INSTANCE;
+   }
+
+   /**
+    * Provides the internal-API probe when the JDK internals it relies
+    * upon are exported to this code and the platform probe otherwise.
+    *
+    * @return Fastest probe available in this VM instance.
+    */
+   static DirectMemoryProbe fastest()
+   {
+      try
+      {
+         final DirectMemoryProbe internal = (DirectMemoryProbe)
+            Class.forName("dustin.examples.maxdirectmemory.InternalDirectMemoryProbe")
+                 .getDeclaredConstructor()
+                 .newInstance();
+         internal.getMemoryUsed();
+         return internal;
+      }
+      catch (ReflectiveOperationException | LinkageError | RuntimeException unavailable)
+      {
+         return platform();
+      }
+   }
+}
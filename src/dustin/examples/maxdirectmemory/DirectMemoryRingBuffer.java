@@ -0,0 +1,157 @@
+package dustin.examples.maxdirectmemory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity, lock-free ring buffer of the most recent direct memory
+ * samples, written by a single thread and read by any number of threads.
+ *
+ * Samples are held as primitives rather than objects so that recording
+ * a sample allocates nothing. Each slot carries a stamp that the writer
+ * makes odd while it updates the slot and even afterward; a reader
+ * discards any slot whose stamp changed while the reader copied it.
+ */
+class DirectMemoryRingBuffer
+{
+   /** Fields per slot: stamp followed by the sampled values. */
+   private static final int SLOT_WIDTH = 6;
+
+   private static final int STAMP = 0;
+   private static final int TIMESTAMP = 1;
+   private static final int COUNT = 2;
+   private static final int MEMORY_USED = 3;
+   private static final int TOTAL_CAPACITY = 4;
+   private static final int MAX_DIRECT_MEMORY = 5;
+
+   private final int capacity;
+
+   private final AtomicLongArray slots;
+
+   /** Number of samples ever written. */
+   private final AtomicLong written = new AtomicLong();
+
+   /**
+    * @param newCapacity Number of most recent samples retained.
+    */
+   DirectMemoryRingBuffer(final int newCapacity)
+   {
+      if (newCapacity <= 0)
+      {
+         throw new IllegalArgumentException("Capacity must be positive: " + newCapacity);
+      }
+      capacity = newCapacity;
+      slots = new AtomicLongArray(newCapacity * SLOT_WIDTH);
+   }
+
+   /**
+    * Records a sample; must only be called by the single writing thread.
+    *
+    * @param timestampMillis Time sample was taken in milliseconds since the epoch.
+    * @param count Number of direct buffers.
+    * @param memoryUsed Bytes of direct memory used by direct buffers.
+    * @param totalCapacity Total capacity in bytes of direct buffers.
+    * @param maxDirectMemory Maximum bytes of direct memory.
+    */
+   void write(
+      final long timestampMillis, final long count, final long memoryUsed,
+      final long totalCapacity, final long maxDirectMemory)
+   {
+      final long sequence = written.get();
+      final int base = (int) (sequence % capacity) * SLOT_WIDTH;
+      slots.set(base + STAMP, 2 * sequence + 1);
+      slots.set(base + TIMESTAMP, timestampMillis);
+      slots.set(base + COUNT, count);
+      slots.set(base + MEMORY_USED, memoryUsed);
+      slots.set(base + TOTAL_CAPACITY, totalCapacity);
+      slots.set(base + MAX_DIRECT_MEMORY, maxDirectMemory);
+      slots.set(base + STAMP, 2 * sequence + 2);
+      written.set(sequence + 1);
+   }
+
+   /**
+    * @return Most recent sample or {@code null} if none has been written.
+    */
+   DirectMemorySample latest()
+   {
+      while (true)
+      {
+         final long sequence = written.get() - 1;
+         if (sequence < 0)
+         {
+            return null;
+         }
+         final int base = (int) (sequence % capacity) * SLOT_WIDTH;
+         final DirectMemorySample sample = new DirectMemorySample(
+            slots.get(base + TIMESTAMP), slots.get(base + COUNT), slots.get(base + MEMORY_USED),
+            slots.get(base + TOTAL_CAPACITY), slots.get(base + MAX_DIRECT_MEMORY));
+         if (slots.get(base + STAMP) == 2 * sequence + 2)
+         {
+            return sample;
+         }
+      }
+   }
+
+   /**
+    * Provides the value at the provided percentile of the memory used
+    * over the retained samples (nearest-rank method).
+    *
+    * @param percentile Percentile between 0 and 100.
+    * @return Bytes of direct memory used at that percentile; zero if
+    *    there are no samples.
+    */
+   long memoryUsedPercentile(final double percentile)
+   {
+      return percentile(MEMORY_USED, percentile);
+   }
+
+   /**
+    * Provides the value at the provided percentile of the buffer count
+    * over the retained samples (nearest-rank method).
+    *
+    * @param percentile Percentile between 0 and 100.
+    * @return Number of direct buffers at that percentile; zero if there
+    *    are no samples.
+    */
+   long countPercentile(final double percentile)
+   {
+      return percentile(COUNT, percentile);
+   }
+
+   /**
+    * @return Number of samples currently retained.
+    */
+   int size()
+   {
+      return (int) Math.min(written.get(), capacity);
+   }
+
+   private long percentile(final int field, final double percentile)
+   {
+      if (percentile < 0.0 || percentile > 100.0)
+      {
+         throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+      }
+      final long end = written.get();
+      final long start = Math.max(0, end - capacity);
+      final long[] values = new long[(int) (end - start)];
+      int valueCount = 0;
+      for (long sequence = start; sequence < end; sequence++)
+      {
+         final int base = (int) (sequence % capacity) * SLOT_WIDTH;
+         final long value = slots.get(base + field);
+         if (slots.get(base + STAMP) == 2 * sequence + 2)
+         {
+            values[valueCount++] = value;
+         }
+      }
+      if (valueCount == 0)
+      {
+         return 0;
+      }
+      Arrays.sort(values, 0, valueCount);
+      final int rank = (int) Math.ceil(percentile / 100.0 * valueCount);
+      return values[Math.max(0, rank - 1)];
+   }
+}
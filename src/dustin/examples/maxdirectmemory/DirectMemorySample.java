@@ -0,0 +1,93 @@
+package dustin.examples.maxdirectmemory;
+
+/**
+ * Direct memory statistics sampled at a single point in time.
+ */
+public final class DirectMemorySample
+{
+   private final long timestampMillis;
+
+   private final long count;
+
+   private final long memoryUsed;
+
+   private final long totalCapacity;
+
+   private final long maxDirectMemory;
+
+   /**
+    * @param newTimestampMillis Time sample was taken in milliseconds since the epoch.
+    * @param newCount Number of direct buffers.
+    * @param newMemoryUsed Bytes of direct memory used by direct buffers.
+    * @param newTotalCapacity Total capacity in bytes of direct buffers.
+    * @param newMaxDirectMemory Maximum bytes of direct memory.
+    */
+   public DirectMemorySample(
+      final long newTimestampMillis, final long newCount, final long newMemoryUsed,
+      final long newTotalCapacity, final long newMaxDirectMemory)
+   {
+      timestampMillis = newTimestampMillis;
+      count = newCount;
+      memoryUsed = newMemoryUsed;
+      totalCapacity = newTotalCapacity;
+      maxDirectMemory = newMaxDirectMemory;
+   }
+
+   /**
+    * @return Time sample was taken in milliseconds since the epoch.
+    */
+   public long getTimestampMillis()
+   {
+      return timestampMillis;
+   }
+
+   /**
+    * @return Number of direct buffers.
+    */
+   public long getCount()
+   {
+      return count;
+   }
+
+   /**
+    * @return Bytes of direct memory used by direct buffers.
+    */
+   public long getMemoryUsed()
+   {
+      return memoryUsed;
+   }
+
+   /**
+    * @return Total capacity in bytes of direct buffers.
+    */
+   public long getTotalCapacity()
+   {
+      return totalCapacity;
+   }
+
+   /**
+    * @return Maximum bytes of direct memory for this VM instance.
+    */
+   public long getMaxDirectMemory()
+   {
+      return maxDirectMemory;
+   }
+
+   /**
+    * @return Fraction (0.0 to 1.0) of maximum direct memory in use.
+    */
+   public double getUtilization()
+   {
+      return maxDirectMemory > 0 ? (double) memoryUsed / maxDirectMemory : 0.0;
+   }
+
+   @Override
+   public String toString()
+   {
+      final StringBuilder builder = new StringBuilder(96);
+      builder.append(count).append(" direct buffers using ");
+      MemorySizeFormat.DEFAULT.format(memoryUsed, builder).append(" (capacity ");
+      MemorySizeFormat.DEFAULT.format(totalCapacity, builder).append(") of ");
+      return MemorySizeFormat.DEFAULT.format(maxDirectMemory, builder).append(" maximum").toString();
+   }
+}
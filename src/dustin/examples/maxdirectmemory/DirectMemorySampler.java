@@ -0,0 +1,297 @@
+package dustin.examples.maxdirectmemory;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Continuously samples direct memory usage on a fixed interval into a
+ * lock-free ring buffer of the most recent samples.
+ *
+ * Each sample polls a {@link DirectMemoryProbe} for direct buffer count,
+ * memory used, and total capacity along with the maximum direct memory.
+ * The latest values and percentiles
+ * over the retained window are available directly, through JMX when
+ * {@link #registerMBean()} is called, and to every registered
+ * {@link DirectMemoryMetricsExporter} as each sample is taken.
+ *
+ * Exceptions thrown by exporters and by unregistering the MBean are
+ * passed to the handler set with {@link #setErrorHandler(Consumer)} or,
+ * without one, to the uncaught exception handler of the thread on which
+ * they were thrown; sampling continues after an exporter fails.
+ */
+public class DirectMemorySampler implements DirectMemorySamplerMXBean, Closeable
+{
+   /** Name under which the sampler is registered with the platform MBean server. */
+   public static final String OBJECT_NAME = "dustin.examples.maxdirectmemory:type=DirectMemorySampler";
+
+   /** Default time between samples. */
+   public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+
+   /** Default number of most recent samples retained. */
+   public static final int DEFAULT_WINDOW_SIZE = 300;
+
+   private final Duration interval;
+
+   private final DirectMemoryRingBuffer window;
+
+   private final List<DirectMemoryMetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+   private final DirectMemoryProbe probe;
+
+   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+      runnable ->
+      {
+         final Thread thread = new Thread(runnable, "direct-memory-sampler");
+         thread.setDaemon(true);
+         return thread;
+      });
+
+   private volatile Consumer<? super Exception> errorHandler = DirectMemorySampler::reportUncaught;
+
+   private ScheduledFuture<?> sampling;
+
+   private ObjectName registeredName;
+
+   /**
+    * Creates a sampler with the default interval and window size using
+    * the fastest available probe.
+    */
+   public DirectMemorySampler()
+   {
+      this(DEFAULT_INTERVAL, DEFAULT_WINDOW_SIZE);
+   }
+
+   /**
+    * Creates a sampler using the fastest available probe.
+    *
+    * @param newInterval Time between samples.
+    * @param newWindowSize Number of most recent samples retained for
+    *    percentile calculations.
+    */
+   public DirectMemorySampler(final Duration newInterval, final int newWindowSize)
+   {
+      this(DirectMemoryProbe.fastest(), newInterval, newWindowSize);
+   }
+
+   /**
+    * @param newProbe Probe polled for each sample.
+    * @param newInterval Time between samples.
+    * @param newWindowSize Number of most recent samples retained for
+    *    percentile calculations.
+    */
+   public DirectMemorySampler(
+      final DirectMemoryProbe newProbe, final Duration newInterval, final int newWindowSize)
+   {
+      if (newInterval.isNegative() || newInterval.isZero())
+      {
+         throw new IllegalArgumentException("Interval must be positive: " + newInterval);
+      }
+      probe = newProbe;
+      interval = newInterval;
+      window = new DirectMemoryRingBuffer(newWindowSize);
+   }
+
+   /**
+    * Adds an exporter to be invoked with every subsequent sample.
+    *
+    * @param exporter Exporter to be added.
+    * @return This sampler.
+    */
+   public DirectMemorySampler addExporter(final DirectMemoryMetricsExporter exporter)
+   {
+      exporters.add(exporter);
+      return this;
+   }
+
+   /**
+    * Sets the handler passed the exceptions thrown by exporters and by
+    * unregistering the MBean when this sampler is closed.
+    *
+    * @param newErrorHandler Handler of exporter and unregistration failures.
+    * @return This sampler.
+    */
+   public DirectMemorySampler setErrorHandler(final Consumer<? super Exception> newErrorHandler)
+   {
+      errorHandler = Objects.requireNonNull(newErrorHandler, "errorHandler");
+      return this;
+   }
+
+   /**
+    * Starts sampling; has no effect if sampling has already started.
+    *
+    * @return This sampler.
+    */
+   public synchronized DirectMemorySampler start()
+   {
+      if (sampling == null)
+      {
+         sampling = executor.scheduleAtFixedRate(this::sample, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      return this;
+   }
+
+   /**
+    * Registers this sampler with the platform MBean server under
+    * {@link #OBJECT_NAME}.
+    *
+    * @return This sampler.
+    * @throws JMException Thrown if the sampler cannot be registered.
+    */
+   public synchronized DirectMemorySampler registerMBean() throws JMException
+   {
+      if (registeredName == null)
+      {
+         final ObjectName name = new ObjectName(OBJECT_NAME);
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+         registeredName = name;
+      }
+      return this;
+   }
+
+   /**
+    * Takes a single sample, records it, and passes it to the exporters.
+    */
+   private void sample()
+   {
+      window.write(
+         System.currentTimeMillis(), probe.getCount(), probe.getMemoryUsed(),
+         probe.getTotalCapacity(), probe.getMaxDirectMemory());
+      if (!exporters.isEmpty())
+      {
+         final DirectMemorySample latest = window.latest();
+         for (final DirectMemoryMetricsExporter exporter : exporters)
+         {
+            try
+            {
+               exporter.export(latest, this);
+            }
+            catch (RuntimeException exception)
+            {
+               errorHandler.accept(exception);
+            }
+         }
+      }
+   }
+
+   /**
+    * Default error handler: passes the exception to the current thread's
+    * uncaught exception handler without terminating the thread.
+    */
+   private static void reportUncaught(final Exception exception)
+   {
+      final Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+   }
+
+   /**
+    * @return Most recent sample or {@code null} if no sample has been taken.
+    */
+   public DirectMemorySample getLatest()
+   {
+      return window.latest();
+   }
+
+   @Override
+   public long getCount()
+   {
+      final DirectMemorySample latest = window.latest();
+      return latest != null ? latest.getCount() : 0;
+   }
+
+   @Override
+   public long getMemoryUsed()
+   {
+      final DirectMemorySample latest = window.latest();
+      return latest != null ? latest.getMemoryUsed() : 0;
+   }
+
+   @Override
+   public long getTotalCapacity()
+   {
+      final DirectMemorySample latest = window.latest();
+      return latest != null ? latest.getTotalCapacity() : 0;
+   }
+
+   @Override
+   public long getMaxDirectMemory()
+   {
+      return probe.getMaxDirectMemory();
+   }
+
+   @Override
+   public double getUtilization()
+   {
+      final DirectMemorySample latest = window.latest();
+      return latest != null ? latest.getUtilization() : 0.0;
+   }
+
+   @Override
+   public long getMemoryUsedP50()
+   {
+      return window.memoryUsedPercentile(50.0);
+   }
+
+   @Override
+   public long getMemoryUsedP99()
+   {
+      return window.memoryUsedPercentile(99.0);
+   }
+
+   @Override
+   public int getWindowSize()
+   {
+      return window.size();
+   }
+
+   @Override
+   public long memoryUsedPercentile(final double percentile)
+   {
+      return window.memoryUsedPercentile(percentile);
+   }
+
+   /**
+    * Provides the number of direct buffers at the provided percentile
+    * over the sampled window.
+    *
+    * @param percentile Percentile between 0 and 100.
+    * @return Number of direct buffers at that percentile.
+    */
+   public long countPercentile(final double percentile)
+   {
+      return window.countPercentile(percentile);
+   }
+
+   /**
+    * Stops sampling and unregisters the MBean if it was registered.
+    */
+   @Override
+   public synchronized void close()
+   {
+      executor.shutdownNow();
+      if (registeredName != null)
+      {
+         final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         try
+         {
+            server.unregisterMBean(registeredName);
+         }
+         catch (JMException exception)
+         {
+            errorHandler.accept(exception);
+         }
+         registeredName = null;
+      }
+   }
+}
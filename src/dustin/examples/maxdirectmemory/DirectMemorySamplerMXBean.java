@@ -0,0 +1,59 @@
+package dustin.examples.maxdirectmemory;
+
+/**
+ * JMX management interface of {@link DirectMemorySampler} exposing the
+ * most recent sample and percentiles over the sampled window.
+ */
+public interface DirectMemorySamplerMXBean
+{
+   /**
+    * @return Number of direct buffers in the most recent sample.
+    */
+   long getCount();
+
+   /**
+    * @return Bytes of direct memory used in the most recent sample.
+    */
+   long getMemoryUsed();
+
+   /**
+    * @return Total capacity in bytes of direct buffers in the most recent sample.
+    */
+   long getTotalCapacity();
+
+   /**
+    * @return Maximum bytes of direct memory for this VM instance.
+    */
+   long getMaxDirectMemory();
+
+   /**
+    * @return Fraction (0.0 to 1.0) of maximum direct memory in use in the
+    *    most recent sample.
+    */
+   double getUtilization();
+
+   /**
+    * @return Median bytes of direct memory used over the sampled window.
+    */
+   long getMemoryUsedP50();
+
+   /**
+    * @return 99th percentile of bytes of direct memory used over the
+    *    sampled window.
+    */
+   long getMemoryUsedP99();
+
+   /**
+    * @return Number of samples in the window.
+    */
+   int getWindowSize();
+
+   /**
+    * Provides the bytes of direct memory used at the provided percentile
+    * over the sampled window.
+    *
+    * @param percentile Percentile between 0 and 100.
+    * @return Bytes of direct memory used at that percentile.
+    */
+   long memoryUsedPercentile(double percentile);
+}
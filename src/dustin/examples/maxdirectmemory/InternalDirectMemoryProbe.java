@@ -0,0 +1,127 @@
+package dustin.examples.maxdirectmemory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * {@link DirectMemoryProbe} over the same internal APIs used by
+ * {@link Main}: the direct buffer pool from SharedSecrets and
+ * JavaNioAccess and {@code jdk.internal.misc.VM.maxDirectMemory()}. The
+ * mapped pool is not reachable through exported internals and is read
+ * from the platform probe.
+ *
+ * The internals are resolved reflectively into constant method handles
+ * when this class is initialized, so it compiles on a stock JDK; they
+ * are accessible only when run with
+ * {@code --add-exports=java.base/jdk.internal.misc=ALL-UNNAMED} and, on
+ * JDK 12 and later (where SharedSecrets moved to
+ * {@code jdk.internal.access}),
+ * {@code --add-exports=java.base/jdk.internal.access=ALL-UNNAMED}.
+ * Otherwise initialization fails, and {@link DirectMemoryProbe#fastest()},
+ * through which alone this class is loaded, uses the platform probe.
+ */
+final class InternalDirectMemoryProbe implements DirectMemoryProbe
+{
+   private static final MethodHandle COUNT;
+
+   private static final MethodHandle MEMORY_USED;
+
+   private static final MethodHandle TOTAL_CAPACITY;
+
+   private static final MethodHandle MAX_DIRECT_MEMORY;
+
+   static
+   {
+      try
+      {
+         final MethodHandles.Lookup lookup = MethodHandles.lookup();
+         final Method getJavaNioAccess = sharedSecretsClass().getMethod("getJavaNioAccess");
+         final Method getDirectBufferPool = getJavaNioAccess.getReturnType().getMethod("getDirectBufferPool");
+         final Object directPool = getDirectBufferPool.invoke(getJavaNioAccess.invoke(null));
+         final Class<?> poolType = getDirectBufferPool.getReturnType();
+         final MethodType longResult = MethodType.methodType(long.class);
+         COUNT = lookup.findVirtual(poolType, "getCount", longResult).bindTo(directPool);
+         MEMORY_USED = lookup.findVirtual(poolType, "getMemoryUsed", longResult).bindTo(directPool);
+         TOTAL_CAPACITY = lookup.findVirtual(poolType, "getTotalCapacity", longResult).bindTo(directPool);
+         MAX_DIRECT_MEMORY = lookup.findStatic(Class.forName("jdk.internal.misc.VM"), "maxDirectMemory", longResult);
+      }
+      catch (ReflectiveOperationException exception)
+      {
+         throw new ExceptionInInitializerError(exception);
+      }
+   }
+
+   /**
+    * Provides SharedSecrets from {@code jdk.internal.access} (JDK 12 and
+    * later) or {@code jdk.internal.misc} (JDK 9 through 11).
+    */
+   private static Class<?> sharedSecretsClass() throws ClassNotFoundException
+   {
+      try
+      {
+         return Class.forName("jdk.internal.access.SharedSecrets");
+      }
+      catch (ClassNotFoundException notFound)
+      {
+         return Class.forName("jdk.internal.misc.SharedSecrets");
+      }
+   }
+
+   /**
+    * Invokes the provided handle of one of the internal methods, all of
+    * which take no arguments and return a {@code long}.
+    */
+   private static long invoke(final MethodHandle handle)
+   {
+      try
+      {
+         return (long) handle.invokeExact();
+      }
+      catch (RuntimeException | Error exception)
+      {
+         throw exception;
+      }
+      catch (Throwable throwable)
+      {
+         throw new IllegalStateException(throwable);
+      }
+   }
+
+   @Override
+   public long getCount()
+   {
+      return invoke(COUNT);
+   }
+
+   @Override
+   public long getMemoryUsed()
+   {
+      return invoke(MEMORY_USED);
+   }
+
+   @Override
+   public long getTotalCapacity()
+   {
+      return invoke(TOTAL_CAPACITY);
+   }
+
+   @Override
+   public long getMappedCount()
+   {
+      return DirectMemoryProbe.platform().getMappedCount();
+   }
+
+   @Override
+   public long getMappedMemoryUsed()
+   {
+      return DirectMemoryProbe.platform().getMappedMemoryUsed();
+   }
+
+   @Override
+   public long getMaxDirectMemory()
+   {
+      return invoke(MAX_DIRECT_MEMORY);
+   }
+}
@@ -0,0 +1,103 @@
+package dustin.examples.maxdirectmemory;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * {@link DirectMemoryProbe} over the {@code direct} and {@code mapped}
+ * BufferPoolMXBeans and the {@code MaxDirectMemorySize} VM option
+ * reported by HotSpotDiagnosticMXBean.
+ *
+ * The MXBeans are looked up once and the maximum direct memory (which
+ * cannot change while the VM runs) is read once, so each poll is only a
+ * read of the JDK's buffer counters.
+ */
+final class MXBeanDirectMemoryProbe implements DirectMemoryProbe
+{
+   static final MXBeanDirectMemoryProbe INSTANCE = new MXBeanDirectMemoryProbe();
+
+   private final BufferPoolMXBean directPool;
+
+   private final BufferPoolMXBean mappedPool;
+
+   private final long maxDirectMemory;
+
+   private MXBeanDirectMemoryProbe()
+   {
+      BufferPoolMXBean direct = null;
+      BufferPoolMXBean mapped = null;
+      for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+      {
+         if ("direct".equals(pool.getName()))
+         {
+            direct = pool;
+         }
+         else if ("mapped".equals(pool.getName()))
+         {
+            mapped = pool;
+         }
+      }
+      if (direct == null || mapped == null)
+      {
+         throw new IllegalStateException("Direct and mapped buffer pools are not available.");
+      }
+      directPool = direct;
+      mappedPool = mapped;
+      maxDirectMemory = lookupMaxDirectMemory();
+   }
+
+   /**
+    * Determines maximum direct memory from {@code -XX:MaxDirectMemorySize};
+    * when that option is not set (zero), the maximum is the maximum heap
+    * size, as it is for {@code VM.maxDirectMemory()}.
+    *
+    * @return Maximum bytes of direct memory for this VM instance.
+    */
+   private static long lookupMaxDirectMemory()
+   {
+      final HotSpotDiagnosticMXBean diagnostic =
+         ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+      final long configured = diagnostic != null
+         ? Long.parseLong(diagnostic.getVMOption("MaxDirectMemorySize").getValue())
+         : 0;
+      return configured > 0 ? configured : Runtime.getRuntime().maxMemory();
+   }
+
+   @Override
+   public long getCount()
+   {
+      return directPool.getCount();
+   }
+
+   @Override
+   public long getMemoryUsed()
+   {
+      return directPool.getMemoryUsed();
+   }
+
+   @Override
+   public long getTotalCapacity()
+   {
+      return directPool.getTotalCapacity();
+   }
+
+   @Override
+   public long getMappedCount()
+   {
+      return mappedPool.getCount();
+   }
+
+   @Override
+   public long getMappedMemoryUsed()
+   {
+      return mappedPool.getMemoryUsed();
+   }
+
+   @Override
+   public long getMaxDirectMemory()
+   {
+      return maxDirectMemory;
+   }
+}
@@ -2,6 +2,12 @@ package dustin.examples.maxdirectmemory;
 
 import static java.lang.System.out;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+
 import jdk.internal.misc.SharedSecrets;
 import jdk.internal.misc.VM;
 
@@ -39,9 +45,73 @@ public class Main
          "jdk.internal.misc.VM.maxDirectMemory(): " + vmSize + " MB");
    }
 
-   public static void main(final String[] arguments)
+   /**
+    * Write direct and mapped buffer usage and maximum direct memory
+    * size to standard output using the supported BufferPoolMXBean and
+    * HotSpotDiagnosticMXBean APIs via {@link DirectMemoryProbe#platform()}.
+    */
+   public static void writeProbedDirectMemoryToStdOut()
+   {
+      final DirectMemoryProbe probe = DirectMemoryProbe.platform();
+      out.println("DirectMemoryProbe.platform() direct memory used: "
+         + MemoryUnit.BYTES.toMegaBytes(probe.getMemoryUsed()) + " MB in " + probe.getCount() + " buffers");
+      out.println("DirectMemoryProbe.platform() mapped memory used: "
+         + MemoryUnit.BYTES.toMegaBytes(probe.getMappedMemoryUsed()) + " MB in " + probe.getMappedCount() + " buffers");
+      out.println("DirectMemoryProbe.platform() maximum direct memory: "
+         + MemoryUnit.BYTES.toMegaBytes(probe.getMaxDirectMemory()) + " MB");
+   }
+
+   /**
+    * Samples direct memory continuously while allocating direct buffers
+    * until direct memory approaches its maximum, writing a warning to
+    * standard output for each sample above the alert threshold. Whether
+    * another buffer fits is decided from a live reading taken before each
+    * allocation rather than from the latest sample, which can lag behind
+    * the allocations by a whole sampling interval.
+    *
+    * @throws JMException Thrown if the sampler cannot be registered with JMX.
+    * @throws InterruptedException Thrown if interrupted while sleeping
+    *    between allocations.
+    */
+   public static void sampleDirectMemoryUntilNearMaximum() throws JMException, InterruptedException
+   {
+      final double alertUtilization = 0.9;
+      final List<ByteBuffer> buffers = new ArrayList<>();
+      try (final DirectMemorySampler sampler = new DirectMemorySampler(Duration.ofMillis(50), 200))
+      {
+         sampler.addExporter((sample, source) ->
+         {
+            if (sample.getUtilization() > alertUtilization)
+            {
+               out.println("WARNING: Direct memory above " + (int) (alertUtilization * 100) + "% - " + sample
+                  + "; P99 over window: " + MemoryUnit.BYTES.toMegaBytes(source.getMemoryUsedP99()) + " MB");
+            }
+         });
+         sampler.setErrorHandler(exception -> out.println("ERROR: Direct memory sampler failed - " + exception));
+         sampler.registerMBean().start();
+         final DirectMemoryProbe probe = DirectMemoryProbe.platform();
+         final int bufferSize = 1024 * 1024;
+         while (probe.getMemoryUsed() + bufferSize < probe.getMaxDirectMemory() * 0.95)
+         {
+            buffers.add(ByteBuffer.allocateDirect(bufferSize));
+            Thread.sleep(5);
+         }
+         Thread.sleep(200);
+         out.println("Latest sample: " + sampler.getLatest());
+         out.println("Median direct memory used over window: "
+            + MemoryUnit.BYTES.toMegaBytes(sampler.getMemoryUsedP50()) + " MB");
+      }
+      out.println("Allocated " + buffers.size() + " direct buffers while sampling.");
+   }
+
+   public static void main(final String[] arguments) throws JMException, InterruptedException
    {
       writeUsedDirectMemoryToStdOut();
       writeMaximumDirectMemorySizeToStdOut();
+      writeProbedDirectMemoryToStdOut();
+      if (arguments.length > 0 && "sample".equals(arguments[0]))
+      {
+         sampleDirectMemoryUntilNearMaximum();
+      }
    }
 }
@@ -0,0 +1,377 @@
+package dustin.examples.maxdirectmemory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+/**
+ * Formats byte counts as human-readable sizes in the largest
+ * {@link MemoryUnit} in which the size is at least one (such as
+ * "512 B", "1.5 KB", or "60.0 MB") and parses sizes such as "512M",
+ * "2g", or "1.5 GB" back to byte counts.
+ *
+ * Formatting works in integer arithmetic and writes digits directly into
+ * a caller-supplied {@link StringBuilder}, {@link CharBuffer}, or ASCII
+ * {@code byte[]}, so it creates no intermediate {@code String} or
+ * {@code Double.toString} garbage. Instances are immutable and
+ * thread-safe.
+ */
+public final class MemorySizeFormat
+{
+   /** Format with one digit after the decimal point. */
+   public static final MemorySizeFormat DEFAULT = new MemorySizeFormat(1);
+
+   /** Largest supported number of digits after the decimal point. */
+   public static final int MAXIMUM_FRACTION_DIGITS = 3;
+
+   /** Longest formatted size: "-8192.000 PB". */
+   public static final int MAXIMUM_LENGTH = 12;
+
+   /** Most fraction digits considered when parsing; further digits are ignored. */
+   private static final int MAXIMUM_PARSED_FRACTION_DIGITS = 9;
+
+   private static final MemoryUnit[] UNITS = MemoryUnit.values();
+
+   private static final String[] SYMBOLS = {"B", "KB", "MB", "GB", "TB", "PB"};
+
+   private static final long[] POWERS_OF_TEN =
+      {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+   /*
+    * A formatted size is decomposed into a single long so that every
+    * output target shares the same arithmetic without allocating.
+    */
+   private static final int FRACTION_OFFSET = 16;
+   private static final int UNIT_OFFSET = 32;
+   private static final long NEGATIVE = 1L << 48;
+   private static final long FIELD_MASK = 0xFFFF;
+
+   private final int fractionDigits;
+
+   /**
+    * @param newFractionDigits Number of digits (0 to
+    *    {@link #MAXIMUM_FRACTION_DIGITS}) written after the decimal point
+    *    for sizes larger than a kilobyte.
+    */
+   public MemorySizeFormat(final int newFractionDigits)
+   {
+      if (newFractionDigits < 0 || newFractionDigits > MAXIMUM_FRACTION_DIGITS)
+      {
+         throw new IllegalArgumentException(
+            "Fraction digits must be between 0 and " + MAXIMUM_FRACTION_DIGITS + ": " + newFractionDigits);
+      }
+      fractionDigits = newFractionDigits;
+   }
+
+   /**
+    * Decomposes the provided byte count into a whole number of the best
+    * unit and a rounded fraction of that unit.
+    *
+    * @param bytes Number of bytes.
+    * @return Whole amount, fraction, unit ordinal, and sign packed into
+    *    a {@code long}.
+    */
+   private long decompose(final long bytes)
+   {
+      // Negated Long.MIN_VALUE is still correct when treated as unsigned.
+      final long magnitude = bytes < 0 ? -bytes : bytes;
+      int unit = UNITS.length - 1;
+      while (unit > 0 && (magnitude >>> UNITS[unit].getShift()) == 0)
+      {
+         unit--;
+      }
+      final int shift = UNITS[unit].getShift();
+      long whole = magnitude >>> shift;
+      long fraction = 0;
+      if (unit > 0 && fractionDigits > 0)
+      {
+         final long remainder = magnitude & ((1L << shift) - 1);
+         final long scale = POWERS_OF_TEN[fractionDigits];
+         fraction = (remainder * scale + (1L << (shift - 1))) >>> shift;
+         if (fraction == scale)
+         {
+            whole++;
+            fraction = 0;
+         }
+      }
+      else if (unit > 0 && (magnitude & (1L << (shift - 1))) != 0)
+      {
+         whole++;
+      }
+      if (whole == 1024 && unit < UNITS.length - 1)
+      {
+         whole = 1;
+         unit++;
+      }
+      return whole | fraction << FRACTION_OFFSET | (long) unit << UNIT_OFFSET | (bytes < 0 ? NEGATIVE : 0);
+   }
+
+   /**
+    * @param value Non-negative value.
+    * @return Number of decimal digits in the provided value.
+    */
+   private static int digitCount(final long value)
+   {
+      int digits = 1;
+      while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits])
+      {
+         digits++;
+      }
+      return digits;
+   }
+
+   /**
+    * Appends the provided byte count, formatted, to the provided target.
+    *
+    * @param bytes Number of bytes.
+    * @param target Target to which the formatted size is appended.
+    * @param <A> Type of target.
+    * @return The provided target.
+    */
+   private <A extends Appendable> A appendTo(final long bytes, final A target)
+   {
+      final long decomposed = decompose(bytes);
+      final long whole = decomposed & FIELD_MASK;
+      final long fraction = (decomposed >>> FRACTION_OFFSET) & FIELD_MASK;
+      final int unit = (int) ((decomposed >>> UNIT_OFFSET) & FIELD_MASK);
+      try
+      {
+         if ((decomposed & NEGATIVE) != 0)
+         {
+            target.append('-');
+         }
+         for (int digit = digitCount(whole) - 1; digit >= 0; digit--)
+         {
+            target.append((char) ('0' + whole / POWERS_OF_TEN[digit] % 10));
+         }
+         if (unit > 0 && fractionDigits > 0)
+         {
+            target.append('.');
+            for (int digit = fractionDigits - 1; digit >= 0; digit--)
+            {
+               target.append((char) ('0' + fraction / POWERS_OF_TEN[digit] % 10));
+            }
+         }
+         target.append(' ');
+         final String symbol = SYMBOLS[unit];
+         for (int index = 0; index < symbol.length(); index++)
+         {
+            target.append(symbol.charAt(index));
+         }
+      }
+      catch (IOException exception)
+      {
+         // Neither StringBuilder nor CharBuffer throws IOException.
+         throw new UncheckedIOException(exception);
+      }
+      return target;
+   }
+
+   /**
+    * Appends the provided byte count, formatted, to the provided builder.
+    *
+    * @param bytes Number of bytes.
+    * @param builder Builder to which formatted size is appended.
+    * @return The provided builder.
+    */
+   public StringBuilder format(final long bytes, final StringBuilder builder)
+   {
+      return appendTo(bytes, builder);
+   }
+
+   /**
+    * Writes the provided byte count, formatted, into the provided buffer
+    * at its position, advancing the position.
+    *
+    * @param bytes Number of bytes.
+    * @param buffer Buffer into which the formatted size is written.
+    * @return The provided buffer.
+    * @throws java.nio.BufferOverflowException Thrown if the buffer has
+    *    insufficient space remaining.
+    */
+   public CharBuffer format(final long bytes, final CharBuffer buffer)
+   {
+      return appendTo(bytes, buffer);
+   }
+
+   /**
+    * Writes the provided byte count, formatted as ASCII, into the
+    * provided array.
+    *
+    * @param bytes Number of bytes.
+    * @param destination Array into which the formatted size is written;
+    *    {@link #MAXIMUM_LENGTH} bytes always suffice.
+    * @param offset Index at which writing begins.
+    * @return Index following the last byte written.
+    * @throws ArrayIndexOutOfBoundsException Thrown if the array has
+    *    insufficient space.
+    */
+   public int format(final long bytes, final byte[] destination, final int offset)
+   {
+      final long decomposed = decompose(bytes);
+      final long whole = decomposed & FIELD_MASK;
+      final long fraction = (decomposed >>> FRACTION_OFFSET) & FIELD_MASK;
+      final int unit = (int) ((decomposed >>> UNIT_OFFSET) & FIELD_MASK);
+      int position = offset;
+      if ((decomposed & NEGATIVE) != 0)
+      {
+         destination[position++] = '-';
+      }
+      for (int digit = digitCount(whole) - 1; digit >= 0; digit--)
+      {
+         destination[position++] = (byte) ('0' + whole / POWERS_OF_TEN[digit] % 10);
+      }
+      if (unit > 0 && fractionDigits > 0)
+      {
+         destination[position++] = '.';
+         for (int digit = fractionDigits - 1; digit >= 0; digit--)
+         {
+            destination[position++] = (byte) ('0' + fraction / POWERS_OF_TEN[digit] % 10);
+         }
+      }
+      destination[position++] = ' ';
+      final String symbol = SYMBOLS[unit];
+      for (int index = 0; index < symbol.length(); index++)
+      {
+         destination[position++] = (byte) symbol.charAt(index);
+      }
+      return position;
+   }
+
+   /**
+    * Formats the provided byte count as a new {@code String}; prefer the
+    * methods writing into a caller-supplied target in hot paths.
+    *
+    * @param bytes Number of bytes.
+    * @return Formatted size.
+    */
+   public String format(final long bytes)
+   {
+      return format(bytes, new StringBuilder(MAXIMUM_LENGTH)).toString();
+   }
+
+   /**
+    * Parses a memory size to a number of bytes.
+    *
+    * The size is a non-negative decimal number, optionally followed
+    * (with or without whitespace) by a unit: {@code B}, {@code K},
+    * {@code M}, {@code G}, {@code T}, or {@code P}, in either case, with
+    * an optional trailing {@code B} or {@code iB} (such as {@code 512M},
+    * {@code 2g}, {@code 1.5 GB}, or {@code 64KiB}). A size without a unit
+    * is in bytes. Fractional bytes are rounded to the nearest byte.
+    *
+    * @param size Size to be parsed.
+    * @return Number of bytes.
+    * @throws NumberFormatException Thrown if the size is malformed or is
+    *    too large to be represented in a {@code long} number of bytes.
+    */
+   public static long parse(final CharSequence size)
+   {
+      final int length = size.length();
+      int index = 0;
+      while (index < length && Character.isWhitespace(size.charAt(index)))
+      {
+         index++;
+      }
+      final int wholeStart = index;
+      long whole = 0;
+      while (index < length && isDigit(size.charAt(index)))
+      {
+         if (whole > (Long.MAX_VALUE - 9) / 10)
+         {
+            throw new NumberFormatException("Memory size too large: " + size);
+         }
+         whole = whole * 10 + (size.charAt(index++) - '0');
+      }
+      boolean digitsFound = index > wholeStart;
+      long fraction = 0;
+      int parsedFractionDigits = 0;
+      if (index < length && size.charAt(index) == '.')
+      {
+         index++;
+         while (index < length && isDigit(size.charAt(index)))
+         {
+            if (parsedFractionDigits < MAXIMUM_PARSED_FRACTION_DIGITS)
+            {
+               fraction = fraction * 10 + (size.charAt(index) - '0');
+               parsedFractionDigits++;
+            }
+            digitsFound = true;
+            index++;
+         }
+      }
+      if (!digitsFound)
+      {
+         throw new NumberFormatException("No digits in memory size: " + size);
+      }
+      while (index < length && Character.isWhitespace(size.charAt(index)))
+      {
+         index++;
+      }
+      MemoryUnit unit = MemoryUnit.BYTES;
+      if (index < length)
+      {
+         switch (Character.toUpperCase(size.charAt(index++)))
+         {
+            case 'B':
+               unit = MemoryUnit.BYTES;
+               break;
+            case 'K':
+               unit = MemoryUnit.KILOBYTES;
+               break;
+            case 'M':
+               unit = MemoryUnit.MEGABYTES;
+               break;
+            case 'G':
+               unit = MemoryUnit.GIGABYTES;
+               break;
+            case 'T':
+               unit = MemoryUnit.TERABYTES;
+               break;
+            case 'P':
+               unit = MemoryUnit.PETABYTES;
+               break;
+            default:
+               throw new NumberFormatException("Unrecognized unit in memory size: " + size);
+         }
+         if (unit != MemoryUnit.BYTES)
+         {
+            if (index < length && (size.charAt(index) == 'i' || size.charAt(index) == 'I'))
+            {
+               index++;
+            }
+            if (index < length && Character.toUpperCase(size.charAt(index)) == 'B')
+            {
+               index++;
+            }
+         }
+      }
+      while (index < length && Character.isWhitespace(size.charAt(index)))
+      {
+         index++;
+      }
+      if (index != length)
+      {
+         throw new NumberFormatException("Unexpected characters in memory size: " + size);
+      }
+
+      final int shift = unit.getShift();
+      if (whole > (Long.MAX_VALUE >> shift))
+      {
+         throw new NumberFormatException("Memory size too large: " + size);
+      }
+      final long fractionBytes =
+         Math.round(fraction * Math.scalb(1.0, shift) / POWERS_OF_TEN[parsedFractionDigits]);
+      final long bytes = (whole << shift) + fractionBytes;
+      if (bytes < 0)
+      {
+         throw new NumberFormatException("Memory size too large: " + size);
+      }
+      return bytes;
+   }
+
+   private static boolean isDigit(final char character)
+   {
+      return character >= '0' && character <= '9';
+   }
+}
@@ -2,24 +2,113 @@ package dustin.examples.maxdirectmemory;
 
 /**
  * Representation of basic memory units.
+ *
+ * Each unit is a power of two bytes, so conversions between units are
+ * scalings by a power of two: the {@code double} conversions multiply by
+ * a factor looked up in a precomputed conversion matrix and the exact
+ * {@code long} conversion of {@link #convert(long, MemoryUnit)} shifts.
  */
 public enum MemoryUnit
 {
    /** Smallest memory unit. */
-   BYTES,
+   BYTES(0),
    /** "One thousand" (1024) bytes. */
-   KILOBYTES,
+   KILOBYTES(10),
    /** "One million" (1024x1024) bytes. */
-   MEGABYTES,
+   MEGABYTES(20),
    /** "One billion" (1024x1024x1024) bytes. */
-   GIGABYTES;
+   GIGABYTES(30),
+   /** "One trillion" (1024x1024x1024x1024) bytes. */
+   TERABYTES(40),
+   /** "One quadrillion" (1024x1024x1024x1024x1024) bytes. */
+   PETABYTES(50);
 
-   /** Number of bytes in a kilobyte. */
-   private final double BYTES_PER_KILOBYTE = 1024.0;
-   /** Number of kilobytes in a megabyte. */
-   private final double KILOBYTES_PER_MEGABYTE = 1024.0;
-   /** Number of megabytes per gigabyte. */
-   private final double MEGABYTES_PER_GIGABYTE = 1024.0;
+   /**
+    * Conversion matrix flattened by source unit: the factor by which an
+    * amount of the unit with ordinal {@code source} is multiplied to
+    * express it in the unit with ordinal {@code target} is at index
+    * {@code source * UNIT_COUNT + target}.
+    */
+   private static final double[] CONVERSION_FACTORS;
+
+   private static final int UNIT_COUNT;
+
+   static
+   {
+      final MemoryUnit[] units = values();
+      UNIT_COUNT = units.length;
+      CONVERSION_FACTORS = new double[UNIT_COUNT * UNIT_COUNT];
+      for (final MemoryUnit source : units)
+      {
+         for (final MemoryUnit target : units)
+         {
+            CONVERSION_FACTORS[source.ordinal() * UNIT_COUNT + target.ordinal()] =
+               Math.scalb(1.0, source.shift - target.shift);
+         }
+      }
+   }
+
+   /** Base two logarithm of the number of bytes in this unit. */
+   private final int shift;
+
+   MemoryUnit(final int newShift)
+   {
+      shift = newShift;
+   }
+
+   /**
+    * @return Base two logarithm of the number of bytes in this unit.
+    */
+   public int getShift()
+   {
+      return shift;
+   }
+
+   /**
+    * Converts the provided amount of the provided unit to this unit,
+    * truncating toward zero when converting to a larger unit and
+    * saturating at {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE} when
+    * converting to a smaller unit would overflow, as
+    * {@link java.util.concurrent.TimeUnit#convert(long, java.util.concurrent.TimeUnit)} does.
+    *
+    * @param sourceAmount Amount of memory in the source unit.
+    * @param sourceUnit Unit of the provided amount.
+    * @return Amount of memory in this unit.
+    */
+   public long convert(final long sourceAmount, final MemoryUnit sourceUnit)
+   {
+      final int scale = sourceUnit.shift - shift;
+      if (scale > 0)
+      {
+         if (sourceAmount > (Long.MAX_VALUE >> scale))
+         {
+            return Long.MAX_VALUE;
+         }
+         if (sourceAmount < (Long.MIN_VALUE >> scale))
+         {
+            return Long.MIN_VALUE;
+         }
+         return sourceAmount << scale;
+      }
+      // Arithmetic shift rounds toward negative infinity; bias negative
+      // amounts so that the result is truncated toward zero instead.
+      final long bias = (sourceAmount >> 63) & ((1L << -scale) - 1);
+      return (sourceAmount + bias) >> -scale;
+   }
+
+   /**
+    * Returns the amount of the provided unit of memory corresponding to
+    * the provided input of this unit of memory.
+    *
+    * @param input Number of units of memory.
+    * @param unit Unit of memory to convert to.
+    * @return Number of the provided units of memory corresponding to the
+    *    provided number of this unit of memory.
+    */
+   public double toUnit(final long input, final MemoryUnit unit)
+   {
+      return input * CONVERSION_FACTORS[ordinal() * UNIT_COUNT + unit.ordinal()];
+   }
 
    /**
     * Returns the number of bytes corresponding to the
@@ -31,25 +120,7 @@ public enum MemoryUnit
     */
    public double toBytes(final long input)
    {
-      double bytes;
-      switch (this)
-      {
-         case BYTES:
-            bytes = input;
-            break;
-         case KILOBYTES:
-            bytes = input * BYTES_PER_KILOBYTE;
-            break;
-         case MEGABYTES:
-            bytes = input * BYTES_PER_KILOBYTE * KILOBYTES_PER_MEGABYTE;
-            break;
-         case GIGABYTES:
-            bytes = input * BYTES_PER_KILOBYTE * KILOBYTES_PER_MEGABYTE * MEGABYTES_PER_GIGABYTE;
-            break;
-         default :
-            throw new RuntimeException("No value '" + this + "' recognized for enum MemoryUnit.");
-      }
-      return bytes;
+      return toUnit(input, BYTES);
    }
 
    /**
@@ -62,25 +133,7 @@ public enum MemoryUnit
     */
    public double toKiloBytes(final long input)
    {
-      double kilobytes;
-      switch (this)
-      {
-         case BYTES:
-            kilobytes = input / BYTES_PER_KILOBYTE;
-            break;
-         case KILOBYTES:
-            kilobytes = input;
-            break;
-         case MEGABYTES:
-            kilobytes = input * KILOBYTES_PER_MEGABYTE;
-            break;
-         case GIGABYTES:
-            kilobytes = input * KILOBYTES_PER_MEGABYTE * MEGABYTES_PER_GIGABYTE;
-            break;
-         default:
-            throw new RuntimeException("No value '" + this + "' recognized for enum MemoryUnit.");
-      }
-      return kilobytes;
+      return toUnit(input, KILOBYTES);
    }
 
    /**
@@ -93,25 +146,7 @@ public enum MemoryUnit
     */
    public double toMegaBytes(final long input)
    {
-      double megabytes;
-      switch (this)
-      {
-         case BYTES:
-            megabytes = input / BYTES_PER_KILOBYTE / KILOBYTES_PER_MEGABYTE;
-            break;
-         case KILOBYTES:
-            megabytes = input / KILOBYTES_PER_MEGABYTE;
-            break;
-         case MEGABYTES:
-            megabytes = input;
-            break;
-         case GIGABYTES:
-            megabytes = input * MEGABYTES_PER_GIGABYTE;
-            break;
-         default:
-            throw new RuntimeException("No value '" + this + "' recognized for enum MemoryUnit.");
-      }
-      return megabytes;
+      return toUnit(input, MEGABYTES);
    }
 
    /**
@@ -124,24 +159,32 @@ public enum MemoryUnit
     */
    public double toGigaBytes(final long input)
    {
-      double gigabytes;
-      switch (this)
-      {
-         case BYTES:
-            gigabytes = input / BYTES_PER_KILOBYTE / KILOBYTES_PER_MEGABYTE / MEGABYTES_PER_GIGABYTE;
-            break;
-         case KILOBYTES:
-            gigabytes = input / KILOBYTES_PER_MEGABYTE / MEGABYTES_PER_GIGABYTE;
-            break;
-         case MEGABYTES:
-            gigabytes = input / MEGABYTES_PER_GIGABYTE;
-            break;
-         case GIGABYTES:
-            gigabytes = input;
-            break;
-         default:
-            throw new RuntimeException("No value '" + this + "' recognized for enum MemoryUnit.");
-      }
-      return gigabytes;
+      return toUnit(input, GIGABYTES);
+   }
+
+   /**
+    * Returns the number of terabytes corresponding to the
+    * provided input for a particular unit of memory.
+    *
+    * @param input Number of units of memory.
+    * @return Number of terabytes corresponding to the provided
+    *    number of particular memory units.
+    */
+   public double toTeraBytes(final long input)
+   {
+      return toUnit(input, TERABYTES);
+   }
+
+   /**
+    * Returns the number of petabytes corresponding to the
+    * provided input for a particular unit of memory.
+    *
+    * @param input Number of units of memory.
+    * @return Number of petabytes corresponding to the provided
+    *    number of particular memory units.
+    */
+   public double toPetaBytes(final long input)
+   {
+      return toUnit(input, PETABYTES);
    }
 }
@@ -6,7 +6,7 @@ import java.util.List;
 /**
  * Music album.
  */
-public class Album
+public class Album implements AlbumView
 {
    private final String title;
 
@@ -25,21 +25,25 @@ public class Album
       songsTitles = newSongsTitles;
    }
 
+   @Override
    public String getTitle()
    {
       return title;
    }
 
+   @Override
    public List<String> getArtists()
    {
       return artists;
    }
 
+   @Override
    public int getReleaseYear()
    {
       return releaseYear;
    }
 
+   @Override
    public List<String> getSongsTitles()
    {
       return songsTitles;
@@ -68,6 +72,18 @@ public class Album
          releaseYear = newReleaseYear;
       }
 
+      public Builder title(final String newTitle)
+      {
+         title = newTitle;
+         return this;
+      }
+
+      public Builder releaseYear(final int newReleaseYear)
+      {
+         releaseYear = newReleaseYear;
+         return this;
+      }
+
       public Builder songTitle(final String newSongTitle)
       {
          songsTitles.add(newSongTitle);
@@ -92,6 +108,33 @@ public class Album
          return this;
       }
 
+      /**
+       * Gives this builder new, empty artists and songs titles lists and
+       * sets its title and release year so that the builder can be reused
+       * to build another album without affecting the albums it has
+       * already built, which hold the lists they were built with.
+       *
+       * @param newTitle Title of the next album to be built.
+       * @param newReleaseYear Release year of the next album to be built.
+       * @return This builder.
+       */
+      public Builder reset(final String newTitle, final int newReleaseYear)
+      {
+         title = newTitle;
+         releaseYear = newReleaseYear;
+         artists = new ArrayList<>();
+         songsTitles = new ArrayList<>();
+         return this;
+      }
+
+      /**
+       * Builds an album from this builder's current state. The album
+       * holds this builder's artists and songs titles lists themselves
+       * rather than copies of them; {@link #reset(String, int)} the
+       * builder before reusing it.
+       *
+       * @return Album built from this builder's current state.
+       */
       public Album build()
       {
          return new Album(title, artists, releaseYear, songsTitles);
@@ -0,0 +1,347 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes and reads batches of length-delimited {@code AlbumProtos.Album}
+ * records stored in a memory-mapped file.
+ *
+ * The file layout is the same as that produced by repeated calls to
+ * {@code AlbumProtos.Album.writeDelimitedTo(OutputStream)}: each record
+ * is a varint length followed by that many bytes of the message. The
+ * {@link Reader} decodes each record directly from the mapped region
+ * with {@code CodedInputStream.newInstance(ByteBuffer)} rather than
+ * first copying the record's bytes into an intermediate array.
+ */
+public final class AlbumBatchCodec
+{
+   /** Default size (64 MB) of each region of the file mapped at a time. */
+   public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+   /** Largest region that can be mapped into a single buffer. */
+   private static final int MAXIMUM_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+   private AlbumBatchCodec()
+   {
+   }
+
+   /**
+    * Writes {@code AlbumProtos.Album} records into successive
+    * memory-mapped windows of a file.
+    */
+   public static class Writer implements Closeable
+   {
+      private final FileChannel channel;
+
+      private final int windowSize;
+
+      private long windowStart;
+
+      private MappedByteBuffer window;
+
+      private CodedOutputStream output;
+
+      private long recordsWritten;
+
+      /**
+       * Creates (or truncates) the file at the provided path for
+       * writing album records using the default window size.
+       *
+       * @param path Path of file to which album records are written.
+       * @throws IOException Thrown if the file cannot be opened.
+       */
+      public Writer(final Path path) throws IOException
+      {
+         this(path, DEFAULT_WINDOW_SIZE);
+      }
+
+      /**
+       * Creates (or truncates) the file at the provided path for
+       * writing album records.
+       *
+       * @param path Path of file to which album records are written.
+       * @param newWindowSize Number of bytes of the file mapped at a time.
+       * @throws IOException Thrown if the file cannot be opened.
+       */
+      public Writer(final Path path, final int newWindowSize) throws IOException
+      {
+         if (newWindowSize <= 0 || newWindowSize > MAXIMUM_WINDOW_SIZE)
+         {
+            throw new IllegalArgumentException("Invalid window size: " + newWindowSize);
+         }
+         channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+         windowSize = newWindowSize;
+      }
+
+      /**
+       * Appends the provided album as a length-delimited record.
+       *
+       * @param album Album to be written.
+       * @throws IOException Thrown if the album cannot be written.
+       */
+      public void write(final AlbumProtos.Album album) throws IOException
+      {
+         final int messageSize = album.getSerializedSize();
+         final int recordSize = CodedOutputStream.computeUInt32SizeNoTag(messageSize) + messageSize;
+         if (output == null || output.spaceLeft() < recordSize)
+         {
+            mapWindow(recordSize);
+         }
+         output.writeUInt32NoTag(messageSize);
+         album.writeTo(output);
+         recordsWritten++;
+      }
+
+      /**
+       * Provides number of bytes written to the file so far.
+       *
+       * @return Number of bytes written so far.
+       */
+      public long getBytesWritten()
+      {
+         return output == null ? windowStart : windowStart + output.getTotalBytesWritten();
+      }
+
+      /**
+       * Provides number of album records written to the file so far.
+       *
+       * @return Number of album records written so far.
+       */
+      public long getRecordsWritten()
+      {
+         return recordsWritten;
+      }
+
+      /**
+       * Maps the next window of the file, starting at the end of the
+       * last record written, that is large enough to hold a record of
+       * the provided size.
+       *
+       * @param recordSize Size in bytes of the record about to be written.
+       * @throws IOException Thrown if the region cannot be mapped.
+       */
+      private void mapWindow(final int recordSize) throws IOException
+      {
+         final long position = getBytesWritten();
+         if (output != null)
+         {
+            output.flush();
+         }
+         windowStart = position;
+         window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(windowSize, recordSize));
+         output = CodedOutputStream.newInstance(window);
+      }
+
+      /**
+       * Flushes all written records and trims the file to the bytes
+       * actually written (mapping a window extends the file to the
+       * end of that window).
+       *
+       * @throws IOException Thrown if the file cannot be flushed or trimmed.
+       */
+      @Override
+      public void close() throws IOException
+      {
+         try
+         {
+            final long bytesWritten = getBytesWritten();
+            if (output != null)
+            {
+               output.flush();
+               window.force();
+               output = null;
+               window = null;
+            }
+            channel.truncate(bytesWritten);
+         }
+         finally
+         {
+            channel.close();
+         }
+      }
+   }
+
+   /**
+    * Reads {@code AlbumProtos.Album} records from successive
+    * memory-mapped windows of a file without copying each record's
+    * bytes onto the heap prior to parsing.
+    */
+   public static class Reader implements Closeable
+   {
+      private final FileChannel channel;
+
+      private final long fileSize;
+
+      private final int windowSize;
+
+      private long windowStart;
+
+      private MappedByteBuffer window;
+
+      private CodedInputStream input;
+
+      /**
+       * Opens the file at the provided path for reading album
+       * records using the default window size.
+       *
+       * @param path Path of file from which album records are read.
+       * @throws IOException Thrown if the file cannot be opened.
+       */
+      public Reader(final Path path) throws IOException
+      {
+         this(path, DEFAULT_WINDOW_SIZE);
+      }
+
+      /**
+       * Opens the file at the provided path for reading album records.
+       *
+       * @param path Path of file from which album records are read.
+       * @param newWindowSize Number of bytes of the file mapped at a time;
+       *    a larger window is mapped if a single record requires it.
+       * @throws IOException Thrown if the file cannot be opened.
+       */
+      public Reader(final Path path, final int newWindowSize) throws IOException
+      {
+         if (newWindowSize <= 0 || newWindowSize > MAXIMUM_WINDOW_SIZE)
+         {
+            throw new IllegalArgumentException("Invalid window size: " + newWindowSize);
+         }
+         channel = FileChannel.open(path, StandardOpenOption.READ);
+         fileSize = channel.size();
+         windowSize = newWindowSize;
+      }
+
+      /**
+       * Reads the next album record.
+       *
+       * @return Next album in the file or {@code null} if all albums
+       *    in the file have been read (the same convention as
+       *    {@code AlbumProtos.Album.parseDelimitedFrom(InputStream)}).
+       * @throws IOException Thrown if the next record is malformed
+       *    or cannot be mapped.
+       */
+      public AlbumProtos.Album read() throws IOException
+      {
+         final long recordStart = getPosition();
+         if (recordStart >= fileSize)
+         {
+            return null;
+         }
+         if (input == null || !windowHoldsRecordAt((int) (recordStart - windowStart)))
+         {
+            mapWindow(recordStart);
+         }
+         final int length = input.readRawVarint32();
+         final int oldLimit = input.pushLimit(length);
+         final AlbumProtos.Album album = AlbumProtos.Album.parseFrom(input);
+         input.popLimit(oldLimit);
+         return album;
+      }
+
+      /**
+       * Provides the offset in the file of the next record to be read.
+       *
+       * @return Offset of next record to be read.
+       */
+      public long getPosition()
+      {
+         return input == null ? windowStart : windowStart + input.getTotalBytesRead();
+      }
+
+      /**
+       * Maps a window of the file beginning at the provided record offset
+       * that is large enough to hold the entire record at that offset.
+       *
+       * @param recordStart Offset in file of the record to be read next.
+       * @throws IOException Thrown if the region cannot be mapped or if
+       *    the record extends past the end of the file.
+       */
+      private void mapWindow(final long recordStart) throws IOException
+      {
+         final long bytesLeft = fileSize - recordStart;
+         map(recordStart, (int) Math.min(bytesLeft, windowSize));
+         if (!windowHoldsRecordAt(0) && bytesLeft > windowSize)
+         {
+            map(recordStart, (int) Math.min(bytesLeft, MAXIMUM_WINDOW_SIZE));
+         }
+         if (!windowHoldsRecordAt(0))
+         {
+            throw new InvalidProtocolBufferException(
+               "Truncated or oversized album record at offset " + recordStart + ".");
+         }
+      }
+
+      /**
+       * Maps the specified region of the file and places a
+       * {@code CodedInputStream} directly over it.
+       *
+       * @param position Offset in file at which the mapped region begins.
+       * @param size Size in bytes of the mapped region.
+       * @throws IOException Thrown if the region cannot be mapped.
+       */
+      private void map(final long position, final int size) throws IOException
+      {
+         windowStart = position;
+         window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+         input = CodedInputStream.newInstance(window);
+         // Mapped windows can be far larger than the default 64 MB message size limit.
+         input.setSizeLimit(Integer.MAX_VALUE);
+      }
+
+      /**
+       * Indicates whether the length prefix and body of the record starting
+       * at the provided offset of the current window lie entirely within
+       * that window. The length prefix is decoded with absolute reads so
+       * that the position of the decoding stream is not disturbed.
+       *
+       * @param offset Offset within the current window of the record.
+       * @return {@code true} if the entire record is within the window.
+       * @throws InvalidProtocolBufferException Thrown if the length
+       *    prefix is not a valid varint.
+       */
+      private boolean windowHoldsRecordAt(final int offset) throws InvalidProtocolBufferException
+      {
+         final int limit = window.limit();
+         int index = offset;
+         long length = 0;
+         for (int shift = 0; ; shift += 7)
+         {
+            if (index >= limit)
+            {
+               return false;
+            }
+            if (shift > 28)
+            {
+               throw new InvalidProtocolBufferException(
+                  "Malformed album record length at offset " + (windowStart + offset) + ".");
+            }
+            final byte currentByte = window.get(index++);
+            length |= (long) (currentByte & 0x7F) << shift;
+            if (currentByte >= 0)
+            {
+               break;
+            }
+         }
+         return index + length <= limit;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         input = null;
+         window = null;
+         channel.close();
+      }
+   }
+}
@@ -0,0 +1,299 @@
+package dustin.examples.protobuf;
+
+import static java.lang.System.out;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demonstrates writing and reading a batch of albums with
+ * {@link AlbumBatchCodec} and compares the throughput of decoding
+ * from a memory-mapped file, and of decoding in parallel with
+ * {@link AlbumDecodePublisher}, with the throughput of
+ * {@link AlbumDemo#instantiateAlbumFromBinary(byte[])}.
+ */
+public class AlbumBatchDemo
+{
+   /** Default number of albums written and read in the demonstration. */
+   private static final int DEFAULT_ALBUM_COUNT = 1_000_000;
+
+   /**
+    * Generates the provided number of album messages, each a variation
+    * of the album from {@link AlbumDemo#generateAlbum()}.
+    *
+    * @param albumDemo Instance of AlbumDemo used to generate albums.
+    * @param albumCount Number of album messages to generate.
+    * @return Album messages.
+    */
+   private static List<AlbumProtos.Album> generateAlbumMessages(
+      final AlbumDemo albumDemo, final int albumCount)
+   {
+      final AlbumProtos.Album template = albumDemo.generateAlbumMessage(albumDemo.generateAlbum());
+      final List<AlbumProtos.Album> albums = new ArrayList<>(albumCount);
+      for (int index = 0; index < albumCount; index++)
+      {
+         albums.add(template.toBuilder()
+            .setTitle(template.getTitle() + " #" + index)
+            .setReleaseYear(template.getReleaseYear() + index % 40)
+            .build());
+      }
+      return albums;
+   }
+
+   /**
+    * Decodes each of the provided binary albums with
+    * {@link AlbumDemo#instantiateAlbumFromBinary(byte[])}.
+    *
+    * @param albumDemo Instance of AlbumDemo used to decode albums.
+    * @param binaryAlbums Albums in Protocol Buffers binary format.
+    * @return Sum of release years of decoded albums (to keep the
+    *    decoding from being optimized away).
+    */
+   private static long decodeFromByteArrays(final AlbumDemo albumDemo, final List<byte[]> binaryAlbums)
+   {
+      long checksum = 0;
+      for (final byte[] binaryAlbum : binaryAlbums)
+      {
+         checksum += albumDemo.instantiateAlbumFromBinary(binaryAlbum).getReleaseYear();
+      }
+      return checksum;
+   }
+
+   /**
+    * Decodes all of the albums in the provided batch file with
+    * {@link AlbumBatchCodec.Reader}.
+    *
+    * @param albumDemo Instance of AlbumDemo used to convert messages to albums.
+    * @param batchFile File written by {@link AlbumBatchCodec.Writer}.
+    * @return Sum of release years of decoded albums.
+    * @throws IOException Thrown if the batch file cannot be read.
+    */
+   private static long decodeFromMappedFile(final AlbumDemo albumDemo, final Path batchFile)
+      throws IOException
+   {
+      long checksum = 0;
+      try (final AlbumBatchCodec.Reader reader = new AlbumBatchCodec.Reader(batchFile))
+      {
+         AlbumProtos.Album albumMessage;
+         while ((albumMessage = reader.read()) != null)
+         {
+            checksum += albumDemo.instantiateAlbumFromMessage(albumMessage).getReleaseYear();
+         }
+      }
+      return checksum;
+   }
+
+   /**
+    * Decodes all of the albums in the provided batch file in parallel
+    * with {@link AlbumDecodePublisher}.
+    *
+    * @param batchFile File of length-delimited album records.
+    * @param workerCount Number of threads decoding albums.
+    * @return Sum of release years of decoded albums.
+    * @throws IOException Thrown if the batch file cannot be read.
+    * @throws InterruptedException Thrown if interrupted while waiting
+    *    for publishing to complete.
+    */
+   private static long decodeWithPublisher(final Path batchFile, final int workerCount)
+      throws IOException, InterruptedException
+   {
+      final ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+      try
+      {
+         final AtomicLong checksum = new AtomicLong();
+         final CountDownLatch done = new CountDownLatch(1);
+         final AlbumDecodePublisher publisher = new AlbumDecodePublisher(
+            new BufferedInputStream(Files.newInputStream(batchFile)), workers);
+         publisher.subscribe(new Flow.Subscriber<>()
+         {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(final Flow.Subscription newSubscription)
+            {
+               subscription = newSubscription;
+               subscription.request(AlbumDecodePublisher.DEFAULT_QUEUE_DEPTH);
+            }
+
+            @Override
+            public void onNext(final Album album)
+            {
+               checksum.addAndGet(album.getReleaseYear());
+               subscription.request(1);
+            }
+
+            @Override
+            public void onError(final Throwable throwable)
+            {
+               out.println("ERROR: Unable to decode albums - " + throwable);
+               done.countDown();
+            }
+
+            @Override
+            public void onComplete()
+            {
+               done.countDown();
+            }
+         });
+         done.await();
+         return checksum.get();
+      }
+      finally
+      {
+         workers.shutdown();
+      }
+   }
+
+   /**
+    * Writes the provided albums in the dictionary-encoded batch format
+    * and reads them back, writing the size of the batch and the number
+    * of distinct artist instances decoded to standard output.
+    *
+    * @param albumDemo Instance of AlbumDemo used to convert messages to albums.
+    * @param albums Albums to be written.
+    * @throws IOException Thrown if the temporary batch file cannot be
+    *    written or read.
+    */
+   private static void demonstrateDictionaryEncoding(
+      final AlbumDemo albumDemo, final List<AlbumProtos.Album> albums) throws IOException
+   {
+      final Path dictionaryFile = Files.createTempFile("albums", ".albd");
+      try
+      {
+         try (final DictionaryAlbumBatchCodec.Writer writer = new DictionaryAlbumBatchCodec.Writer(
+            new BufferedOutputStream(Files.newOutputStream(dictionaryFile))))
+         {
+            for (final AlbumProtos.Album album : albums)
+            {
+               writer.write(albumDemo.instantiateAlbumFromMessage(album));
+            }
+            out.println("Wrote " + writer.getAlbumsWritten() + " albums with " + writer.getArtistCount()
+               + " distinct artists (" + Files.size(dictionaryFile) + " bytes) to " + dictionaryFile);
+         }
+         final Set<String> artistInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+         try (final DictionaryAlbumBatchCodec.Reader reader = new DictionaryAlbumBatchCodec.Reader(
+            new BufferedInputStream(Files.newInputStream(dictionaryFile))))
+         {
+            Album album;
+            while ((album = reader.read()) != null)
+            {
+               artistInstances.addAll(album.getArtists());
+            }
+         }
+         out.println("Read back albums sharing " + artistInstances.size() + " artist String instance(s).");
+      }
+      finally
+      {
+         Files.deleteIfExists(dictionaryFile);
+      }
+   }
+
+   /**
+    * Loads the provided albums into an {@link AlbumCatalog} and writes
+    * the catalog's estimated size and the results of a year-range scan
+    * and an artist lookup to standard output.
+    *
+    * @param albums Albums to be cataloged.
+    */
+   private static void demonstrateCatalog(final List<AlbumProtos.Album> albums)
+   {
+      final AlbumCatalog.Builder builder = new AlbumCatalog.Builder();
+      albums.forEach(builder::album);
+      final AlbumCatalog catalog = builder.build();
+      out.println("AlbumCatalog of " + catalog.size() + " albums by " + catalog.getArtistCount()
+         + " artist(s) occupies about " + catalog.estimateSizeInBytes() + " bytes.");
+      out.println("Albums released 1990-1994: " + catalog.countInYearRange(1990, 1994));
+      out.println("Albums by Tears For Fears: " + catalog.albumsByArtist("Tears For Fears").length);
+   }
+
+   /**
+    * Writes albums per second for the provided number of albums
+    * decoded in the provided number of nanoseconds.
+    *
+    * @param label Label describing decoding approach.
+    * @param albumCount Number of albums decoded.
+    * @param elapsedNanoseconds Nanoseconds spent decoding.
+    */
+   private static void writeThroughput(final String label, final int albumCount, final long elapsedNanoseconds)
+   {
+      out.println(label + ": " + albumCount + " albums in " + elapsedNanoseconds / 1_000_000 + " ms ("
+         + (long) (albumCount / (elapsedNanoseconds / 1_000_000_000.0)) + " albums/second)");
+   }
+
+   /**
+    * Demonstrates batch writing and reading of albums with a
+    * memory-mapped file.
+    *
+    * @param arguments Command-line arguments: optional number of albums
+    *    to write and read (default is one million).
+    * @throws IOException Thrown if the temporary batch file cannot be
+    *    written or read.
+    * @throws InterruptedException Thrown if interrupted while waiting
+    *    for parallel decoding to complete.
+    */
+   public static void main(final String[] arguments) throws IOException, InterruptedException
+   {
+      final int albumCount = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_ALBUM_COUNT;
+      final AlbumDemo albumDemo = new AlbumDemo();
+      final List<AlbumProtos.Album> albums = generateAlbumMessages(albumDemo, albumCount);
+      final List<byte[]> binaryAlbums = new ArrayList<>(albumCount);
+      albums.forEach(album -> binaryAlbums.add(album.toByteArray()));
+
+      final Path batchFile = Files.createTempFile("albums", ".pb");
+      try
+      {
+         try (final AlbumBatchCodec.Writer writer = new AlbumBatchCodec.Writer(batchFile))
+         {
+            for (final AlbumProtos.Album album : albums)
+            {
+               writer.write(album);
+            }
+            out.println("Wrote " + writer.getRecordsWritten() + " albums (" + writer.getBytesWritten()
+               + " bytes) to " + batchFile);
+         }
+         demonstrateDictionaryEncoding(albumDemo, albums);
+         demonstrateCatalog(albums);
+
+         // Run each approach twice so that the second timing reflects compiled code.
+         for (int iteration = 0; iteration < 2; iteration++)
+         {
+            long start = System.nanoTime();
+            final long byteArrayChecksum = decodeFromByteArrays(albumDemo, binaryAlbums);
+            writeThroughput("instantiateAlbumFromBinary(byte[])", albumCount, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            final long mappedChecksum = decodeFromMappedFile(albumDemo, batchFile);
+            writeThroughput("AlbumBatchCodec.Reader (mapped)", albumCount, System.nanoTime() - start);
+
+            final int workerCount = Runtime.getRuntime().availableProcessors();
+            start = System.nanoTime();
+            final long publisherChecksum = decodeWithPublisher(batchFile, workerCount);
+            writeThroughput("AlbumDecodePublisher (" + workerCount + " workers)", albumCount,
+               System.nanoTime() - start);
+
+            if (byteArrayChecksum != mappedChecksum || byteArrayChecksum != publisherChecksum)
+            {
+               out.println("ERROR: Checksums differ: " + byteArrayChecksum + " vs. " + mappedChecksum
+                  + " vs. " + publisherChecksum);
+            }
+         }
+      }
+      finally
+      {
+         Files.deleteIfExists(batchFile);
+      }
+   }
+}
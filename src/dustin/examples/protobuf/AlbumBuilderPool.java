@@ -0,0 +1,142 @@
+package dustin.examples.protobuf;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Thread-confined pool of the builders used to decode binary
+ * {@code AlbumProtos.Album} messages into {@link Album} instances so
+ * that a loop decoding many albums reuses the same builders rather
+ * than allocating new builders (and their lists) for every album.
+ *
+ * Decoding with {@link #decode(byte[])} reads the binary album directly
+ * into a reused {@link Album.Builder} without an intermediate
+ * {@code AlbumProtos.Album} (whose builder discards its lists when
+ * cleared); the only objects allocated are the resulting {@link Album},
+ * the lists it takes over from the builder, and its strings.
+ *
+ * An instance must only be used by the thread that obtained it from
+ * {@link #forCurrentThread()}.
+ */
+public final class AlbumBuilderPool
+{
+   /** One pool per thread. */
+   private static final ThreadLocal<AlbumBuilderPool> POOLS = ThreadLocal.withInitial(AlbumBuilderPool::new);
+
+   private final Album.Builder albumBuilder = new Album.Builder("", 0);
+
+   private final AlbumWireReader wireReader = new AlbumWireReader();
+
+   private AlbumBuilderPool()
+   {
+   }
+
+   /**
+    * Provides the pool confined to the current thread.
+    *
+    * @return Pool of builders for the current thread.
+    */
+   public static AlbumBuilderPool forCurrentThread()
+   {
+      return POOLS.get();
+   }
+
+   /**
+    * Provides this pool's {@link Album.Builder}, reset for an album
+    * with the provided title and release year.
+    *
+    * @param title Title of album to be built.
+    * @param releaseYear Release year of album to be built.
+    * @return Reset, reused instance of {@link Album.Builder}.
+    */
+   public Album.Builder albumBuilder(final String title, final int releaseYear)
+   {
+      return albumBuilder.reset(title, releaseYear);
+   }
+
+   /**
+    * Decodes the provided binary album into an {@link Album} using
+    * this pool's builders.
+    *
+    * @param binaryAlbum Bytes array that should represent an
+    *    AlbumProtos.Album based on Google Protocol Buffers binary format.
+    * @return Album decoded from the provided bytes.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   public Album decode(final byte[] binaryAlbum)
+   {
+      return decode(binaryAlbum, 0, binaryAlbum.length);
+   }
+
+   /**
+    * Decodes the binary album in the provided region of a bytes array
+    * into an {@link Album} using this pool's builders.
+    *
+    * @param buffer Bytes array containing an AlbumProtos.Album based
+    *    on Google Protocol Buffers binary format.
+    * @param offset Offset of the album within the bytes array.
+    * @param length Length in bytes of the album.
+    * @return Album decoded from the provided region.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   public Album decode(final byte[] buffer, final int offset, final int length)
+   {
+      return decode(buffer, offset, length, null, null);
+   }
+
+   /**
+    * Decodes the binary album in the provided region of a bytes array
+    * into an {@link Album} using this pool's builders, deduplicating the
+    * decoded strings through the provided dictionaries. Albums decoded
+    * in bulk with shared dictionaries share the {@code String}
+    * instances of recurring artists (and, optionally, titles).
+    *
+    * @param buffer Bytes array containing an AlbumProtos.Album based
+    *    on Google Protocol Buffers binary format.
+    * @param offset Offset of the album within the bytes array.
+    * @param length Length in bytes of the album.
+    * @param artistDictionary Dictionary through which artists are
+    *    deduplicated; {@code null} to not deduplicate artists.
+    * @param titleDictionary Dictionary through which album and song
+    *    titles are deduplicated; {@code null} to not deduplicate titles.
+    * @return Album decoded from the provided region.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   public Album decode(
+      final byte[] buffer, final int offset, final int length,
+      final StringDictionary artistDictionary, final StringDictionary titleDictionary)
+   {
+      final AlbumWireReader reader = wireReader.reset(buffer, offset, length);
+      final Album.Builder builder = albumBuilder("", 0);
+      while (reader.hasRemaining())
+      {
+         final int tag = reader.readTag();
+         final int fieldNumber = tag >>> 3;
+         final int wireType = tag & 0x7;
+         if (fieldNumber == AlbumProtos.Album.TITLE_FIELD_NUMBER
+            && wireType == AlbumWireReader.WIRETYPE_LENGTH_DELIMITED)
+         {
+            builder.title(reader.readString(titleDictionary));
+         }
+         else if (fieldNumber == AlbumProtos.Album.ARTIST_FIELD_NUMBER
+            && wireType == AlbumWireReader.WIRETYPE_LENGTH_DELIMITED)
+         {
+            builder.artist(reader.readString(artistDictionary));
+         }
+         else if (fieldNumber == AlbumProtos.Album.RELEASE_YEAR_FIELD_NUMBER
+            && wireType == AlbumWireReader.WIRETYPE_VARINT)
+         {
+            builder.releaseYear(reader.readInt32());
+         }
+         else if (fieldNumber == AlbumProtos.Album.SONG_TITLE_FIELD_NUMBER
+            && wireType == AlbumWireReader.WIRETYPE_LENGTH_DELIMITED)
+         {
+            builder.songTitle(reader.readString(titleDictionary));
+         }
+         else
+         {
+            reader.skipField(tag);
+         }
+      }
+      return builder.build();
+   }
+}
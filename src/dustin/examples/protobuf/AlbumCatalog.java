@@ -0,0 +1,571 @@
+package dustin.examples.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, column-oriented collection of many albums.
+ *
+ * Rather than holding an {@link Album} (with its lists and strings) per
+ * album, the catalog holds one primitive array per attribute:
+ * <ul>
+ * <li>release years in an {@code int[]};</li>
+ * <li>album and song titles as addresses into a shared pool of UTF-8
+ *    bytes, with each album's songs located by compressed sparse row
+ *    ("CSR") start offsets;</li>
+ * <li>artists stored once each in the same pool and referenced from
+ *    each album by {@code int} identifier, again via CSR offsets.</li>
+ * </ul>
+ * Albums are identified by their {@code int} index in the order they
+ * were added. Release years are indexed by a sorted array of album
+ * indexes for range scans, and artists by a name-sorted array of artist
+ * identifiers plus an inverted CSR index from artist to albums.
+ */
+public class AlbumCatalog
+{
+   /** Size of ranges of artist identifiers sorted by insertion rather than merging. */
+   private static final int INSERTION_SORT_THRESHOLD = 16;
+
+   private final int albumCount;
+
+   private final Utf8Pool strings;
+
+   private final int[] releaseYears;
+
+   private final long[] titleAddresses;
+
+   /** Album {@code i}'s songs are at indexes [songStarts[i], songStarts[i + 1]). */
+   private final int[] songStarts;
+
+   private final long[] songTitleAddresses;
+
+   /** Album {@code i}'s artists are at indexes [artistStarts[i], artistStarts[i + 1]). */
+   private final int[] artistStarts;
+
+   private final int[] albumArtistIds;
+
+   private final long[] artistAddresses;
+
+   /** Album indexes sorted by release year. */
+   private final int[] albumsByYear;
+
+   /** Release years in the order of {@link #albumsByYear}. */
+   private final int[] sortedYears;
+
+   /** Artist identifiers sorted by artist name (in UTF-8 byte order). */
+   private final int[] artistsByName;
+
+   /** Artist {@code a}'s albums are at indexes [artistAlbumStarts[a], artistAlbumStarts[a + 1]). */
+   private final int[] artistAlbumStarts;
+
+   private final int[] artistAlbums;
+
+   private AlbumCatalog(final Builder builder)
+   {
+      albumCount = builder.albumCount;
+      strings = builder.strings;
+      releaseYears = Arrays.copyOf(builder.releaseYears, albumCount);
+      titleAddresses = Arrays.copyOf(builder.titleAddresses, albumCount);
+      songStarts = Arrays.copyOf(builder.songStarts, albumCount + 1);
+      songTitleAddresses = Arrays.copyOf(builder.songTitleAddresses, songStarts[albumCount]);
+      artistStarts = Arrays.copyOf(builder.artistStarts, albumCount + 1);
+      albumArtistIds = Arrays.copyOf(builder.albumArtistIds, artistStarts[albumCount]);
+      artistAddresses = Arrays.copyOf(builder.artistAddresses, builder.artistIds.size());
+
+      albumsByYear = new int[albumCount];
+      sortedYears = new int[albumCount];
+      indexYears();
+
+      artistsByName = sortArtistsByName();
+
+      artistAlbumStarts = new int[artistAddresses.length + 1];
+      artistAlbums = new int[albumArtistIds.length];
+      indexArtistAlbums();
+   }
+
+   /**
+    * Sorts album indexes by release year (and by album index within a
+    * year) by sorting release years and indexes packed into {@code long}s.
+    */
+   private void indexYears()
+   {
+      final long[] yearAndAlbum = new long[albumCount];
+      for (int album = 0; album < albumCount; album++)
+      {
+         // Flip the sign bit so that negative years sort before positive years.
+         yearAndAlbum[album] = ((long) (releaseYears[album] ^ Integer.MIN_VALUE) << 32) | album;
+      }
+      Arrays.sort(yearAndAlbum);
+      for (int index = 0; index < albumCount; index++)
+      {
+         albumsByYear[index] = (int) yearAndAlbum[index];
+         sortedYears[index] = (int) (yearAndAlbum[index] >>> 32) ^ Integer.MIN_VALUE;
+      }
+   }
+
+   /**
+    * Provides artist identifiers sorted by the artists' names.
+    *
+    * @return Artist identifiers sorted by name.
+    */
+   private int[] sortArtistsByName()
+   {
+      final int[] sorted = new int[artistAddresses.length];
+      for (int artist = 0; artist < sorted.length; artist++)
+      {
+         sorted[artist] = artist;
+      }
+      sortArtistsByName(sorted, new int[sorted.length], 0, sorted.length);
+      return sorted;
+   }
+
+   /**
+    * Merge sorts the artist identifiers at indexes [from, to) of the
+    * provided array by the artists' names, comparing the pooled UTF-8
+    * bytes directly and using the same range of the scratch array.
+    */
+   private void sortArtistsByName(final int[] artistIds, final int[] scratch, final int from, final int to)
+   {
+      if (to - from <= INSERTION_SORT_THRESHOLD)
+      {
+         for (int index = from + 1; index < to; index++)
+         {
+            final int artist = artistIds[index];
+            int position = index;
+            while (position > from && compareNames(artistIds[position - 1], artist) > 0)
+            {
+               artistIds[position] = artistIds[position - 1];
+               position--;
+            }
+            artistIds[position] = artist;
+         }
+         return;
+      }
+      final int middle = (from + to) >>> 1;
+      sortArtistsByName(artistIds, scratch, from, middle);
+      sortArtistsByName(artistIds, scratch, middle, to);
+      if (compareNames(artistIds[middle - 1], artistIds[middle]) <= 0)
+      {
+         return;
+      }
+      System.arraycopy(artistIds, from, scratch, from, to - from);
+      int left = from;
+      int right = middle;
+      for (int index = from; index < to; index++)
+      {
+         if (right == to || left < middle && compareNames(scratch[left], scratch[right]) <= 0)
+         {
+            artistIds[index] = scratch[left++];
+         }
+         else
+         {
+            artistIds[index] = scratch[right++];
+         }
+      }
+   }
+
+   private int compareNames(final int artist1, final int artist2)
+   {
+      return strings.compare(artistAddresses[artist1], artistAddresses[artist2]);
+   }
+
+   /**
+    * Builds the inverted index from each artist to that artist's albums
+    * (in album index order) with a counting sort.
+    */
+   private void indexArtistAlbums()
+   {
+      for (final int artist : albumArtistIds)
+      {
+         artistAlbumStarts[artist + 1]++;
+      }
+      for (int artist = 0; artist < artistAddresses.length; artist++)
+      {
+         artistAlbumStarts[artist + 1] += artistAlbumStarts[artist];
+      }
+      final int[] nextPosition = Arrays.copyOf(artistAlbumStarts, artistAddresses.length);
+      for (int album = 0; album < albumCount; album++)
+      {
+         for (int index = artistStarts[album]; index < artistStarts[album + 1]; index++)
+         {
+            artistAlbums[nextPosition[albumArtistIds[index]]++] = album;
+         }
+      }
+   }
+
+   /**
+    * Provides the number of albums in this catalog.
+    *
+    * @return Number of albums.
+    */
+   public int size()
+   {
+      return albumCount;
+   }
+
+   /**
+    * Provides the title of the album at the provided index.
+    *
+    * @param album Index of album.
+    * @return Album title.
+    */
+   public String getTitle(final int album)
+   {
+      return strings.get(titleAddresses[album]);
+   }
+
+   /**
+    * Provides the release year of the album at the provided index.
+    *
+    * @param album Index of album.
+    * @return Album release year.
+    */
+   public int getReleaseYear(final int album)
+   {
+      return releaseYears[album];
+   }
+
+   /**
+    * Provides the artists of the album at the provided index.
+    *
+    * @param album Index of album.
+    * @return Unmodifiable list of album artists.
+    */
+   public List<String> getArtists(final int album)
+   {
+      final List<String> artists = new ArrayList<>(artistStarts[album + 1] - artistStarts[album]);
+      for (int index = artistStarts[album]; index < artistStarts[album + 1]; index++)
+      {
+         artists.add(strings.get(artistAddresses[albumArtistIds[index]]));
+      }
+      return Collections.unmodifiableList(artists);
+   }
+
+   /**
+    * Provides the song titles of the album at the provided index.
+    *
+    * @param album Index of album.
+    * @return Unmodifiable list of album song titles.
+    */
+   public List<String> getSongsTitles(final int album)
+   {
+      final List<String> songsTitles = new ArrayList<>(songStarts[album + 1] - songStarts[album]);
+      for (int index = songStarts[album]; index < songStarts[album + 1]; index++)
+      {
+         songsTitles.add(strings.get(songTitleAddresses[index]));
+      }
+      return Collections.unmodifiableList(songsTitles);
+   }
+
+   /**
+    * Materializes the album at the provided index as an {@link Album}.
+    *
+    * @param album Index of album.
+    * @return Album at the provided index.
+    */
+   public Album getAlbum(final int album)
+   {
+      return new Album.Builder(getTitle(album), getReleaseYear(album))
+         .artists(getArtists(album))
+         .songsTitles(getSongsTitles(album))
+         .build();
+   }
+
+   /**
+    * Invokes the provided consumer with the index of each album released
+    * in the provided (inclusive) range of years, in order of release year.
+    *
+    * @param fromYear First year of range.
+    * @param toYear Last year of range.
+    * @param albumConsumer Consumer of album indexes.
+    */
+   public void forEachInYearRange(final int fromYear, final int toYear, final IntConsumer albumConsumer)
+   {
+      final int end = firstIndexOfYearAfter(toYear);
+      for (int index = firstIndexOfYearAtOrAfter(fromYear); index < end; index++)
+      {
+         albumConsumer.accept(albumsByYear[index]);
+      }
+   }
+
+   /**
+    * Provides the indexes of the albums released in the provided
+    * (inclusive) range of years, in order of release year.
+    *
+    * @param fromYear First year of range.
+    * @param toYear Last year of range.
+    * @return Indexes of albums released in range.
+    */
+   public int[] albumsInYearRange(final int fromYear, final int toYear)
+   {
+      final int start = firstIndexOfYearAtOrAfter(fromYear);
+      final int end = firstIndexOfYearAfter(toYear);
+      return start < end ? Arrays.copyOfRange(albumsByYear, start, end) : new int[0];
+   }
+
+   /**
+    * Provides the number of albums released in the provided (inclusive)
+    * range of years without visiting them.
+    *
+    * @param fromYear First year of range.
+    * @param toYear Last year of range.
+    * @return Number of albums released in range.
+    */
+   public int countInYearRange(final int fromYear, final int toYear)
+   {
+      return Math.max(0, firstIndexOfYearAfter(toYear) - firstIndexOfYearAtOrAfter(fromYear));
+   }
+
+   /**
+    * Provides the indexes of the albums by the provided artist.
+    *
+    * @param artist Name of artist.
+    * @return Indexes of albums by the artist (in ascending order); empty
+    *    if the catalog has no albums by the artist.
+    */
+   public int[] albumsByArtist(final String artist)
+   {
+      final byte[] key = artist.getBytes(StandardCharsets.UTF_8);
+      int low = 0;
+      int high = artistsByName.length - 1;
+      while (low <= high)
+      {
+         final int middle = (low + high) >>> 1;
+         final int artistId = artistsByName[middle];
+         final int comparison = strings.compare(artistAddresses[artistId], key);
+         if (comparison < 0)
+         {
+            low = middle + 1;
+         }
+         else if (comparison > 0)
+         {
+            high = middle - 1;
+         }
+         else
+         {
+            return Arrays.copyOfRange(artistAlbums, artistAlbumStarts[artistId], artistAlbumStarts[artistId + 1]);
+         }
+      }
+      return new int[0];
+   }
+
+   /**
+    * Provides the number of distinct artists in this catalog.
+    *
+    * @return Number of distinct artists.
+    */
+   public int getArtistCount()
+   {
+      return artistAddresses.length;
+   }
+
+   /**
+    * Provides an estimate of the heap occupied by this catalog's arrays
+    * and string pool.
+    *
+    * @return Estimated size in bytes.
+    */
+   public long estimateSizeInBytes()
+   {
+      return strings.getAllocatedBytes()
+         + 4L * (releaseYears.length + songStarts.length + artistStarts.length + albumArtistIds.length
+            + albumsByYear.length + sortedYears.length + artistsByName.length + artistAlbumStarts.length
+            + artistAlbums.length)
+         + 8L * (titleAddresses.length + songTitleAddresses.length + artistAddresses.length);
+   }
+
+   private int firstIndexOfYearAtOrAfter(final int year)
+   {
+      int low = 0;
+      int high = albumCount;
+      while (low < high)
+      {
+         final int middle = (low + high) >>> 1;
+         if (sortedYears[middle] < year)
+         {
+            low = middle + 1;
+         }
+         else
+         {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private int firstIndexOfYearAfter(final int year)
+   {
+      return year == Integer.MAX_VALUE ? albumCount : firstIndexOfYearAtOrAfter(year + 1);
+   }
+
+   /**
+    * Builder class for accumulating albums into an instance of
+    * enclosing AlbumCatalog class.
+    */
+   public static class Builder
+   {
+      private static final int INITIAL_CAPACITY = 1024;
+
+      /**
+       * Largest capacity of the builder's arrays, leaving room for the
+       * extra CSR offset and for the header words some VMs reserve.
+       */
+      private static final int MAXIMUM_CAPACITY = Integer.MAX_VALUE - 9;
+
+      private final Utf8Pool strings = new Utf8Pool();
+
+      private final Map<String, Integer> artistIds = new HashMap<>();
+
+      private int albumCount;
+
+      private int[] releaseYears = new int[INITIAL_CAPACITY];
+
+      private long[] titleAddresses = new long[INITIAL_CAPACITY];
+
+      private int[] songStarts = new int[INITIAL_CAPACITY + 1];
+
+      private long[] songTitleAddresses = new long[INITIAL_CAPACITY];
+
+      private int[] artistStarts = new int[INITIAL_CAPACITY + 1];
+
+      private int[] albumArtistIds = new int[INITIAL_CAPACITY];
+
+      private long[] artistAddresses = new long[INITIAL_CAPACITY];
+
+      private boolean built;
+
+      /**
+       * Adds the provided album to the catalog being built.
+       *
+       * @param album Album to be added.
+       * @return This builder.
+       */
+      public Builder album(final AlbumView album)
+      {
+         return album(album.getTitle(), album.getReleaseYear(), album.getArtists(), album.getSongsTitles());
+      }
+
+      /**
+       * Adds the provided album message to the catalog being built.
+       *
+       * @param album Album message to be added.
+       * @return This builder.
+       */
+      public Builder album(final AlbumProtos.Album album)
+      {
+         return album(album.getTitle(), album.getReleaseYear(), album.getArtistList(), album.getSongTitleList());
+      }
+
+      private Builder album(
+         final String title, final int releaseYear, final List<String> artists, final List<String> songsTitles)
+      {
+         if (built)
+         {
+            throw new IllegalStateException("AlbumCatalog already built from this builder.");
+         }
+         if (albumCount == releaseYears.length)
+         {
+            final int capacity = grow(albumCount, "albums");
+            releaseYears = Arrays.copyOf(releaseYears, capacity);
+            titleAddresses = Arrays.copyOf(titleAddresses, capacity);
+            songStarts = Arrays.copyOf(songStarts, capacity + 1);
+            artistStarts = Arrays.copyOf(artistStarts, capacity + 1);
+         }
+         releaseYears[albumCount] = releaseYear;
+         titleAddresses[albumCount] = strings.add(title);
+
+         int artistEnd = artistStarts[albumCount];
+         for (final String artist : artists)
+         {
+            if (artistEnd == albumArtistIds.length)
+            {
+               albumArtistIds = Arrays.copyOf(albumArtistIds, grow(artistEnd, "album artists"));
+            }
+            albumArtistIds[artistEnd++] = artistId(artist);
+         }
+         artistStarts[albumCount + 1] = artistEnd;
+
+         int songEnd = songStarts[albumCount];
+         for (final String songTitle : songsTitles)
+         {
+            if (songEnd == songTitleAddresses.length)
+            {
+               songTitleAddresses = Arrays.copyOf(songTitleAddresses, grow(songEnd, "songs"));
+            }
+            songTitleAddresses[songEnd++] = strings.add(songTitle);
+         }
+         songStarts[albumCount + 1] = songEnd;
+
+         albumCount++;
+         return this;
+      }
+
+      /**
+       * Provides the identifier of the provided artist, adding the artist
+       * to the string pool the first time it is encountered.
+       *
+       * @param artist Name of artist.
+       * @return Identifier of artist.
+       */
+      private int artistId(final String artist)
+      {
+         final Integer existingId = artistIds.get(artist);
+         if (existingId != null)
+         {
+            return existingId;
+         }
+         final int newId = artistIds.size();
+         if (newId == artistAddresses.length)
+         {
+            artistAddresses = Arrays.copyOf(artistAddresses, grow(newId, "distinct artists"));
+         }
+         artistAddresses[newId] = strings.add(artist);
+         artistIds.put(artist, newId);
+         return newId;
+      }
+
+      /**
+       * Provides the capacity to which an array that is full at the
+       * provided length grows: double the length, up to
+       * {@link #MAXIMUM_CAPACITY}.
+       *
+       * @param length Current (full) length of the array.
+       * @param contents Description of the array's contents for the
+       *    exception thrown when it cannot grow.
+       * @return New capacity of the array.
+       * @throws IllegalStateException Thrown if the array is already at
+       *    {@link #MAXIMUM_CAPACITY}.
+       */
+      private static int grow(final int length, final String contents)
+      {
+         if (length >= MAXIMUM_CAPACITY)
+         {
+            throw new IllegalStateException(
+               "AlbumCatalog cannot hold more than " + MAXIMUM_CAPACITY + " " + contents + ".");
+         }
+         return (int) Math.min(2L * length, MAXIMUM_CAPACITY);
+      }
+
+      /**
+       * Builds the catalog and its indexes. A builder can build only
+       * one catalog because the catalog takes over its string pool.
+       *
+       * @return Catalog of all albums added to this builder.
+       */
+      public AlbumCatalog build()
+      {
+         if (built)
+         {
+            throw new IllegalStateException("AlbumCatalog already built from this builder.");
+         }
+         built = true;
+         return new AlbumCatalog(this);
+      }
+   }
+}
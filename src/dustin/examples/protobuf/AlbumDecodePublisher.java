@@ -0,0 +1,294 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the {@link Album}s decoded from a stream of length-delimited
+ * {@code AlbumProtos.Album} frames (the format written by
+ * {@code AlbumProtos.Album.writeDelimitedTo(OutputStream)} and by
+ * {@link AlbumBatchCodec.Writer}).
+ *
+ * Frames are read by a single coordinating thread and decoded in
+ * parallel on the provided worker {@link Executor}, but albums are
+ * delivered to the subscriber in the order their frames appear in the
+ * stream. At most {@code queueDepth} frames are read ahead of the
+ * subscriber's demand, so a slow subscriber throttles reading of the
+ * stream rather than causing decoded albums to pile up in memory.
+ *
+ * A publisher supports a single subscriber because it consumes its
+ * input stream; the input stream is closed once publishing ends.
+ */
+public class AlbumDecodePublisher implements Flow.Publisher<Album>
+{
+   /** Default number of frames read ahead of subscriber demand. */
+   public static final int DEFAULT_QUEUE_DEPTH = 256;
+
+   private final InputStream input;
+
+   private final Executor workers;
+
+   private final int queueDepth;
+
+   private final AtomicBoolean subscribed = new AtomicBoolean();
+
+   /**
+    * Instantiates a publisher of the albums in the provided input
+    * stream using the default queue depth.
+    *
+    * @param newInput Stream of length-delimited AlbumProtos.Album frames.
+    * @param newWorkers Executor on which frames are decoded; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    */
+   public AlbumDecodePublisher(final InputStream newInput, final Executor newWorkers)
+   {
+      this(newInput, newWorkers, DEFAULT_QUEUE_DEPTH);
+   }
+
+   /**
+    * Instantiates a publisher of the albums in the provided input stream.
+    *
+    * @param newInput Stream of length-delimited AlbumProtos.Album frames.
+    * @param newWorkers Executor on which frames are decoded; a bounded
+    *    thread pool such as {@code Executors.newFixedThreadPool(int)}.
+    * @param newQueueDepth Maximum number of frames read from the stream
+    *    and not yet delivered to the subscriber.
+    */
+   public AlbumDecodePublisher(final InputStream newInput, final Executor newWorkers, final int newQueueDepth)
+   {
+      if (newQueueDepth <= 0)
+      {
+         throw new IllegalArgumentException("Queue depth must be positive: " + newQueueDepth);
+      }
+      input = Objects.requireNonNull(newInput, "input");
+      workers = Objects.requireNonNull(newWorkers, "workers");
+      queueDepth = newQueueDepth;
+   }
+
+   @Override
+   public void subscribe(final Flow.Subscriber<? super Album> subscriber)
+   {
+      Objects.requireNonNull(subscriber, "subscriber");
+      if (!subscribed.compareAndSet(false, true))
+      {
+         subscriber.onSubscribe(new Flow.Subscription()
+         {
+            @Override
+            public void request(final long count)
+            {
+            }
+
+            @Override
+            public void cancel()
+            {
+            }
+         });
+         subscriber.onError(new IllegalStateException("AlbumDecodePublisher supports only one subscriber."));
+         return;
+      }
+      final DecodeSubscription subscription = new DecodeSubscription(subscriber);
+      subscriber.onSubscribe(subscription);
+      final Thread coordinator = new Thread(subscription::run, "album-decode-publisher");
+      coordinator.setDaemon(true);
+      coordinator.start();
+   }
+
+   /**
+    * Reads the next frame from the input stream.
+    *
+    * @return Bytes of the next frame or {@code null} at the end of the stream.
+    * @throws IOException Thrown if the stream cannot be read or ends
+    *    in the middle of a frame.
+    */
+   private byte[] readFrame() throws IOException
+   {
+      final int firstByte = input.read();
+      if (firstByte == -1)
+      {
+         return null;
+      }
+      final int length = CodedInputStream.readRawVarint32(firstByte, input);
+      final byte[] frame = input.readNBytes(length);
+      if (frame.length != length)
+      {
+         throw new InvalidProtocolBufferException(
+            "Album frame truncated: expected " + length + " bytes but stream ended after " + frame.length + ".");
+      }
+      return frame;
+   }
+
+   /**
+    * Subscription whose coordinating thread reads frames, hands them to
+    * the workers, and delivers decoded albums in order as demanded.
+    */
+   private class DecodeSubscription implements Flow.Subscription
+   {
+      private final Flow.Subscriber<? super Album> subscriber;
+
+      /** Decodes in progress, in stream order; only used by the coordinator. */
+      private final ArrayDeque<CompletableFuture<Album>> inFlight = new ArrayDeque<>();
+
+      /** Outstanding demand; guarded by this subscription's monitor. */
+      private long demand;
+
+      /** Guarded by this subscription's monitor. */
+      private boolean cancelled;
+
+      /** Illegal request to be reported; guarded by this subscription's monitor. */
+      private IllegalArgumentException illegalRequest;
+
+      private DecodeSubscription(final Flow.Subscriber<? super Album> newSubscriber)
+      {
+         subscriber = newSubscriber;
+      }
+
+      @Override
+      public synchronized void request(final long count)
+      {
+         if (count <= 0)
+         {
+            illegalRequest = new IllegalArgumentException("Requested " + count + " albums (must be positive).");
+         }
+         else
+         {
+            demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+         }
+         notifyAll();
+      }
+
+      @Override
+      public synchronized void cancel()
+      {
+         cancelled = true;
+         notifyAll();
+      }
+
+      /**
+       * Coordinating loop: keeps up to {@code queueDepth} frames being
+       * decoded and delivers the oldest whenever there is demand.
+       */
+      private void run()
+      {
+         try
+         {
+            boolean endOfInput = false;
+            while (true)
+            {
+               while (!endOfInput && inFlight.size() < queueDepth)
+               {
+                  final byte[] frame = readFrame();
+                  if (frame == null)
+                  {
+                     endOfInput = true;
+                  }
+                  else
+                  {
+                     inFlight.add(CompletableFuture.supplyAsync(
+                        () -> AlbumBuilderPool.forCurrentThread().decode(frame), workers));
+                  }
+               }
+               if (inFlight.isEmpty())
+               {
+                  subscriber.onComplete();
+                  return;
+               }
+               if (!awaitDemand())
+               {
+                  return;
+               }
+               subscriber.onNext(inFlight.remove().join());
+            }
+         }
+         catch (CompletionException completionException)
+         {
+            fail(completionException.getCause());
+         }
+         catch (IOException | RuntimeException exception)
+         {
+            fail(exception);
+         }
+         catch (InterruptedException interruptedException)
+         {
+            Thread.currentThread().interrupt();
+            fail(interruptedException);
+         }
+         finally
+         {
+            inFlight.forEach(future -> future.cancel(false));
+            inFlight.clear();
+            closeInput();
+         }
+      }
+
+      /**
+       * Waits until the subscriber has requested at least one more album
+       * and consumes one unit of that demand.
+       *
+       * @return {@code false} if the subscription was cancelled or an
+       *    illegal request was made (which is reported to the subscriber).
+       * @throws InterruptedException Thrown if interrupted while waiting.
+       */
+      private synchronized boolean awaitDemand() throws InterruptedException
+      {
+         while (demand == 0 && !cancelled && illegalRequest == null)
+         {
+            wait();
+         }
+         if (illegalRequest != null && !cancelled)
+         {
+            cancelled = true;
+            subscriber.onError(illegalRequest);
+         }
+         if (cancelled)
+         {
+            return false;
+         }
+         if (demand != Long.MAX_VALUE)
+         {
+            demand--;
+         }
+         return true;
+      }
+
+      /**
+       * Reports the provided failure to the subscriber unless the
+       * subscription has been cancelled.
+       *
+       * @param throwable Failure to be reported.
+       */
+      private void fail(final Throwable throwable)
+      {
+         synchronized (this)
+         {
+            if (cancelled)
+            {
+               return;
+            }
+            cancelled = true;
+         }
+         subscriber.onError(throwable);
+      }
+
+      private void closeInput()
+      {
+         try
+         {
+            input.close();
+         }
+         catch (IOException ioException)
+         {
+            // Publishing has already completed or failed; nothing further to report.
+         }
+      }
+   }
+}
@@ -48,13 +48,7 @@ public class AlbumDemo
       try
       {
          final AlbumProtos.Album copiedAlbumProtos = AlbumProtos.Album.parseFrom(binaryAlbum);
-         final List<String> copiedArtists = copiedAlbumProtos.getArtistList();
-         final List<String> copiedSongsTitles = copiedAlbumProtos.getSongTitleList();
-         album = new Album.Builder(
-            copiedAlbumProtos.getTitle(), copiedAlbumProtos.getReleaseYear())
-            .artists(copiedArtists)
-            .songsTitles(copiedSongsTitles)
-            .build();
+         album = instantiateAlbumFromMessage(copiedAlbumProtos);
       }
       catch (InvalidProtocolBufferException ipbe)
       {
@@ -64,6 +58,41 @@ public class AlbumDemo
       return album;
    }
 
+   /**
+    * Generates an instance of Album based on the provided
+    * already-parsed Protocol Buffers message.
+    *
+    * @param albumMessage Parsed AlbumProtos.Album message.
+    * @return Instance of Album based on the provided message.
+    */
+   public Album instantiateAlbumFromMessage(final AlbumProtos.Album albumMessage)
+   {
+      final List<String> copiedArtists = albumMessage.getArtistList();
+      final List<String> copiedSongsTitles = albumMessage.getSongTitleList();
+      return new Album.Builder(
+         albumMessage.getTitle(), albumMessage.getReleaseYear())
+         .artists(copiedArtists)
+         .songsTitles(copiedSongsTitles)
+         .build();
+   }
+
+   /**
+    * Generates the Protocol Buffers message corresponding to the
+    * provided instance of Album.
+    *
+    * @param album Album for which Protocol Buffers message is desired.
+    * @return AlbumProtos.Album message representing the provided Album.
+    */
+   public AlbumProtos.Album generateAlbumMessage(final AlbumView album)
+   {
+      return AlbumProtos.Album.newBuilder()
+         .setTitle(album.getTitle())
+         .addAllArtist(album.getArtists())
+         .setReleaseYear(album.getReleaseYear())
+         .addAllSongTitle(album.getSongsTitles())
+         .build();
+   }
+
    /**
     * Demonstrates use of Google Protocol Buffers to write an
     * {@code Album} to a Google Protocol Buffers's binary form
@@ -75,16 +104,14 @@ public class AlbumDemo
    {
       final AlbumDemo instance = new AlbumDemo();
       final Album album = instance.generateAlbum();
-      final AlbumProtos.Album albumMessage
-         = AlbumProtos.Album.newBuilder()
-            .setTitle(album.getTitle())
-            .addAllArtist(album.getArtists())
-            .setReleaseYear(album.getReleaseYear())
-            .addAllSongTitle(album.getSongsTitles())
-            .build();
+      final AlbumProtos.Album albumMessage = instance.generateAlbumMessage(album);
       final byte[] binaryAlbum = albumMessage.toByteArray();
       final Album copiedAlbum = instance.instantiateAlbumFromBinary(binaryAlbum);
       out.println("BEFORE Album (" + System.identityHashCode(album) + "): " + album);
       out.println(" AFTER Album (" + System.identityHashCode(copiedAlbum) + "): " + String.valueOf(copiedAlbum));
+      final LazyAlbum lazyAlbum = new LazyAlbum(binaryAlbum);
+      out.println("  LAZY Album title (" + System.identityHashCode(lazyAlbum) + "): " + lazyAlbum.getTitle());
+      out.println("  LAZY Album re-encodes identically: "
+         + instance.generateAlbumMessage(lazyAlbum).equals(albumMessage));
    }
 }
@@ -0,0 +1,39 @@
+package dustin.examples.protobuf;
+
+import java.util.List;
+
+/**
+ * Read-only view of a music album, implemented both by the fully
+ * decoded {@link Album} and by the lazily decoded {@link LazyAlbum} so
+ * that code reading an album's content accepts either.
+ */
+public interface AlbumView
+{
+   /**
+    * Provides the album's title.
+    *
+    * @return Album title.
+    */
+   String getTitle();
+
+   /**
+    * Provides the album's artists.
+    *
+    * @return Album artists.
+    */
+   List<String> getArtists();
+
+   /**
+    * Provides the album's release year.
+    *
+    * @return Album release year.
+    */
+   int getReleaseYear();
+
+   /**
+    * Provides the album's song titles.
+    *
+    * @return Album song titles.
+    */
+   List<String> getSongsTitles();
+}
@@ -0,0 +1,235 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal reader of the Protocol Buffers wire format over a region of
+ * a bytes array, sufficient for the fields of {@code AlbumProtos.Album}.
+ *
+ * Unlike {@code CodedInputStream}, an instance can be pointed at a new
+ * region with {@link #reset(byte[], int, int)} so that a single
+ * thread-confined instance can decode any number of albums without
+ * allocating. Instances are not thread-safe.
+ */
+class AlbumWireReader
+{
+   static final int WIRETYPE_VARINT = 0;
+   static final int WIRETYPE_FIXED64 = 1;
+   static final int WIRETYPE_LENGTH_DELIMITED = 2;
+   static final int WIRETYPE_FIXED32 = 5;
+
+   private byte[] buffer;
+
+   private int start;
+
+   private int position;
+
+   private int end;
+
+   /**
+    * Instantiates a reader that must be {@link #reset(byte[], int, int)}
+    * before use.
+    */
+   AlbumWireReader()
+   {
+   }
+
+   /**
+    * Instantiates a reader over the provided region.
+    *
+    * @param newBuffer Bytes array containing a binary album.
+    * @param offset Offset of the binary album within the array.
+    * @param length Length in bytes of the binary album.
+    */
+   AlbumWireReader(final byte[] newBuffer, final int offset, final int length)
+   {
+      reset(newBuffer, offset, length);
+   }
+
+   /**
+    * Points this reader at the provided region.
+    *
+    * @param newBuffer Bytes array containing a binary album.
+    * @param offset Offset of the binary album within the array.
+    * @param length Length in bytes of the binary album.
+    * @return This reader.
+    */
+   AlbumWireReader reset(final byte[] newBuffer, final int offset, final int length)
+   {
+      if (offset < 0 || length < 0 || offset > newBuffer.length - length)
+      {
+         throw new IndexOutOfBoundsException(
+            "Region [" + offset + ", " + offset + " + " + length + ") out of bounds for length "
+               + newBuffer.length);
+      }
+      buffer = newBuffer;
+      start = offset;
+      position = offset;
+      end = offset + length;
+      return this;
+   }
+
+   /**
+    * Indicates whether there are fields left to be read.
+    *
+    * @return {@code true} if another tag can be read.
+    */
+   boolean hasRemaining()
+   {
+      return position < end;
+   }
+
+   /**
+    * Reads the next tag.
+    *
+    * @return Tag (field number and wire type).
+    */
+   int readTag()
+   {
+      final int tag = (int) readRawVarint();
+      if ((tag >>> 3) == 0)
+      {
+         throw malformed("Invalid field number 0 in tag " + tag);
+      }
+      return tag;
+   }
+
+   /**
+    * Reads a length-delimited UTF-8 string value.
+    *
+    * @return Decoded string.
+    */
+   String readString()
+   {
+      final int valueLength = readLength();
+      final String value = new String(buffer, position, valueLength, StandardCharsets.UTF_8);
+      position += valueLength;
+      return value;
+   }
+
+   /**
+    * Reads a length-delimited UTF-8 string value, deduplicating it
+    * through the provided dictionary.
+    *
+    * @param dictionary Dictionary of previously decoded strings; if
+    *    {@code null}, a new string is always decoded.
+    * @return Decoded (possibly shared) string.
+    */
+   String readString(final StringDictionary dictionary)
+   {
+      if (dictionary == null)
+      {
+         return readString();
+      }
+      final int valueLength = readLength();
+      final String value = dictionary.intern(buffer, position, valueLength);
+      position += valueLength;
+      return value;
+   }
+
+   /**
+    * Reads an {@code int32} varint value.
+    *
+    * @return Decoded value.
+    */
+   int readInt32()
+   {
+      return (int) readRawVarint();
+   }
+
+   /**
+    * Skips the value of a field that is not of interest.
+    *
+    * @param tag Tag of the field whose value is to be skipped.
+    */
+   void skipField(final int tag)
+   {
+      switch (tag & 0x7)
+      {
+         case WIRETYPE_VARINT:
+            readRawVarint();
+            break;
+         case WIRETYPE_FIXED64:
+            advance(8);
+            break;
+         case WIRETYPE_LENGTH_DELIMITED:
+            advance(readLength());
+            break;
+         case WIRETYPE_FIXED32:
+            advance(4);
+            break;
+         default:
+            throw malformed("Unsupported wire type in tag " + tag);
+      }
+   }
+
+   /**
+    * Reads a length prefix and verifies that the value it describes
+    * lies within the region.
+    *
+    * @return Length of the length-delimited value that follows.
+    */
+   private int readLength()
+   {
+      final long valueLength = readRawVarint();
+      if (valueLength < 0 || valueLength > end - position)
+      {
+         throw malformed("Length " + valueLength + " exceeds remaining bytes");
+      }
+      return (int) valueLength;
+   }
+
+   /**
+    * Advances the position by the provided number of bytes.
+    *
+    * @param byteCount Number of bytes to advance.
+    */
+   private void advance(final int byteCount)
+   {
+      if (byteCount > end - position)
+      {
+         throw malformed("Truncated field");
+      }
+      position += byteCount;
+   }
+
+   /**
+    * Reads a varint of up to 64 bits.
+    *
+    * @return Decoded varint.
+    */
+   private long readRawVarint()
+   {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7)
+      {
+         if (position >= end)
+         {
+            throw malformed("Truncated varint");
+         }
+         final byte currentByte = buffer[position++];
+         result |= (long) (currentByte & 0x7F) << shift;
+         if (currentByte >= 0)
+         {
+            return result;
+         }
+      }
+      throw malformed("Malformed varint");
+   }
+
+   /**
+    * Provides an unchecked exception describing malformed binary
+    * album content.
+    *
+    * @param description Description of the problem.
+    * @return Exception to be thrown.
+    */
+   private UncheckedIOException malformed(final String description)
+   {
+      return new UncheckedIOException(new InvalidProtocolBufferException(
+         "Unable to decode AlbumProtos.Album: " + description + " at offset " + (position - start) + "."));
+   }
+}
@@ -0,0 +1,302 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads batches of albums in a dictionary-encoded format in
+ * which each distinct artist is written once and albums refer to their
+ * artists by varint identifier.
+ *
+ * The format (all integers are Protocol Buffers varints and all strings
+ * are length-delimited UTF-8) is the magic bytes {@code "ALBD"}, a format
+ * version, and then a sequence of records, each starting with a record
+ * type:
+ * <ul>
+ * <li>{@code 1} (artist): the artist's name; artists are numbered
+ *    from zero in the order in which they are defined.</li>
+ * <li>{@code 2} (album): title, release year, number of artists, that
+ *    many artist identifiers, number of songs, and that many song titles.</li>
+ * </ul>
+ * An artist is defined immediately before the first album that refers
+ * to it, so the format can be written and read in a single pass. Because
+ * the reader decodes each artist's name once, every album it reads that
+ * has a given artist shares that artist's {@code String} instance.
+ */
+public final class DictionaryAlbumBatchCodec
+{
+   /** Magic bytes at the start of a dictionary-encoded album batch. */
+   private static final byte[] MAGIC = {'A', 'L', 'B', 'D'};
+
+   /** Version of the format written. */
+   private static final int VERSION = 1;
+
+   private static final int ARTIST_RECORD = 1;
+
+   private static final int ALBUM_RECORD = 2;
+
+   private DictionaryAlbumBatchCodec()
+   {
+   }
+
+   /**
+    * Writes albums in the dictionary-encoded format.
+    */
+   public static class Writer implements Closeable
+   {
+      private final OutputStream outputStream;
+
+      private final CodedOutputStream output;
+
+      private final Map<String, Integer> artistIds = new HashMap<>();
+
+      private long albumsWritten;
+
+      /**
+       * Instantiates a writer of albums to the provided output stream.
+       *
+       * @param newOutputStream Stream to which the batch is written;
+       *    closed when this writer is closed.
+       * @throws IOException Thrown if the header cannot be written.
+       */
+      public Writer(final OutputStream newOutputStream) throws IOException
+      {
+         outputStream = newOutputStream;
+         output = CodedOutputStream.newInstance(newOutputStream);
+         output.writeRawBytes(MAGIC);
+         output.writeUInt32NoTag(VERSION);
+      }
+
+      /**
+       * Writes the provided album, first defining any of its artists
+       * that have not already been written.
+       *
+       * @param album Album to be written.
+       * @throws IOException Thrown if the album cannot be written.
+       */
+      public void write(final AlbumView album) throws IOException
+      {
+         final List<String> artists = album.getArtists();
+         for (final String artist : artists)
+         {
+            if (!artistIds.containsKey(artist))
+            {
+               artistIds.put(artist, artistIds.size());
+               output.writeUInt32NoTag(ARTIST_RECORD);
+               output.writeStringNoTag(artist);
+            }
+         }
+         output.writeUInt32NoTag(ALBUM_RECORD);
+         output.writeStringNoTag(album.getTitle());
+         output.writeInt32NoTag(album.getReleaseYear());
+         output.writeUInt32NoTag(artists.size());
+         for (final String artist : artists)
+         {
+            output.writeUInt32NoTag(artistIds.get(artist));
+         }
+         final List<String> songsTitles = album.getSongsTitles();
+         output.writeUInt32NoTag(songsTitles.size());
+         for (final String songTitle : songsTitles)
+         {
+            output.writeStringNoTag(songTitle);
+         }
+         albumsWritten++;
+      }
+
+      /**
+       * Provides the number of albums written so far.
+       *
+       * @return Number of albums written.
+       */
+      public long getAlbumsWritten()
+      {
+         return albumsWritten;
+      }
+
+      /**
+       * Provides the number of distinct artists written so far.
+       *
+       * @return Number of artists in the dictionary.
+       */
+      public int getArtistCount()
+      {
+         return artistIds.size();
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         try
+         {
+            output.flush();
+         }
+         finally
+         {
+            outputStream.close();
+         }
+      }
+   }
+
+   /**
+    * Reads albums written in the dictionary-encoded format.
+    */
+   public static class Reader implements Closeable
+   {
+      private final InputStream inputStream;
+
+      private final CodedInputStream input;
+
+      private final List<String> artists = new ArrayList<>();
+
+      private final Album.Builder albumBuilder = new Album.Builder("", 0);
+
+      private final StringDictionary titleDictionary;
+
+      /**
+       * Instantiates a reader of albums from the provided input stream.
+       *
+       * @param newInputStream Stream from which the batch is read;
+       *    closed when this reader is closed.
+       * @throws IOException Thrown if the header cannot be read or is
+       *    not that of a dictionary-encoded album batch.
+       */
+      public Reader(final InputStream newInputStream) throws IOException
+      {
+         this(newInputStream, null);
+      }
+
+      /**
+       * Instantiates a reader of albums from the provided input stream
+       * that deduplicates album and song titles through the provided
+       * dictionary.
+       *
+       * @param newInputStream Stream from which the batch is read;
+       *    closed when this reader is closed.
+       * @param newTitleDictionary Dictionary through which album and song
+       *    titles are deduplicated; {@code null} to not deduplicate titles.
+       * @throws IOException Thrown if the header cannot be read or is
+       *    not that of a dictionary-encoded album batch.
+       */
+      public Reader(final InputStream newInputStream, final StringDictionary newTitleDictionary)
+         throws IOException
+      {
+         inputStream = newInputStream;
+         input = CodedInputStream.newInstance(newInputStream);
+         titleDictionary = newTitleDictionary;
+         for (final byte magicByte : MAGIC)
+         {
+            if (input.isAtEnd() || input.readRawByte() != magicByte)
+            {
+               throw new InvalidProtocolBufferException("Not a dictionary-encoded album batch.");
+            }
+         }
+         final int version = input.readRawVarint32();
+         if (version != VERSION)
+         {
+            throw new InvalidProtocolBufferException("Unsupported album batch version " + version + ".");
+         }
+      }
+
+      /**
+       * Reads the next album.
+       *
+       * @return Next album or {@code null} if all albums have been read.
+       * @throws IOException Thrown if the batch is malformed or cannot be read.
+       */
+      public Album read() throws IOException
+      {
+         while (true)
+         {
+            // Each record counts against the stream's message size limit separately.
+            input.resetSizeCounter();
+            if (input.isAtEnd())
+            {
+               return null;
+            }
+            final int recordType = input.readRawVarint32();
+            if (recordType == ARTIST_RECORD)
+            {
+               artists.add(input.readString());
+            }
+            else if (recordType == ALBUM_RECORD)
+            {
+               return readAlbum();
+            }
+            else
+            {
+               throw new InvalidProtocolBufferException("Unknown album batch record type " + recordType + ".");
+            }
+         }
+      }
+
+      /**
+       * Provides the number of distinct artists read so far.
+       *
+       * @return Number of artists in the dictionary.
+       */
+      public int getArtistCount()
+      {
+         return artists.size();
+      }
+
+      /**
+       * Reads the body of an album record.
+       *
+       * @return Album read.
+       * @throws IOException Thrown if the record is malformed or cannot be read.
+       */
+      private Album readAlbum() throws IOException
+      {
+         final Album.Builder builder = albumBuilder.reset(readTitle(), input.readInt32());
+         final int artistCount = input.readRawVarint32();
+         for (int index = 0; index < artistCount; index++)
+         {
+            final int artistId = input.readRawVarint32();
+            if (artistId < 0 || artistId >= artists.size())
+            {
+               throw new InvalidProtocolBufferException("Undefined artist identifier " + artistId + ".");
+            }
+            builder.artist(artists.get(artistId));
+         }
+         final int songCount = input.readRawVarint32();
+         for (int index = 0; index < songCount; index++)
+         {
+            builder.songTitle(readTitle());
+         }
+         return builder.build();
+      }
+
+      /**
+       * Reads an album or song title, deduplicating it if this reader
+       * has a title dictionary.
+       *
+       * @return Title read.
+       * @throws IOException Thrown if the title cannot be read.
+       */
+      private String readTitle() throws IOException
+      {
+         if (titleDictionary == null)
+         {
+            return input.readString();
+         }
+         final byte[] encodedTitle = input.readRawBytes(input.readRawVarint32());
+         return titleDictionary.intern(encodedTitle, 0, encodedTitle.length);
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         inputStream.close();
+      }
+   }
+}
@@ -0,0 +1,258 @@
+package dustin.examples.protobuf;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Music album backed by the Protocol Buffers binary form of an
+ * {@code AlbumProtos.Album} that decodes each field only when that
+ * field's accessor is first invoked.
+ *
+ * Each accessor scans the raw bytes for the tag of its field and
+ * caches the decoded value, so a caller that only needs the title
+ * or release year never allocates the artist or song title lists.
+ * The provided bytes are not copied and must not be modified.
+ */
+public class LazyAlbum implements AlbumView
+{
+   /** Field number of {@code title} in album.proto. */
+   private static final int TITLE_FIELD_NUMBER = AlbumProtos.Album.TITLE_FIELD_NUMBER;
+
+   /** Field number of {@code artist} in album.proto. */
+   private static final int ARTIST_FIELD_NUMBER = AlbumProtos.Album.ARTIST_FIELD_NUMBER;
+
+   /** Field number of {@code release_year} in album.proto. */
+   private static final int RELEASE_YEAR_FIELD_NUMBER = AlbumProtos.Album.RELEASE_YEAR_FIELD_NUMBER;
+
+   /** Field number of {@code song_title} in album.proto. */
+   private static final int SONG_TITLE_FIELD_NUMBER = AlbumProtos.Album.SONG_TITLE_FIELD_NUMBER;
+
+   /** Marks the release year as not yet decoded. */
+   private static final int UNDECODED_YEAR = Integer.MIN_VALUE;
+
+   private final byte[] binaryAlbum;
+
+   private final int offset;
+
+   private final int length;
+
+   private volatile String title;
+
+   private volatile List<String> artists;
+
+   private volatile int releaseYear = UNDECODED_YEAR;
+
+   private volatile List<String> songsTitles;
+
+   /**
+    * Instantiates an album backed by the provided bytes.
+    *
+    * @param newBinaryAlbum Bytes array that should represent an
+    *    AlbumProtos.Album based on Google Protocol Buffers binary format.
+    */
+   public LazyAlbum(final byte[] newBinaryAlbum)
+   {
+      this(newBinaryAlbum, 0, newBinaryAlbum.length);
+   }
+
+   /**
+    * Instantiates an album backed by a region of the provided bytes.
+    *
+    * @param newBinaryAlbum Bytes array containing an AlbumProtos.Album
+    *    based on Google Protocol Buffers binary format.
+    * @param newOffset Offset of the album within the bytes array.
+    * @param newLength Length in bytes of the album.
+    */
+   public LazyAlbum(final byte[] newBinaryAlbum, final int newOffset, final int newLength)
+   {
+      if (newOffset < 0 || newLength < 0 || newOffset > newBinaryAlbum.length - newLength)
+      {
+         throw new IndexOutOfBoundsException(
+            "Region [" + newOffset + ", " + newOffset + " + " + newLength + ") out of bounds for length "
+               + newBinaryAlbum.length);
+      }
+      binaryAlbum = newBinaryAlbum;
+      offset = newOffset;
+      length = newLength;
+   }
+
+   /**
+    * Provides the album's title, decoding it on first access.
+    *
+    * @return Album title; empty if the title is not present.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   @Override
+   public String getTitle()
+   {
+      String decodedTitle = title;
+      if (decodedTitle == null)
+      {
+         decodedTitle = decodeLastString(TITLE_FIELD_NUMBER);
+         title = decodedTitle;
+      }
+      return decodedTitle;
+   }
+
+   /**
+    * Provides the album's artists, decoding them on first access.
+    *
+    * @return Unmodifiable list of album artists.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   @Override
+   public List<String> getArtists()
+   {
+      List<String> decodedArtists = artists;
+      if (decodedArtists == null)
+      {
+         decodedArtists = decodeStrings(ARTIST_FIELD_NUMBER);
+         artists = decodedArtists;
+      }
+      return decodedArtists;
+   }
+
+   /**
+    * Provides the album's release year, decoding it on first access.
+    *
+    * @return Album release year; zero if the release year is not present.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   @Override
+   public int getReleaseYear()
+   {
+      int decodedYear = releaseYear;
+      if (decodedYear == UNDECODED_YEAR)
+      {
+         decodedYear = decodeReleaseYear();
+         releaseYear = decodedYear;
+      }
+      return decodedYear;
+   }
+
+   /**
+    * Provides the album's song titles, decoding them on first access.
+    *
+    * @return Unmodifiable list of album song titles.
+    * @throws UncheckedIOException Thrown if the binary album is malformed.
+    */
+   @Override
+   public List<String> getSongsTitles()
+   {
+      List<String> decodedSongsTitles = songsTitles;
+      if (decodedSongsTitles == null)
+      {
+         decodedSongsTitles = decodeStrings(SONG_TITLE_FIELD_NUMBER);
+         songsTitles = decodedSongsTitles;
+      }
+      return decodedSongsTitles;
+   }
+
+   /**
+    * Provides a fully decoded {@link Album} with the same content.
+    *
+    * @return Album equivalent to this lazily decoded album.
+    */
+   public Album toAlbum()
+   {
+      return new Album.Builder(getTitle(), getReleaseYear())
+         .artists(getArtists())
+         .songsTitles(getSongsTitles())
+         .build();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "'" + getTitle() + "' (" + getReleaseYear() + ") by " + getArtists()
+         + " features songs " + getSongsTitles();
+   }
+
+   /**
+    * Provides a wire reader positioned at the start of this album.
+    *
+    * @return Wire reader over this album's bytes.
+    */
+   private AlbumWireReader newReader()
+   {
+      return new AlbumWireReader(binaryAlbum, offset, length);
+   }
+
+   /**
+    * Decodes the last occurrence of the string field with the provided
+    * field number (for a singular field, the last value wins).
+    *
+    * @param fieldNumber Field number of singular string field.
+    * @return Decoded string; empty if the field is not present.
+    */
+   private String decodeLastString(final int fieldNumber)
+   {
+      String value = "";
+      final AlbumWireReader reader = newReader();
+      while (reader.hasRemaining())
+      {
+         final int tag = reader.readTag();
+         if ((tag >>> 3) == fieldNumber && (tag & 0x7) == AlbumWireReader.WIRETYPE_LENGTH_DELIMITED)
+         {
+            value = reader.readString();
+         }
+         else
+         {
+            reader.skipField(tag);
+         }
+      }
+      return value;
+   }
+
+   /**
+    * Decodes all occurrences of the repeated string field with the
+    * provided field number, in order.
+    *
+    * @param fieldNumber Field number of repeated string field.
+    * @return Unmodifiable list of decoded strings.
+    */
+   private List<String> decodeStrings(final int fieldNumber)
+   {
+      final List<String> strings = new ArrayList<>();
+      final AlbumWireReader reader = newReader();
+      while (reader.hasRemaining())
+      {
+         final int tag = reader.readTag();
+         if ((tag >>> 3) == fieldNumber && (tag & 0x7) == AlbumWireReader.WIRETYPE_LENGTH_DELIMITED)
+         {
+            strings.add(reader.readString());
+         }
+         else
+         {
+            reader.skipField(tag);
+         }
+      }
+      return Collections.unmodifiableList(strings);
+   }
+
+   /**
+    * Decodes the last occurrence of the release year field.
+    *
+    * @return Decoded release year; zero if the field is not present.
+    */
+   private int decodeReleaseYear()
+   {
+      int year = 0;
+      final AlbumWireReader reader = newReader();
+      while (reader.hasRemaining())
+      {
+         final int tag = reader.readTag();
+         if ((tag >>> 3) == RELEASE_YEAR_FIELD_NUMBER && (tag & 0x7) == AlbumWireReader.WIRETYPE_VARINT)
+         {
+            year = reader.readInt32();
+         }
+         else
+         {
+            reader.skipField(tag);
+         }
+      }
+      return year;
+   }
+}
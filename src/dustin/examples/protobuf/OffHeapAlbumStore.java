@@ -0,0 +1,309 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import dustin.examples.maxdirectmemory.DirectMemoryProbe;
+import dustin.examples.maxdirectmemory.MemoryUnit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Store of encoded {@code AlbumProtos.Album} records kept in direct
+ * (off-heap) {@link ByteBuffer} slabs so that a large cache of albums
+ * does not occupy, or need to be traced by, the garbage-collected heap.
+ *
+ * Records are placed in power-of-two sized chunks carved out of slabs;
+ * each slab holds chunks of a single size and freed chunks are kept on
+ * a free list per chunk size for reuse. A stored album is identified by
+ * the {@code long} handle returned by {@link #put(AlbumProtos.Album)}.
+ *
+ * The store never allocates a slab that would take it past its own
+ * maximum size or would take the JVM's direct buffer usage past the
+ * maximum direct memory reported by {@link DirectMemoryProbe#fastest()};
+ * {@link #put(AlbumProtos.Album)} instead returns {@link #NOT_STORED}.
+ */
+public class OffHeapAlbumStore
+{
+   /** Handle returned when an album cannot be stored. */
+   public static final long NOT_STORED = -1L;
+
+   /** Default size of each slab (1 MB). */
+   public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+   /** Base two logarithm of the smallest chunk size (64 bytes). */
+   private static final int MINIMUM_CHUNK_SHIFT = 6;
+
+   /** Largest chunk size (as base two logarithm) that a record can occupy. */
+   private static final int MAXIMUM_CHUNK_SHIFT = 30;
+
+   /** Each chunk begins with the length of its record. */
+   private static final int HEADER_SIZE = Integer.BYTES;
+
+   /** Length header value marking a free chunk. */
+   private static final int FREE = -1;
+
+   private final int slabSize;
+
+   private final long maximumBytes;
+
+   private final DirectMemoryProbe probe = DirectMemoryProbe.fastest();
+
+   private final List<ByteBuffer> slabs = new ArrayList<>();
+
+   /** Base two logarithm of the chunk size of each slab. */
+   private byte[] slabChunkShifts = new byte[16];
+
+   /** Free chunk handles per chunk size, indexed by base two logarithm. */
+   private final long[][] freeChunks = new long[MAXIMUM_CHUNK_SHIFT + 1][];
+
+   private final int[] freeChunkCounts = new int[MAXIMUM_CHUNK_SHIFT + 1];
+
+   private long reservedBytes;
+
+   private long usedBytes;
+
+   private int albumCount;
+
+   /**
+    * Instantiates a store with the default slab size that may grow
+    * until direct memory is exhausted.
+    */
+   public OffHeapAlbumStore()
+   {
+      this(DEFAULT_SLAB_SIZE, Long.MAX_VALUE);
+   }
+
+   /**
+    * Instantiates a store.
+    *
+    * @param newSlabSize Size in bytes of each slab; must be a power of two
+    *    of at least 64 bytes.
+    * @param newMaximumBytes Maximum number of bytes of direct memory this
+    *    store may reserve.
+    */
+   public OffHeapAlbumStore(final int newSlabSize, final long newMaximumBytes)
+   {
+      if (newSlabSize < 1 << MINIMUM_CHUNK_SHIFT || Integer.bitCount(newSlabSize) != 1)
+      {
+         throw new IllegalArgumentException("Slab size must be a power of two of at least 64: " + newSlabSize);
+      }
+      if (newMaximumBytes <= 0)
+      {
+         throw new IllegalArgumentException("Maximum bytes must be positive: " + newMaximumBytes);
+      }
+      slabSize = newSlabSize;
+      maximumBytes = newMaximumBytes;
+   }
+
+   /**
+    * Stores the provided album.
+    *
+    * @param album Album to be stored.
+    * @return Handle with which the album can be retrieved or removed, or
+    *    {@link #NOT_STORED} if storing it would exceed this store's
+    *    maximum size or the JVM's maximum direct memory.
+    */
+   public synchronized long put(final AlbumProtos.Album album)
+   {
+      final int recordSize = album.getSerializedSize();
+      final long chunkSize = (long) HEADER_SIZE + recordSize;
+      if (chunkSize > 1L << MAXIMUM_CHUNK_SHIFT)
+      {
+         return NOT_STORED;
+      }
+      final int chunkShift = Math.max(MINIMUM_CHUNK_SHIFT, 64 - Long.numberOfLeadingZeros(chunkSize - 1));
+      if (freeChunkCounts[chunkShift] == 0 && !addSlab(chunkShift))
+      {
+         return NOT_STORED;
+      }
+      final long handle = freeChunks[chunkShift][--freeChunkCounts[chunkShift]];
+      final ByteBuffer chunk = chunk(handle, HEADER_SIZE + recordSize);
+      chunk.putInt(recordSize);
+      try
+      {
+         final CodedOutputStream output = CodedOutputStream.newInstance(chunk);
+         album.writeTo(output);
+         output.flush();
+      }
+      catch (IOException ioException)
+      {
+         throw new UncheckedIOException(ioException);
+      }
+      usedBytes += 1L << chunkShift;
+      albumCount++;
+      return handle;
+   }
+
+   /**
+    * Retrieves the album with the provided handle, parsing it directly
+    * from off-heap memory.
+    *
+    * @param handle Handle returned by {@link #put(AlbumProtos.Album)}.
+    * @return Stored album.
+    * @throws IllegalArgumentException Thrown if the handle does not
+    *    identify a stored album.
+    * @throws InvalidProtocolBufferException Thrown if the stored album
+    *    cannot be parsed.
+    */
+   public synchronized AlbumProtos.Album get(final long handle) throws InvalidProtocolBufferException
+   {
+      final int recordSize = recordSize(handle);
+      final ByteBuffer chunk = chunk(handle, HEADER_SIZE + recordSize);
+      chunk.position(chunk.position() + HEADER_SIZE);
+      return AlbumProtos.Album.parseFrom(chunk);
+   }
+
+   /**
+    * Removes the album with the provided handle, making its chunk
+    * available for reuse.
+    *
+    * @param handle Handle returned by {@link #put(AlbumProtos.Album)}.
+    * @throws IllegalArgumentException Thrown if the handle does not
+    *    identify a stored album.
+    */
+   public synchronized void remove(final long handle)
+   {
+      recordSize(handle);
+      final int slabIndex = (int) (handle >>> 32);
+      final int chunkShift = slabChunkShifts[slabIndex];
+      slabs.get(slabIndex).putInt((int) handle, FREE);
+      pushFreeChunk(chunkShift, handle);
+      usedBytes -= 1L << chunkShift;
+      albumCount--;
+   }
+
+   /**
+    * Provides the number of albums currently stored.
+    *
+    * @return Number of stored albums.
+    */
+   public synchronized int size()
+   {
+      return albumCount;
+   }
+
+   /**
+    * Provides the direct memory reserved by this store's slabs.
+    *
+    * @param unit Memory unit in which the amount is expressed.
+    * @return Reserved direct memory in the provided unit.
+    */
+   public synchronized double getReservedMemory(final MemoryUnit unit)
+   {
+      return MemoryUnit.BYTES.toUnit(reservedBytes, unit);
+   }
+
+   /**
+    * Provides the direct memory occupied by chunks holding albums.
+    *
+    * @param unit Memory unit in which the amount is expressed.
+    * @return Used direct memory in the provided unit.
+    */
+   public synchronized double getUsedMemory(final MemoryUnit unit)
+   {
+      return MemoryUnit.BYTES.toUnit(usedBytes, unit);
+   }
+
+   /**
+    * Allocates a new slab for chunks of the provided size and adds all
+    * of its chunks to that size's free list.
+    *
+    * @param chunkShift Base two logarithm of chunk size.
+    * @return {@code false} if allocating the slab would exceed this
+    *    store's maximum size or the JVM's maximum direct memory.
+    */
+   private boolean addSlab(final int chunkShift)
+   {
+      final int slabBytes = Math.max(slabSize, 1 << chunkShift);
+      if (reservedBytes + slabBytes > maximumBytes
+         || probe.getMemoryUsed() + slabBytes > probe.getMaxDirectMemory())
+      {
+         return false;
+      }
+      final ByteBuffer slab;
+      try
+      {
+         slab = ByteBuffer.allocateDirect(slabBytes);
+      }
+      catch (OutOfMemoryError outOfMemoryError)
+      {
+         // Another thread claimed the remaining direct memory first.
+         return false;
+      }
+      final int slabIndex = slabs.size();
+      slabs.add(slab);
+      if (slabIndex == slabChunkShifts.length)
+      {
+         slabChunkShifts = Arrays.copyOf(slabChunkShifts, slabIndex * 2);
+      }
+      slabChunkShifts[slabIndex] = (byte) chunkShift;
+      for (int offset = slabBytes - (1 << chunkShift); offset >= 0; offset -= 1 << chunkShift)
+      {
+         slab.putInt(offset, FREE);
+         pushFreeChunk(chunkShift, ((long) slabIndex << 32) | offset);
+      }
+      reservedBytes += slabBytes;
+      return true;
+   }
+
+   private void pushFreeChunk(final int chunkShift, final long handle)
+   {
+      long[] stack = freeChunks[chunkShift];
+      if (stack == null)
+      {
+         stack = new long[64];
+         freeChunks[chunkShift] = stack;
+      }
+      else if (freeChunkCounts[chunkShift] == stack.length)
+      {
+         stack = Arrays.copyOf(stack, stack.length * 2);
+         freeChunks[chunkShift] = stack;
+      }
+      stack[freeChunkCounts[chunkShift]++] = handle;
+   }
+
+   /**
+    * Provides the length of the record in the chunk with the provided
+    * handle, validating that the handle identifies a stored album.
+    *
+    * @param handle Handle of chunk.
+    * @return Length of record in chunk.
+    */
+   private int recordSize(final long handle)
+   {
+      final int slabIndex = (int) (handle >>> 32);
+      final int offset = (int) handle;
+      if (handle < 0 || slabIndex >= slabs.size() || offset < 0
+         || offset >= slabs.get(slabIndex).capacity() || (offset & ((1 << slabChunkShifts[slabIndex]) - 1)) != 0)
+      {
+         throw new IllegalArgumentException("Invalid album handle " + handle + ".");
+      }
+      final int recordSize = slabs.get(slabIndex).getInt(offset);
+      if (recordSize == FREE)
+      {
+         throw new IllegalArgumentException("No album stored with handle " + handle + ".");
+      }
+      return recordSize;
+   }
+
+   /**
+    * Provides a view of the chunk with the provided handle.
+    *
+    * @param handle Handle of chunk.
+    * @param length Number of bytes of the chunk to be viewed.
+    * @return Buffer positioned at the start of the chunk.
+    */
+   private ByteBuffer chunk(final long handle, final int length)
+   {
+      final ByteBuffer chunk = slabs.get((int) (handle >>> 32)).duplicate();
+      final int offset = (int) handle;
+      chunk.limit(offset + length).position(offset);
+      return chunk;
+   }
+}
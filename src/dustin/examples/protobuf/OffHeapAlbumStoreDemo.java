@@ -0,0 +1,73 @@
+package dustin.examples.protobuf;
+
+import static java.lang.System.out;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import dustin.examples.maxdirectmemory.MemoryUnit;
+
+/**
+ * Demonstrates storing albums off-heap with {@link OffHeapAlbumStore}
+ * until either the requested number of albums is stored or the store
+ * refuses an album because direct memory would be exhausted.
+ *
+ * Run with {@code -XX:MaxDirectMemorySize} to see the store stop short
+ * of that limit.
+ */
+public class OffHeapAlbumStoreDemo
+{
+   /** Default number of albums to attempt to store. */
+   private static final int DEFAULT_ALBUM_COUNT = 1_000_000;
+
+   /**
+    * Writes the provided store's size and footprint to standard output.
+    *
+    * @param label Label describing the store's state.
+    * @param store Store to be described.
+    */
+   private static void writeFootprint(final String label, final OffHeapAlbumStore store)
+   {
+      out.println(label + ": " + store.size() + " albums using "
+         + store.getUsedMemory(MemoryUnit.MEGABYTES) + " MB of "
+         + store.getReservedMemory(MemoryUnit.MEGABYTES) + " MB reserved off-heap.");
+   }
+
+   /**
+    * Demonstrates off-heap album storage.
+    *
+    * @param arguments Command-line arguments: optional number of albums
+    *    to attempt to store (default is one million).
+    * @throws InvalidProtocolBufferException Thrown if a stored album
+    *    cannot be parsed.
+    */
+   public static void main(final String[] arguments) throws InvalidProtocolBufferException
+   {
+      final int albumCount = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_ALBUM_COUNT;
+      final AlbumDemo albumDemo = new AlbumDemo();
+      final AlbumProtos.Album template = albumDemo.generateAlbumMessage(albumDemo.generateAlbum());
+      final OffHeapAlbumStore store = new OffHeapAlbumStore();
+      final long[] handles = new long[albumCount];
+      int stored = 0;
+      while (stored < albumCount)
+      {
+         final long handle = store.put(template.toBuilder().setReleaseYear(stored).build());
+         if (handle == OffHeapAlbumStore.NOT_STORED)
+         {
+            out.println("Store refused album #" + stored + " to stay within maximum direct memory.");
+            break;
+         }
+         handles[stored++] = handle;
+      }
+      writeFootprint("After storing", store);
+
+      if (stored > 0)
+      {
+         out.println("Last album stored: " + albumDemo.instantiateAlbumFromMessage(store.get(handles[stored - 1])));
+      }
+      for (int index = 0; index < stored; index += 2)
+      {
+         store.remove(handles[index]);
+      }
+      writeFootprint("After removing every other album", store);
+   }
+}
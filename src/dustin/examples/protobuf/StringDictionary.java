@@ -0,0 +1,161 @@
+package dustin.examples.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe dictionary that deduplicates strings decoded from
+ * UTF-8 bytes so that the many albums sharing an artist share a single
+ * {@code String} instance for that artist.
+ *
+ * Lookups compare the encoded bytes with those of the cached entry, so a
+ * hit allocates nothing. The dictionary is a fixed-size, direct-mapped
+ * table: an entry whose slot is claimed by a different string is simply
+ * replaced. Memory use is therefore bounded by the capacity no matter
+ * how many distinct strings are decoded, at the cost of occasionally
+ * decoding a string that was previously cached.
+ */
+public class StringDictionary
+{
+   /** Default number of slots. */
+   public static final int DEFAULT_CAPACITY = 1 << 16;
+
+   /** Strings longer than this (in bytes) are not cached. */
+   private static final int MAXIMUM_CACHED_LENGTH = 256;
+
+   private final AtomicReferenceArray<Entry> entries;
+
+   private final int mask;
+
+   private final LongAdder hits = new LongAdder();
+
+   private final LongAdder misses = new LongAdder();
+
+   /**
+    * Instantiates a dictionary with the default capacity.
+    */
+   public StringDictionary()
+   {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Instantiates a dictionary with at least the provided capacity
+    * (rounded up to a power of two).
+    *
+    * @param capacity Minimum number of slots in the dictionary.
+    */
+   public StringDictionary(final int capacity)
+   {
+      if (capacity <= 0 || capacity > 1 << 30)
+      {
+         throw new IllegalArgumentException("Invalid dictionary capacity: " + capacity);
+      }
+      final int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+      entries = new AtomicReferenceArray<>(slots);
+      mask = slots - 1;
+   }
+
+   /**
+    * Provides the string encoded as UTF-8 in the specified region of the
+    * provided bytes array, reusing a previously decoded instance if the
+    * same string is cached.
+    *
+    * @param buffer Bytes array holding UTF-8 encoded string.
+    * @param offset Offset of the string within the bytes array.
+    * @param length Length in bytes of the encoded string.
+    * @return Decoded (possibly shared) string.
+    */
+   public String intern(final byte[] buffer, final int offset, final int length)
+   {
+      if (length > MAXIMUM_CACHED_LENGTH)
+      {
+         misses.increment();
+         return new String(buffer, offset, length, StandardCharsets.UTF_8);
+      }
+      int hash = 1;
+      for (int index = offset; index < offset + length; index++)
+      {
+         hash = 31 * hash + buffer[index];
+      }
+      final int slot = spread(hash) & mask;
+      final Entry entry = entries.get(slot);
+      if (entry != null && entry.hash == hash
+         && Arrays.equals(entry.bytes, 0, entry.bytes.length, buffer, offset, offset + length))
+      {
+         hits.increment();
+         return entry.string;
+      }
+      misses.increment();
+      final String string = new String(buffer, offset, length, StandardCharsets.UTF_8);
+      entries.set(slot, new Entry(hash, Arrays.copyOfRange(buffer, offset, offset + length), string));
+      return string;
+   }
+
+   /**
+    * Provides the cached instance equal to the provided string, caching
+    * the provided string if no equal instance is cached.
+    *
+    * @param string String to be deduplicated.
+    * @return Shared instance equal to the provided string.
+    */
+   public String intern(final String string)
+   {
+      final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      return intern(bytes, 0, bytes.length);
+   }
+
+   /**
+    * Provides the number of lookups that reused a cached string.
+    *
+    * @return Number of dictionary hits.
+    */
+   public long getHitCount()
+   {
+      return hits.sum();
+   }
+
+   /**
+    * Provides the number of lookups that decoded a new string.
+    *
+    * @return Number of dictionary misses.
+    */
+   public long getMissCount()
+   {
+      return misses.sum();
+   }
+
+   /**
+    * Spreads the bits of a hash so that strings differing only in their
+    * last bytes do not collide in the low-order bits.
+    *
+    * @param hash Hash of encoded bytes.
+    * @return Spread hash.
+    */
+   private static int spread(final int hash)
+   {
+      final int mixed = hash * 0x9E3779B9;
+      return mixed ^ (mixed >>> 16);
+   }
+
+   /**
+    * Cached string with the bytes from which it was decoded.
+    */
+   private static final class Entry
+   {
+      private final int hash;
+
+      private final byte[] bytes;
+
+      private final String string;
+
+      private Entry(final int newHash, final byte[] newBytes, final String newString)
+      {
+         hash = newHash;
+         bytes = newBytes;
+         string = newString;
+      }
+   }
+}
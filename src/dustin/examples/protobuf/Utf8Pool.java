@@ -0,0 +1,166 @@
+package dustin.examples.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only pool of UTF-8 encoded strings stored in large pages of
+ * bytes rather than as individual {@code String} objects.
+ *
+ * Each string is stored as a varint length followed by its bytes and is
+ * identified by a {@code long} address. A string never spans two pages,
+ * so the pool can grow beyond the two gigabyte limit of a single array.
+ * Instances are not thread-safe while strings are being added.
+ */
+class Utf8Pool
+{
+   /** Number of bits of an address that are the offset within a page. */
+   private static final int PAGE_SHIFT = 20;
+
+   /** Size in bytes of each page (1 MB). */
+   private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+   private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+   /** Largest string (in bytes) that can be stored, leaving room for its length. */
+   private static final int MAXIMUM_STRING_LENGTH = PAGE_SIZE - 5;
+
+   private byte[][] pages = new byte[1][];
+
+   private int pageCount;
+
+   /** Position within the last page at which the next string is written. */
+   private int pagePosition = PAGE_SIZE;
+
+   /**
+    * Adds the provided string to the pool.
+    *
+    * @param string String to be added.
+    * @return Address of the added string.
+    */
+   long add(final String string)
+   {
+      final byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+      if (encoded.length > MAXIMUM_STRING_LENGTH)
+      {
+         throw new IllegalArgumentException(
+            "String of " + encoded.length + " bytes exceeds pool maximum of " + MAXIMUM_STRING_LENGTH + ".");
+      }
+      final int required = varintSize(encoded.length) + encoded.length;
+      if (PAGE_SIZE - pagePosition < required)
+      {
+         addPage();
+      }
+      final long address = ((long) (pageCount - 1) << PAGE_SHIFT) | pagePosition;
+      final byte[] page = pages[pageCount - 1];
+      int length = encoded.length;
+      while ((length & ~0x7F) != 0)
+      {
+         page[pagePosition++] = (byte) ((length & 0x7F) | 0x80);
+         length >>>= 7;
+      }
+      page[pagePosition++] = (byte) length;
+      System.arraycopy(encoded, 0, page, pagePosition, encoded.length);
+      pagePosition += encoded.length;
+      return address;
+   }
+
+   /**
+    * Decodes the string at the provided address.
+    *
+    * @param address Address of string returned by {@link #add(String)}.
+    * @return Decoded string.
+    */
+   String get(final long address)
+   {
+      final byte[] page = pages[(int) (address >>> PAGE_SHIFT)];
+      final int offset = (int) (address & PAGE_MASK);
+      final int length = readLength(page, offset);
+      return new String(page, offset + varintSize(length), length, StandardCharsets.UTF_8);
+   }
+
+   /**
+    * Compares the string at the provided address with the provided UTF-8
+    * encoded key in unsigned byte order (which for UTF-8 is the order of
+    * the strings' code points).
+    *
+    * @param address Address of string returned by {@link #add(String)}.
+    * @param key UTF-8 encoded string to be compared.
+    * @return Negative, zero, or positive as the pooled string is less
+    *    than, equal to, or greater than the key.
+    */
+   int compare(final long address, final byte[] key)
+   {
+      final byte[] page = pages[(int) (address >>> PAGE_SHIFT)];
+      final int offset = (int) (address & PAGE_MASK);
+      final int length = readLength(page, offset);
+      final int start = offset + varintSize(length);
+      return Arrays.compareUnsigned(page, start, start + length, key, 0, key.length);
+   }
+
+   /**
+    * Compares the strings at the provided addresses in unsigned byte order.
+    *
+    * @param address1 Address of first string.
+    * @param address2 Address of second string.
+    * @return Negative, zero, or positive as the first string is less
+    *    than, equal to, or greater than the second.
+    */
+   int compare(final long address1, final long address2)
+   {
+      final byte[] page1 = pages[(int) (address1 >>> PAGE_SHIFT)];
+      final int offset1 = (int) (address1 & PAGE_MASK);
+      final int length1 = readLength(page1, offset1);
+      final int start1 = offset1 + varintSize(length1);
+      final byte[] page2 = pages[(int) (address2 >>> PAGE_SHIFT)];
+      final int offset2 = (int) (address2 & PAGE_MASK);
+      final int length2 = readLength(page2, offset2);
+      final int start2 = offset2 + varintSize(length2);
+      return Arrays.compareUnsigned(page1, start1, start1 + length1, page2, start2, start2 + length2);
+   }
+
+   /**
+    * Provides the number of bytes of heap held by this pool's pages.
+    *
+    * @return Size in bytes of allocated pages.
+    */
+   long getAllocatedBytes()
+   {
+      return (long) pageCount * PAGE_SIZE;
+   }
+
+   private void addPage()
+   {
+      if (pageCount == pages.length)
+      {
+         pages = Arrays.copyOf(pages, pageCount * 2);
+      }
+      pages[pageCount++] = new byte[PAGE_SIZE];
+      pagePosition = 0;
+   }
+
+   /**
+    * Reads the varint length of the string stored at the provided offset
+    * of the provided page; its bytes follow the {@link #varintSize(int)}
+    * bytes of the length.
+    */
+   private static int readLength(final byte[] page, final int offset)
+   {
+      int position = offset;
+      int length = 0;
+      for (int shift = 0; ; shift += 7)
+      {
+         final byte currentByte = page[position++];
+         length |= (currentByte & 0x7F) << shift;
+         if (currentByte >= 0)
+         {
+            return length;
+         }
+      }
+   }
+
+   private static int varintSize(final int value)
+   {
+      return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : value < 1 << 21 ? 3 : value < 1 << 28 ? 4 : 5;
+   }
+}
@@ -0,0 +1,178 @@
+package dustin.examples.decimals;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of writing doubles and BigDecimals without scientific
+ * notation: doubles with a new {@link NumberFormat} per value (as
+ * {@link DecimalsStringFormattingDemo.Format#NO_EXPONENT} did), with one
+ * reused {@link NumberFormat}, and with a {@link PlainDecimalWriter}
+ * appending to a reused {@link StringBuilder} or writing to a reused
+ * {@code byte[]}; BigDecimals of the magnitude the demonstration writes
+ * with {@link BigDecimal#toPlainString()} and with the writer; and
+ * accumulating money-like amounts as BigDecimals and in a
+ * {@link Decimal64}, compared against a threshold at every step as the
+ * demonstration's loops do.
+ *
+ * The doubles cycle through metric-like values: small and large values
+ * with full-precision fractions, values with few decimal digits, and
+ * integers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class DecimalsStringFormattingBenchmark
+{
+   private static final int VALUE_COUNT = 1024;
+
+   private final double[] doubles = new double[VALUE_COUNT];
+
+   private final BigDecimal[] bigDecimals = new BigDecimal[VALUE_COUNT];
+
+   private final NumberFormat numberFormat = NumberFormat.getInstance();
+
+   private final PlainDecimalWriter writer = new PlainDecimalWriter();
+
+   private final StringBuilder builder = new StringBuilder(512);
+
+   private final byte[] bytes = new byte[512];
+
+   private final BigDecimal[] amounts = new BigDecimal[VALUE_COUNT];
+
+   private final Decimal64[] decimal64Amounts = new Decimal64[VALUE_COUNT];
+
+   private final BigDecimal threshold = new BigDecimal("1000000000.00");
+
+   private final Decimal64 decimal64Threshold = new Decimal64(threshold);
+
+   private BigDecimal total = BigDecimal.ZERO;
+
+   private final Decimal64 decimal64Total = new Decimal64();
+
+   private int index;
+
+   public DecimalsStringFormattingBenchmark()
+   {
+      numberFormat.setMaximumFractionDigits(Integer.MAX_VALUE);
+      numberFormat.setGroupingUsed(false);
+      final Random random = new Random(42);
+      final BigDecimal start = new BigDecimal("99999950000000000000000000000000000000000000000000");
+      final BigDecimal delta = new BigDecimal("10000000000000000000000000000000000000000000");
+      for (int value = 0; value < VALUE_COUNT; value++)
+      {
+         switch (value % 4)
+         {
+            case 0:
+               doubles[value] = random.nextDouble() / 1000;
+               break;
+            case 1:
+               doubles[value] = random.nextDouble() * 10_000_000;
+               break;
+            case 2:
+               doubles[value] = random.nextInt(100_000) / 100.0;
+               break;
+            default:
+               doubles[value] = random.nextInt();
+               break;
+         }
+         bigDecimals[value] = start.add(delta.multiply(BigDecimal.valueOf(value % 10)));
+         amounts[value] = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+         decimal64Amounts[value] = new Decimal64(amounts[value]);
+      }
+   }
+
+   private int nextIndex()
+   {
+      index = (index + 1) & (VALUE_COUNT - 1);
+      return index;
+   }
+
+   @Benchmark
+   public String doubleNumberFormatPerValue()
+   {
+      final NumberFormat perValue = NumberFormat.getInstance();
+      perValue.setMaximumFractionDigits(Integer.MAX_VALUE);
+      perValue.setGroupingUsed(false);
+      return perValue.format(doubles[nextIndex()]);
+   }
+
+   @Benchmark
+   public String doubleReusedNumberFormat()
+   {
+      return numberFormat.format(doubles[nextIndex()]);
+   }
+
+   @Benchmark
+   public int doubleWriterToStringBuilder()
+   {
+      builder.setLength(0);
+      return writer.append(doubles[nextIndex()], builder).length();
+   }
+
+   @Benchmark
+   public int doubleWriterToBytes()
+   {
+      return writer.write(doubles[nextIndex()], bytes, 0);
+   }
+
+   @Benchmark
+   public String bigDecimalToPlainString()
+   {
+      return bigDecimals[nextIndex()].toPlainString();
+   }
+
+   @Benchmark
+   public int bigDecimalWriterToStringBuilder()
+   {
+      builder.setLength(0);
+      return writer.append(bigDecimals[nextIndex()], builder).length();
+   }
+
+   @Benchmark
+   public BigDecimal bigDecimalAccumulate()
+   {
+      total = total.add(amounts[nextIndex()]);
+      if (total.compareTo(threshold) >= 0)
+      {
+         total = BigDecimal.ZERO;
+      }
+      return total;
+   }
+
+   @Benchmark
+   public Decimal64 decimal64Accumulate()
+   {
+      decimal64Total.add(decimal64Amounts[nextIndex()]);
+      if (decimal64Total.compareTo(decimal64Threshold) >= 0)
+      {
+         decimal64Total.set(0, 0);
+      }
+      return decimal64Total;
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(DecimalsStringFormattingBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,119 @@
+package dustin.examples.formatting;
+
+import java.nio.CharBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of parsing log-like batches of timestamps, in which each
+ * second repeats {@code repeatsPerSecond} times, with
+ * {@link BatchTimestampParser} versus parsing each timestamp individually
+ * with {@link DateTimeFormatter} and with {@link TimestampParser}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchTimestampParsingBenchmark
+{
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1", "100", "1000"})
+    private int repeatsPerSecond;
+
+    private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(TimestampParser.PATTERN);
+
+    private final TimestampParser timestampParser = new TimestampParser();
+
+    private final BatchTimestampParser batchTimestampParser = new BatchTimestampParser();
+
+    private final List<String> timestamps = new ArrayList<>(BATCH_SIZE);
+
+    private CharBuffer lines;
+
+    private final long[] epochMillis = new long[BATCH_SIZE];
+
+    @Setup
+    public void generateTimestamps()
+    {
+        final long start = LocalDateTime.parse("2021-07-12T13:25:45").toEpochSecond(ZoneOffset.UTC);
+        final StringBuilder builder = new StringBuilder(BATCH_SIZE * (TimestampParser.LENGTH + 1));
+        for (int index = 0; index < BATCH_SIZE; index++)
+        {
+            final String timestamp = LocalDateTime.ofEpochSecond(start + index / repeatsPerSecond, 0, ZoneOffset.UTC)
+                .format(dateTimeFormatter);
+            timestamps.add(timestamp);
+            builder.append(timestamp).append('\n');
+        }
+        lines = CharBuffer.wrap(builder.toString());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] dateTimeFormatter()
+    {
+        final ZoneId zone = ZoneId.systemDefault();
+        for (int index = 0; index < BATCH_SIZE; index++)
+        {
+            epochMillis[index] = LocalDateTime.parse(timestamps.get(index), dateTimeFormatter)
+                .atZone(zone).toInstant().toEpochMilli();
+        }
+        return epochMillis;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] timestampParser()
+    {
+        for (int index = 0; index < BATCH_SIZE; index++)
+        {
+            epochMillis[index] = timestampParser.parseEpochMillis(timestamps.get(index));
+        }
+        return epochMillis;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] batchList()
+    {
+        batchTimestampParser.parse(timestamps, epochMillis);
+        return epochMillis;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] batchCharBuffer()
+    {
+        lines.rewind();
+        batchTimestampParser.parse(lines, epochMillis, 0);
+        return epochMillis;
+    }
+
+    public static void main(final String[] arguments) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(BatchTimestampParsingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
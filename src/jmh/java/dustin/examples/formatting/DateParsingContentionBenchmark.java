@@ -0,0 +1,166 @@
+package dustin.examples.formatting;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the date/time parsing strategies demonstrated in this
+ * package under contention. It inherits the benchmarks of
+ * {@link TimestampParsingBenchmark} (a single {@link SimpleDateFormat}
+ * guarded by {@code synchronized}, a {@link ThreadLocal}
+ * {@link SimpleDateFormat}, a shared {@link DateTimeFormatter}, and a
+ * shared {@link TimestampParser}) and adds a {@link SimpleDateFormatPool}.
+ *
+ * The {@code virtualThread*} benchmarks parse 100 strings, as the
+ * demonstrations do, each on its own virtual thread with one of the
+ * inherited benchmarks. Because every virtual thread is new, the
+ * {@link ThreadLocal} strategy creates a new {@link SimpleDateFormat}
+ * for every parse there; the number created over each run is written to
+ * standard output at the end of the run.
+ *
+ * {@link #main(String[])} runs the suite with 1, 2, 4, 8, 16, 32, and 64
+ * benchmark threads and the GC profiler so that throughput and
+ * allocation rate can be compared across thread counts.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+public class DateParsingContentionBenchmark extends TimestampParsingBenchmark
+{
+    /** Thread counts with which {@link #main(String[])} runs the suite. */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    /** Parses per invocation of the virtual thread benchmarks, as in the demonstrations. */
+    private static final int VIRTUAL_THREAD_TASKS = 100;
+
+    /** Number of {@link SimpleDateFormat} instances created for {@link ThreadLocal}s. */
+    private static final LongAdder SIMPLE_DATE_FORMATS_CREATED = new LongAdder();
+
+    private final SimpleDateFormatPool simpleDateFormatPool = new SimpleDateFormatPool(TimestampParser.PATTERN);
+
+    private ExecutorService virtualThreadExecutor;
+
+    @Setup(Level.Trial)
+    public void startExecutor()
+    {
+        virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutor()
+    {
+        virtualThreadExecutor.close();
+        System.out.println("SimpleDateFormat instances created for ThreadLocals: " + SIMPLE_DATE_FORMATS_CREATED.sum());
+    }
+
+    @Override
+    protected SimpleDateFormat newThreadLocalSimpleDateFormat()
+    {
+        SIMPLE_DATE_FORMATS_CREATED.increment();
+        return super.newThreadLocalSimpleDateFormat();
+    }
+
+    @Benchmark
+    public Date pooledSimpleDateFormat() throws ParseException
+    {
+        return simpleDateFormatPool.parse(nextInput());
+    }
+
+    /**
+     * Parses {@link #VIRTUAL_THREAD_TASKS} strings, each on a new virtual
+     * thread, with the provided strategy and waits for all of them.
+     */
+    private long parseOnVirtualThreads(final Callable<Date> parse)
+        throws InterruptedException, ExecutionException
+    {
+        final List<Future<Date>> futures = new ArrayList<>(VIRTUAL_THREAD_TASKS);
+        for (int task = 0; task < VIRTUAL_THREAD_TASKS; task++)
+        {
+            futures.add(virtualThreadExecutor.submit(parse));
+        }
+        long checksum = 0;
+        for (final Future<Date> future : futures)
+        {
+            checksum += future.get().getTime();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_THREAD_TASKS)
+    public long virtualThreadSynchronizedSimpleDateFormat() throws InterruptedException, ExecutionException
+    {
+        return parseOnVirtualThreads(this::synchronizedSimpleDateFormat);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_THREAD_TASKS)
+    public long virtualThreadThreadLocalSimpleDateFormat() throws InterruptedException, ExecutionException
+    {
+        return parseOnVirtualThreads(this::threadLocalSimpleDateFormat);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_THREAD_TASKS)
+    public long virtualThreadPooledSimpleDateFormat() throws InterruptedException, ExecutionException
+    {
+        return parseOnVirtualThreads(this::pooledSimpleDateFormat);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_THREAD_TASKS)
+    public long virtualThreadDateTimeFormatter() throws InterruptedException, ExecutionException
+    {
+        return parseOnVirtualThreads(this::dateTimeFormatter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_THREAD_TASKS)
+    public long virtualThreadTimestampParser() throws InterruptedException, ExecutionException
+    {
+        return parseOnVirtualThreads(this::timestampParser);
+    }
+
+    /**
+     * Runs the suite once per thread count in {@link #THREAD_COUNTS}.
+     *
+     * @param arguments Command-line arguments: optional regular expression
+     *    restricting the benchmarks run.
+     * @throws RunnerException Thrown if JMH cannot run the benchmarks.
+     */
+    public static void main(final String[] arguments) throws RunnerException
+    {
+        final String include = DateParsingContentionBenchmark.class.getSimpleName()
+            + (arguments.length > 0 ? "." + arguments[0] : "");
+        for (final int threads : THREAD_COUNTS)
+        {
+            new Runner(new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        }
+    }
+}
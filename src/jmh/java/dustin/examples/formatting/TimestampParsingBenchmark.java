@@ -0,0 +1,150 @@
+package dustin.examples.formatting;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of parsing "yyyy-MM-dd'T'HH:mm:ss" strings to {@link Date}
+ * with the approaches of this package's demonstrations (a shared
+ * {@link SimpleDateFormat}, made safe here by synchronizing on it, a
+ * {@link ThreadLocal} {@link SimpleDateFormat}, and
+ * {@link DateTimeFormatter}) and with {@link TimestampParser}.
+ *
+ * Run with {@code -t <threads>} to measure the approaches under
+ * concurrent use and with {@code -prof gc} to compare allocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampParsingBenchmark
+{
+    private static final int INPUT_COUNT = 1024;
+
+    private final SimpleDateFormat sharedSimpleDateFormat = new SimpleDateFormat(TimestampParser.PATTERN);
+
+    private ThreadLocal<SimpleDateFormat> threadLocalSimpleDateFormat;
+
+    private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(TimestampParser.PATTERN);
+
+    private final TimestampParser timestampParser = new TimestampParser();
+
+    private final String[] inputs = new String[INPUT_COUNT];
+
+    private final byte[][] asciiInputs = new byte[INPUT_COUNT][];
+
+    @Setup
+    public void createThreadLocal()
+    {
+        threadLocalSimpleDateFormat = ThreadLocal.withInitial(this::newThreadLocalSimpleDateFormat);
+    }
+
+    @Setup
+    public void generateInputs()
+    {
+        final long start = LocalDateTime.parse("2021-01-01T00:00:00").toEpochSecond(ZoneOffset.UTC);
+        for (int index = 0; index < INPUT_COUNT; index++)
+        {
+            final long second = start + ThreadLocalRandom.current().nextLong(365L * 86_400);
+            inputs[index] = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).format(dateTimeFormatter);
+            asciiInputs[index] = inputs[index].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static int nextIndex()
+    {
+        return ThreadLocalRandom.current().nextInt(INPUT_COUNT);
+    }
+
+    /**
+     * Provides one of the generated inputs chosen at random.
+     *
+     * @return DateTime string to be parsed.
+     */
+    protected final String nextInput()
+    {
+        return inputs[nextIndex()];
+    }
+
+    /**
+     * Creates the {@link SimpleDateFormat} for the current thread's use by
+     * {@link #threadLocalSimpleDateFormat()}.
+     *
+     * @return New {@link SimpleDateFormat}.
+     */
+    protected SimpleDateFormat newThreadLocalSimpleDateFormat()
+    {
+        return new SimpleDateFormat(TimestampParser.PATTERN);
+    }
+
+    @Benchmark
+    public Date synchronizedSimpleDateFormat() throws ParseException
+    {
+        final String input = inputs[nextIndex()];
+        synchronized (sharedSimpleDateFormat)
+        {
+            return sharedSimpleDateFormat.parse(input);
+        }
+    }
+
+    @Benchmark
+    public Date threadLocalSimpleDateFormat() throws ParseException
+    {
+        return threadLocalSimpleDateFormat.get().parse(inputs[nextIndex()]);
+    }
+
+    @Benchmark
+    public Date dateTimeFormatter()
+    {
+        return Date.from(
+            LocalDateTime.parse(inputs[nextIndex()], dateTimeFormatter).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Benchmark
+    public Date timestampParser()
+    {
+        return timestampParser.parseDate(inputs[nextIndex()]);
+    }
+
+    @Benchmark
+    public long timestampParserEpochMillis()
+    {
+        return timestampParser.parseEpochMillis(inputs[nextIndex()]);
+    }
+
+    @Benchmark
+    public long timestampParserAsciiEpochMillis()
+    {
+        final byte[] input = asciiInputs[nextIndex()];
+        return timestampParser.parseEpochMillis(input, 0, input.length);
+    }
+
+    public static void main(final String[] arguments) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(TimestampParsingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package dustin.examples.jdk12.format;
+
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of compact formatting a view count in a randomly chosen
+ * locale and style by creating a {@link NumberFormat} with
+ * {@link NumberFormat#getCompactNumberInstance(Locale, NumberFormat.Style)}
+ * for every call (as {@link CompactNumberFormatDemo} did), by cloning a
+ * per-locale prototype for every call, and by looking the format up in a
+ * pre-warmed {@link CompactNumberFormatPool}, and by appending to a
+ * reused {@link StringBuilder} with a pre-warmed
+ * {@link CompactLongFormatter}. Run with several threads, as page
+ * renders would, so that the pool's striping is exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CompactNumberFormatBenchmark
+{
+   private static final List<Locale> LOCALES = List.of(
+      Locale.US, Locale.UK, Locale.FRANCE, Locale.GERMANY, Locale.ITALY, Locale.forLanguageTag("es-ES"));
+
+   private static final NumberFormat.Style[] STYLES = NumberFormat.Style.values();
+
+   private final CompactNumberFormatPool pool = new CompactNumberFormatPool();
+
+   private final NumberFormat[] prototypes = new NumberFormat[LOCALES.size() * STYLES.length];
+
+   private final CompactLongFormatter[] formatters = new CompactLongFormatter[LOCALES.size() * STYLES.length];
+
+   /** Builder reused by each benchmark thread. */
+   @State(Scope.Thread)
+   public static class Output
+   {
+      private final StringBuilder builder = new StringBuilder(32);
+   }
+
+   @Setup
+   public void prewarm()
+   {
+      for (int locale = 0; locale < LOCALES.size(); locale++)
+      {
+         for (final NumberFormat.Style style : STYLES)
+         {
+            pool.get(LOCALES.get(locale), style);
+            prototypes[locale * STYLES.length + style.ordinal()]
+               = NumberFormat.getCompactNumberInstance(LOCALES.get(locale), style);
+            formatters[locale * STYLES.length + style.ordinal()]
+               = new CompactLongFormatter(LOCALES.get(locale), style);
+         }
+      }
+      // Learns the prefixes and suffixes of the values benchmarked.
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int warm = 0; warm < 1_000_000; warm++)
+      {
+         formatters[random.nextInt(formatters.length)].format(viewCount(random), new StringBuilder());
+      }
+   }
+
+   private static long viewCount(final ThreadLocalRandom random)
+   {
+      return random.nextLong(100_000_000L);
+   }
+
+   @Benchmark
+   public String constructPerCall()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return NumberFormat.getCompactNumberInstance(
+         LOCALES.get(random.nextInt(LOCALES.size())), STYLES[random.nextInt(STYLES.length)])
+         .format(viewCount(random));
+   }
+
+   @Benchmark
+   public String clonePrototypePerCall()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final NumberFormat prototype = prototypes[random.nextInt(prototypes.length)];
+      return ((NumberFormat) prototype.clone()).format(viewCount(random));
+   }
+
+   @Benchmark
+   public String pooled()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return pool.get(LOCALES.get(random.nextInt(LOCALES.size())), STYLES[random.nextInt(STYLES.length)])
+         .format(viewCount(random));
+   }
+
+   @Benchmark
+   public StringBuilder compactLongFormatter(final Output output)
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      output.builder.setLength(0);
+      return formatters[random.nextInt(formatters.length)].format(viewCount(random), output.builder);
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(CompactNumberFormatBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,120 @@
+package dustin.examples.jdk16.datetime;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of rendering {@link DayPeriodDemo}'s day period patterns
+ * in a randomly chosen locale by calling
+ * {@link DateTimeFormatter#ofPattern(String, Locale)} for every rendering
+ * (as {@link DayPeriodDemo} did) versus looking the formatter up in a
+ * pre-warmed {@link DateTimeFormatterCache}, and of rendering only the
+ * day period (pattern "B") with a cached formatter versus looking it up
+ * in {@link DayPeriodTable}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DayPeriodFormatterBenchmark
+{
+   private static final List<Locale> LOCALES = List.of(
+      Locale.US, Locale.UK, Locale.FRANCE, Locale.GERMANY, Locale.JAPAN,
+      Locale.of("es", "DO"), Locale.of("pt", "BR"), Locale.of("hi", "IN"));
+
+   private final DateTimeFormatterCache cache = new DateTimeFormatterCache();
+
+   private final ZonedDateTime dateTime = ZonedDateTime.of(2020, 11, 23, 15, 42, 0, 0, ZoneId.of("America/Denver"));
+
+   @Setup
+   public void prewarm()
+   {
+      cache.prewarm(DayPeriodDemo.DAY_PERIOD_PATTERNS, LOCALES);
+      DayPeriodTable.prewarm(LOCALES);
+   }
+
+   @TearDown
+   public void writeCacheStatistics()
+   {
+      System.out.println(cache);
+   }
+
+   private static String pattern(final ThreadLocalRandom random)
+   {
+      return DayPeriodDemo.DAY_PERIOD_PATTERNS.get(
+         random.nextInt(DayPeriodDemo.DAY_PERIOD_PATTERNS.size()));
+   }
+
+   @Benchmark
+   public String ofPatternPerRendering()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return DateTimeFormatter.ofPattern(pattern(random), LOCALES.get(random.nextInt(LOCALES.size())))
+         .format(dateTime);
+   }
+
+   @Benchmark
+   public String cachedFormatter()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return cache.get(pattern(random), LOCALES.get(random.nextInt(LOCALES.size()))).format(dateTime);
+   }
+
+   @Benchmark
+   public DateTimeFormatter ofPatternOnly()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return DateTimeFormatter.ofPattern(pattern(random), LOCALES.get(random.nextInt(LOCALES.size())));
+   }
+
+   @Benchmark
+   public DateTimeFormatter cachedLookupOnly()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return cache.get(pattern(random), LOCALES.get(random.nextInt(LOCALES.size())));
+   }
+
+   @Benchmark
+   public String dayPeriodFormatted()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return cache.get("B", LOCALES.get(random.nextInt(LOCALES.size())))
+         .format(LocalTime.of(random.nextInt(24), random.nextInt(60)));
+   }
+
+   @Benchmark
+   public String dayPeriodTable()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      return DayPeriodTable.dayPeriod(
+         random.nextInt(DayPeriodTable.MINUTES_PER_DAY), LOCALES.get(random.nextInt(LOCALES.size())));
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(DayPeriodFormatterBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,144 @@
+package dustin.examples.jdk17.hex;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of hexadecimal formatting and parsing with
+ * {@link HexFormat} and with {@link HexCodec}: a 16-byte request ID, a
+ * 32-byte hash, and a 4 KiB payload, formatted to a String, encoded into
+ * a reused array and a reused direct buffer, and formatted with a
+ * delimiter.
+ *
+ * The fork resolves {@code jdk.incubator.vector} so that
+ * {@link HexCodec} encodes plain byte arrays with the Vector API; run
+ * with {@code -jvmArgs -Xmx1g} (replacing the fork's arguments) to
+ * measure the encoding eight bytes at a time within a {@code long}
+ * instead. Only encoding of plain arrays is vectorized: buffers,
+ * delimited formats, and parsing are unaffected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Threads(1)
+@State(Scope.Thread)
+public class HexCodecBenchmark
+{
+   private static final HexFormat HEX_FORMAT = HexFormat.of();
+
+   private static final HexFormat DELIMITED_HEX_FORMAT = HexFormat.ofDelimiter(":");
+
+   private static final HexCodec CODEC = HexCodec.of(HEX_FORMAT);
+
+   private static final HexCodec DELIMITED_CODEC = HexCodec.of(DELIMITED_HEX_FORMAT);
+
+   @Param({"16", "32", "4096"})
+   private int size;
+
+   private byte[] bytes;
+
+   private String text;
+
+   private byte[] encoded;
+
+   private ByteBuffer source;
+
+   private ByteBuffer destination;
+
+   private byte[] decoded;
+
+   @Setup(Level.Trial)
+   public void setUp()
+   {
+      bytes = new byte[size];
+      new Random(42).nextBytes(bytes);
+      text = HEX_FORMAT.formatHex(bytes);
+      encoded = new byte[2 * size];
+      CODEC.encode(bytes, 0, size, encoded, 0);
+      source = ByteBuffer.allocateDirect(size).put(bytes).flip();
+      destination = ByteBuffer.allocateDirect(2 * size);
+      decoded = new byte[size];
+   }
+
+   @Benchmark
+   public String hexFormatFormatHex()
+   {
+      return HEX_FORMAT.formatHex(bytes);
+   }
+
+   @Benchmark
+   public String codecFormatHex()
+   {
+      return CODEC.formatHex(bytes);
+   }
+
+   @Benchmark
+   public int codecEncodeToArray()
+   {
+      return CODEC.encode(bytes, 0, bytes.length, encoded, 0);
+   }
+
+   @Benchmark
+   public int codecEncodeDirectBuffer()
+   {
+      source.rewind();
+      destination.clear();
+      return CODEC.encode(source, destination);
+   }
+
+   @Benchmark
+   public String hexFormatFormatHexDelimited()
+   {
+      return DELIMITED_HEX_FORMAT.formatHex(bytes);
+   }
+
+   @Benchmark
+   public String codecFormatHexDelimited()
+   {
+      return DELIMITED_CODEC.formatHex(bytes);
+   }
+
+   @Benchmark
+   public byte[] hexFormatParseHex()
+   {
+      return HEX_FORMAT.parseHex(text);
+   }
+
+   @Benchmark
+   public byte[] codecParseHex()
+   {
+      return CODEC.parseHex(text);
+   }
+
+   @Benchmark
+   public int codecDecodeArray()
+   {
+      return CODEC.decode(encoded, 0, encoded.length, decoded, 0);
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(HexCodecBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,55 @@
+package dustin.examples.maxdirectmemory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the cost of polling direct memory usage through each
+ * {@link DirectMemoryProbe} backend. The fastest probe is the internal
+ * backend only when run with
+ * {@code --add-exports=java.base/jdk.internal.misc=ALL-UNNAMED} and
+ * {@code --add-exports=java.base/jdk.internal.access=ALL-UNNAMED}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+   "--add-exports=java.base/jdk.internal.misc=ALL-UNNAMED",
+   "--add-exports=java.base/jdk.internal.access=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class DirectMemoryProbeBenchmark
+{
+   private final DirectMemoryProbe platform = DirectMemoryProbe.platform();
+
+   private final DirectMemoryProbe fastest = DirectMemoryProbe.fastest();
+
+   @Benchmark
+   public long platformMemoryUsed()
+   {
+      return platform.getMemoryUsed() + platform.getMaxDirectMemory();
+   }
+
+   @Benchmark
+   public long fastestMemoryUsed()
+   {
+      return fastest.getMemoryUsed() + fastest.getMaxDirectMemory();
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(DirectMemoryProbeBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,119 @@
+package dustin.examples.maxdirectmemory;
+
+import java.nio.CharBuffer;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of rendering byte counts as human-readable sizes with
+ * {@link MemorySizeFormat} versus {@code String.format}. Run with
+ * {@code -prof gc} to see the allocation difference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemorySizeFormatBenchmark
+{
+   private static final int BATCH_SIZE = 1024;
+
+   private static final String[] SYMBOLS = {"B", "KB", "MB", "GB", "TB", "PB"};
+
+   private final long[] sizes = new long[BATCH_SIZE];
+
+   private final StringBuilder builder = new StringBuilder(MemorySizeFormat.MAXIMUM_LENGTH * BATCH_SIZE);
+
+   private final CharBuffer charBuffer = CharBuffer.allocate(MemorySizeFormat.MAXIMUM_LENGTH * BATCH_SIZE);
+
+   private final byte[] bytes = new byte[MemorySizeFormat.MAXIMUM_LENGTH * BATCH_SIZE];
+
+   @Setup(Level.Trial)
+   public void generateSizes()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int index = 0; index < BATCH_SIZE; index++)
+      {
+         sizes[index] = random.nextLong(1L << random.nextInt(1, 50));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public int stringFormat()
+   {
+      int length = 0;
+      for (final long size : sizes)
+      {
+         int unit = 0;
+         while (unit < SYMBOLS.length - 1 && size >= 1L << (10 * (unit + 1)))
+         {
+            unit++;
+         }
+         final String formatted = unit == 0
+            ? String.format(Locale.ROOT, "%d B", size)
+            : String.format(Locale.ROOT, "%.1f %s", size / Math.scalb(1.0, 10 * unit), SYMBOLS[unit]);
+         length += formatted.length();
+      }
+      return length;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public int stringBuilder()
+   {
+      builder.setLength(0);
+      for (final long size : sizes)
+      {
+         MemorySizeFormat.DEFAULT.format(size, builder);
+      }
+      return builder.length();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public int charBuffer()
+   {
+      charBuffer.clear();
+      for (final long size : sizes)
+      {
+         MemorySizeFormat.DEFAULT.format(size, charBuffer);
+      }
+      return charBuffer.position();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public int byteArray()
+   {
+      int position = 0;
+      for (final long size : sizes)
+      {
+         position = MemorySizeFormat.DEFAULT.format(size, bytes, position);
+      }
+      return position;
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(MemorySizeFormatBenchmark.class.getSimpleName()).build()).run();
+   }
+}
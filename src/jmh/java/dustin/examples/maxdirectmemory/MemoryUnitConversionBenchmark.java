@@ -0,0 +1,129 @@
+package dustin.examples.maxdirectmemory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark comparing {@link MemoryUnit}'s table-driven conversions
+ * with the {@code switch}-based implementation they replaced, converting
+ * a batch of byte counts in mixed source units to megabytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryUnitConversionBenchmark
+{
+   private static final int BATCH_SIZE = 1024;
+
+   private static final MemoryUnit[] LEGACY_UNITS =
+      {MemoryUnit.BYTES, MemoryUnit.KILOBYTES, MemoryUnit.MEGABYTES, MemoryUnit.GIGABYTES};
+
+   private final long[] amounts = new long[BATCH_SIZE];
+
+   private final MemoryUnit[] units = new MemoryUnit[BATCH_SIZE];
+
+   @Setup(Level.Trial)
+   public void generateInputs()
+   {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int index = 0; index < BATCH_SIZE; index++)
+      {
+         amounts[index] = random.nextLong(1L << 32);
+         units[index] = LEGACY_UNITS[random.nextInt(LEGACY_UNITS.length)];
+      }
+   }
+
+   /**
+    * The {@code switch}-based conversion {@link MemoryUnit#toMegaBytes(long)}
+    * used before the conversion matrix was introduced.
+    *
+    * @param unit Unit of the provided input.
+    * @param input Number of units of memory.
+    * @return Number of megabytes.
+    */
+   private static double switchToMegaBytes(final MemoryUnit unit, final long input)
+   {
+      final double bytesPerKilobyte = 1024.0;
+      final double kilobytesPerMegabyte = 1024.0;
+      final double megabytesPerGigabyte = 1024.0;
+      double megabytes;
+      switch (unit)
+      {
+         case BYTES:
+            megabytes = input / bytesPerKilobyte / kilobytesPerMegabyte;
+            break;
+         case KILOBYTES:
+            megabytes = input / kilobytesPerMegabyte;
+            break;
+         case MEGABYTES:
+            megabytes = input;
+            break;
+         case GIGABYTES:
+            megabytes = input * megabytesPerGigabyte;
+            break;
+         default:
+            throw new RuntimeException("No value '" + unit + "' recognized for enum MemoryUnit.");
+      }
+      return megabytes;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public double switchDouble()
+   {
+      double sum = 0;
+      for (int index = 0; index < BATCH_SIZE; index++)
+      {
+         sum += switchToMegaBytes(units[index], amounts[index]);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public double tableDouble()
+   {
+      double sum = 0;
+      for (int index = 0; index < BATCH_SIZE; index++)
+      {
+         sum += units[index].toMegaBytes(amounts[index]);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH_SIZE)
+   public long shiftLong()
+   {
+      long sum = 0;
+      for (int index = 0; index < BATCH_SIZE; index++)
+      {
+         sum += MemoryUnit.MEGABYTES.convert(amounts[index], units[index]);
+      }
+      return sum;
+   }
+
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      new Runner(new OptionsBuilder().include(MemoryUnitConversionBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,102 @@
+package dustin.examples.protobuf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks comparing the allocation of decoding a batch of albums
+ * with {@link AlbumDemo#instantiateAlbumFromBinary(byte[])} (new
+ * builders per album) against decoding with the reused builders of
+ * {@link AlbumBuilderPool}. Run with {@code -prof gc} (as {@link #main}
+ * does) and compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlbumDecodeAllocationBenchmark
+{
+   /** Number of albums decoded per benchmark invocation. */
+   @Param({"1000"})
+   private int albumCount;
+
+   /** Number of song titles on each album. */
+   @Param({"8", "100"})
+   private int songCount;
+
+   private final AlbumDemo albumDemo = new AlbumDemo();
+
+   private byte[][] binaryAlbums;
+
+   /**
+    * Builds the binary albums to be decoded.
+    */
+   @Setup
+   public void setUp()
+   {
+      binaryAlbums = new byte[albumCount][];
+      for (int albumIndex = 0; albumIndex < albumCount; albumIndex++)
+      {
+         final Album.Builder builder = new Album.Builder("Album " + albumIndex, 1950 + albumIndex % 70)
+            .artist("Artist " + albumIndex % 50);
+         for (int songIndex = 0; songIndex < songCount; songIndex++)
+         {
+            builder.songTitle("Song " + songIndex);
+         }
+         binaryAlbums[albumIndex] = albumDemo.generateAlbumMessage(builder.build()).toByteArray();
+      }
+   }
+
+   @Benchmark
+   public void decodeWithNewBuilders(final Blackhole blackhole)
+   {
+      for (final byte[] binaryAlbum : binaryAlbums)
+      {
+         blackhole.consume(albumDemo.instantiateAlbumFromBinary(binaryAlbum));
+      }
+   }
+
+   @Benchmark
+   public void decodeWithPooledBuilders(final Blackhole blackhole)
+   {
+      final AlbumBuilderPool pool = AlbumBuilderPool.forCurrentThread();
+      for (final byte[] binaryAlbum : binaryAlbums)
+      {
+         blackhole.consume(pool.decode(binaryAlbum));
+      }
+   }
+
+   /**
+    * Runs the decode allocation benchmarks with the GC profiler.
+    *
+    * @param arguments Command-line arguments: none expected.
+    * @throws RunnerException Thrown if the benchmarks cannot be run.
+    */
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      final Options options = new OptionsBuilder()
+         .include(AlbumDecodeAllocationBenchmark.class.getSimpleName())
+         .addProfiler(GCProfiler.class)
+         .build();
+      new Runner(options).run();
+   }
+}
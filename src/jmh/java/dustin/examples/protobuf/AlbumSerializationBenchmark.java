@@ -0,0 +1,147 @@
+package dustin.examples.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks of the {@code AlbumProtos.Album} serialization and
+ * deserialization paths used by {@link AlbumDemo}, parameterized by
+ * the number of songs on the album.
+ *
+ * Run with {@code gradle jmh --args="AlbumSerializationBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlbumSerializationBenchmark
+{
+   /** Number of song titles on the benchmarked album. */
+   @Param({"8", "100", "10000"})
+   private int songCount;
+
+   private final AlbumDemo albumDemo = new AlbumDemo();
+
+   private AlbumProtos.Album albumMessage;
+
+   private byte[] binaryAlbum;
+
+   private byte[] delimitedBinaryAlbum;
+
+   private ByteBuffer directBinaryAlbum;
+
+   private byte[] outputBuffer;
+
+   /**
+    * Builds the album message with the configured number of songs and
+    * its serialized forms.
+    *
+    * @throws IOException Thrown if the delimited form cannot be written.
+    */
+   @Setup
+   public void setUp() throws IOException
+   {
+      final Album template = albumDemo.generateAlbum();
+      final Album.Builder builder = new Album.Builder(template.getTitle(), template.getReleaseYear())
+         .artists(template.getArtists());
+      for (int songIndex = 0; songIndex < songCount; songIndex++)
+      {
+         builder.songTitle(template.getSongsTitles().get(songIndex % template.getSongsTitles().size())
+            + " (Take " + songIndex + ")");
+      }
+      albumMessage = albumDemo.generateAlbumMessage(builder.build());
+      binaryAlbum = albumMessage.toByteArray();
+
+      final ByteArrayOutputStream delimitedOutput = new ByteArrayOutputStream();
+      albumMessage.writeDelimitedTo(delimitedOutput);
+      delimitedBinaryAlbum = delimitedOutput.toByteArray();
+
+      directBinaryAlbum = ByteBuffer.allocateDirect(binaryAlbum.length);
+      directBinaryAlbum.put(binaryAlbum).flip();
+
+      outputBuffer = new byte[binaryAlbum.length];
+   }
+
+   @Benchmark
+   public byte[] toByteArray()
+   {
+      return albumMessage.toByteArray();
+   }
+
+   @Benchmark
+   public byte[] writeToCodedOutputStream() throws IOException
+   {
+      final CodedOutputStream output = CodedOutputStream.newInstance(outputBuffer);
+      albumMessage.writeTo(output);
+      output.flush();
+      return outputBuffer;
+   }
+
+   @Benchmark
+   public AlbumProtos.Album parseFromByteArray() throws InvalidProtocolBufferException
+   {
+      return AlbumProtos.Album.parseFrom(binaryAlbum);
+   }
+
+   @Benchmark
+   public AlbumProtos.Album parseFromByteBuffer() throws InvalidProtocolBufferException
+   {
+      return AlbumProtos.Album.parseFrom(directBinaryAlbum.duplicate());
+   }
+
+   @Benchmark
+   public AlbumProtos.Album parseFromInputStream() throws IOException
+   {
+      return AlbumProtos.Album.parseFrom(new ByteArrayInputStream(binaryAlbum));
+   }
+
+   @Benchmark
+   public AlbumProtos.Album parseDelimitedFrom() throws IOException
+   {
+      return AlbumProtos.Album.parseDelimitedFrom(new ByteArrayInputStream(delimitedBinaryAlbum));
+   }
+
+   @Benchmark
+   public Album instantiateAlbumFromBinary()
+   {
+      return albumDemo.instantiateAlbumFromBinary(binaryAlbum);
+   }
+
+   /**
+    * Runs all of the album serialization benchmarks.
+    *
+    * @param arguments Command-line arguments: none expected.
+    * @throws RunnerException Thrown if the benchmarks cannot be run.
+    */
+   public static void main(final String[] arguments) throws RunnerException
+   {
+      final Options options = new OptionsBuilder()
+         .include(AlbumSerializationBenchmark.class.getSimpleName())
+         .build();
+      new Runner(options).run();
+   }
+}
@@ -0,0 +1,51 @@
+package dustin.examples.jdk17.hex;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PlainHexEncoder} over the incubating Vector API: each block of
+ * bytes is zero-extended into {@code short} lanes, the two nibbles of
+ * each lane are swapped into its two bytes (high nibble first in memory),
+ * and all the nibbles are turned into digits at once by adding '0' and,
+ * to those of ten or more, the distance to the letters.
+ *
+ * Compiled and loaded separately from {@link HexCodec} so that the rest
+ * of the package builds and runs without {@code jdk.incubator.vector};
+ * it is only loaded through {@link PlainHexEncoder#fastest()}.
+ */
+final class VectorPlainHexEncoder implements PlainHexEncoder
+{
+   /** Shorts into which a block of bytes is zero-extended. */
+   private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+   /** Bytes of one block: half as many lanes as {@link #SHORTS} has bytes. */
+   private static final VectorSpecies<Byte> BYTES =
+      VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+
+   @Override
+   public int encode(final byte[] source, final int fromIndex, final int toIndex,
+      final byte[] destination, final int offset, final boolean upperCase)
+   {
+      final byte letterOffset = (byte) (upperCase ? 'A' - '0' - 10 : 'a' - '0' - 10);
+      final int blockLength = BYTES.length();
+      int index = fromIndex;
+      int position = offset;
+      for (; index <= toIndex - blockLength; index += blockLength)
+      {
+         final ShortVector values = (ShortVector) ByteVector.fromArray(BYTES, source, index)
+            .convertShape(VectorOperators.ZERO_EXTEND_B2S, SHORTS, 0);
+         final ByteVector nibbles = values.lanewise(VectorOperators.LSHR, 4)
+            .or(values.and((short) 0x0F).lanewise(VectorOperators.LSHL, 8))
+            .reinterpretAsBytes();
+         final VectorMask<Byte> letters = nibbles.compare(VectorOperators.GT, 9);
+         nibbles.add((byte) '0').add(letterOffset, letters).intoArray(destination, position);
+         position += 2 * blockLength;
+      }
+      return index;
+   }
+}